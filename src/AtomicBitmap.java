@@ -0,0 +1,127 @@
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size lock-free bitmap
+ *
+ * Bits live in an AtomicLongArray and are flipped with CAS, so any number of
+ * threads can set/clear bits concurrently without a monitor. set() and clear()
+ * report whether they actually changed the bit, which lets callers dedup
+ * work (queue a sequence once, release bytes once, count a packet once).
+ *
+ * The number of set bits is maintained incrementally: cardinality() is O(1).
+ *
+ * Memory ordering: a successful set() has volatile-write semantics, so data
+ * written before set() is visible to a thread that observes the bit via get().
+ */
+public final class AtomicBitmap {
+
+    private final AtomicLongArray words;
+    private final int size;
+    private final AtomicInteger cardinality = new AtomicInteger(0);
+
+    /**
+     * Create bitmap
+     *
+     * @param size Number of bits
+     */
+    public AtomicBitmap(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("size must be >= 0: " + size);
+        }
+        this.size = size;
+        this.words = new AtomicLongArray((size + 63) >>> 6);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Set bit
+     *
+     * @return true if the bit was clear before (this call set it)
+     */
+    public boolean set(int index) {
+        int w = index >>> 6;
+        long bit = 1L << index;
+        long old;
+        do {
+            old = words.get(w);
+            if ((old & bit) != 0) return false;
+        } while (!words.compareAndSet(w, old, old | bit));
+        cardinality.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Clear bit
+     *
+     * @return true if the bit was set before (this call cleared it)
+     */
+    public boolean clear(int index) {
+        int w = index >>> 6;
+        long bit = 1L << index;
+        long old;
+        do {
+            old = words.get(w);
+            if ((old & bit) == 0) return false;
+        } while (!words.compareAndSet(w, old, old & ~bit));
+        cardinality.decrementAndGet();
+        return true;
+    }
+
+    public boolean get(int index) {
+        return (words.get(index >>> 6) & (1L << index)) != 0;
+    }
+
+    /** Number of set bits, O(1) */
+    public int cardinality() {
+        return cardinality.get();
+    }
+
+    /**
+     * 64 bits starting at word boundary index (index must be a multiple of 64)
+     */
+    public long word(int wordIndex) {
+        return words.get(wordIndex);
+    }
+
+    /**
+     * Index of the first set bit at or after fromIndex
+     *
+     * @return Index, or -1 if none before size
+     */
+    public int nextSetBit(int fromIndex) {
+        if (fromIndex >= size) return -1;
+        int w = fromIndex >>> 6;
+        long word = words.get(w) & (-1L << fromIndex);
+        while (true) {
+            if (word != 0) {
+                int idx = (w << 6) + Long.numberOfTrailingZeros(word);
+                return idx < size ? idx : -1;
+            }
+            if (++w >= words.length()) return -1;
+            word = words.get(w);
+        }
+    }
+
+    /**
+     * Index of the first clear bit at or after fromIndex
+     *
+     * @return Index, or size if all remaining bits are set
+     */
+    public int nextClearBit(int fromIndex) {
+        if (fromIndex >= size) return size;
+        int w = fromIndex >>> 6;
+        long word = ~words.get(w) & (-1L << fromIndex);
+        while (true) {
+            if (word != 0) {
+                int idx = (w << 6) + Long.numberOfTrailingZeros(word);
+                return Math.min(idx, size);
+            }
+            if (++w >= words.length()) return size;
+            word = ~words.get(w);
+        }
+    }
+}
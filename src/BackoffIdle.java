@@ -0,0 +1,72 @@
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Adaptive idle strategy for non-blocking receive loops
+ *
+ * An empty poll first spins (a packet arriving within a few microseconds
+ * is picked up without a context switch), then yields, then parks with an
+ * exponentially growing timeout up to maxParkNs. Any work resets it. Low
+ * load gets spin latency instead of a fixed park; a busy socket never
+ * reaches the park at all.
+ *
+ * Thread-safety: NOT thread-safe, one instance per polling thread.
+ */
+public final class BackoffIdle {
+
+    public static final int SPINS = 200;
+    public static final int YIELDS = 20;
+    public static final long MIN_PARK_NS = 1_000;
+
+    private final long maxParkNs;
+    private int spins = 0;
+    private int yields = 0;
+    private long parkNs = MIN_PARK_NS;
+
+    /** Times the loop reached the park phase (idle, not just between packets) */
+    private long parks = 0;
+
+    /**
+     * @param maxParkNs Longest single park once the socket has been idle for a while
+     */
+    public BackoffIdle(long maxParkNs) {
+        this.maxParkNs = Math.max(MIN_PARK_NS, maxParkNs);
+    }
+
+    /**
+     * Idle step after a poll
+     *
+     * @param work Items the poll returned (> 0 resets the backoff)
+     */
+    public void idle(int work) {
+        if (work > 0) {
+            reset();
+        } else {
+            idle();
+        }
+    }
+
+    /** Idle step after an empty poll */
+    public void idle() {
+        if (spins < SPINS) {
+            spins++;
+            Thread.onSpinWait();
+        } else if (yields < YIELDS) {
+            yields++;
+            Thread.yield();
+        } else {
+            parks++;
+            LockSupport.parkNanos(parkNs);
+            parkNs = Math.min(parkNs << 1, maxParkNs);
+        }
+    }
+
+    public void reset() {
+        spins = 0;
+        yields = 0;
+        parkNs = MIN_PARK_NS;
+    }
+
+    public long getParks() {
+        return parks;
+    }
+}
@@ -0,0 +1,319 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * BBR-style model-based congestion control for the NACK-based protocol
+ *
+ * Instead of reacting to loss, the controller keeps a path model:
+ * - BtlBw : windowed max of per-round delivery rate samples
+ * - RTprop: windowed min RTT (RttStats, 10s)
+ * and sends at pacing_gain * BtlBw with cwnd = 2 * BtlBw * (RTprop + ACK
+ * interval). ACKs arrive only once per NACK tick, so the window must also
+ * cover the bytes sent while waiting for the next report (ACK aggregation).
+ *
+ * Modes: STARTUP (2/ln2 gain until the bandwidth stops growing 25% for
+ * three rounds) -> DRAIN (inverse gain until in-flight <= BDP) -> PROBE_BW (gain
+ * cycle 1.25, 0.75, 1 x6) with PROBE_RTT (half rate for 200ms) whenever the
+ * min RTT sample expires.
+ *
+ * A "round" is max(min RTT, ROUND_MIN_NS): delivery is only reported once
+ * per NACK tick, so shorter rounds would produce empty samples.
+ *
+ * Thread-safety: model updates are synchronized (NACK listener);
+ * the send path only touches the pacer.
+ */
+public class BbrCongestionController implements CongestionController {
+
+    private enum Mode {
+        STARTUP,
+        DRAIN,
+        PROBE_BW,
+        PROBE_RTT
+    }
+
+    private static final int PACKET_SIZE = EnhancedFileTransferSender.SLICE_SIZE;
+
+    private static final double HIGH_GAIN = 2.885; // 2/ln(2)
+    private static final double CWND_GAIN = 2.0;
+    private static final double[] PROBE_BW_GAINS = {1.25, 0.75, 1, 1, 1, 1, 1, 1};
+
+    private static final int BW_FILTER_ROUNDS = 10;
+    private static final int FULL_BW_ROUNDS = 3;
+    private static final double FULL_BW_GROWTH = 1.25;
+
+    private static final long ROUND_MIN_NS = 25_000_000; // 25ms ≈ NACK tick
+    private static final long PROBE_RTT_NS = 200_000_000; // 200ms
+    private static final int MIN_CWND_PACKETS = 4;
+
+    private volatile Mode mode = Mode.STARTUP;
+
+    // Delivery rate sampling, guarded by this
+    private long roundStartNs = System.nanoTime();
+    private long roundDelivered = 0;
+    private long roundCount = 0;
+    private final long[] bwSamples = new long[BW_FILTER_ROUNDS];
+    private long fullBw = 0;
+    private int fullBwCount = 0;
+    private boolean filledPipe = false;
+    private int cycleIndex = 0;
+    private long probeRttDoneNs = 0;
+    private long lastAckNs = 0;
+
+    /** EWMA of the time between NACK frames (ACK aggregation) */
+    private volatile long ackIntervalNs = ROUND_MIN_NS;
+
+    // Model (bytes per second), initial guess from the network profile
+    private volatile long btlBw = 0;
+    private volatile long initialBw = 10_000_000 / 8; // 10 Mbps
+
+    // Published state
+    private volatile double pacingGain = HIGH_GAIN;
+    private volatile long congestionWindow = 32 * PACKET_SIZE;
+    private volatile long pacingRate = 0;
+    private volatile long packetIntervalNs = 0;
+
+    private final RttStats rtt = new RttStats(100_000_000); // 100ms başlangıç
+    private final PacingEngine pacer = new PacingEngine(PACKET_SIZE);
+    private volatile InFlightTracker inFlight = null;
+
+    // Statistics
+    private final AtomicLong totalPacketsSent = new AtomicLong(0);
+    private final AtomicLong totalBytesSent = new AtomicLong(0);
+    private final AtomicLong totalLossCount = new AtomicLong(0);
+    private volatile long startTime = System.nanoTime();
+
+    public BbrCongestionController() {
+        updateModel();
+    }
+
+    @Override
+    public String getName() {
+        return "bbr";
+    }
+
+    @Override
+    public void rateLimitSend(int packetSize) {
+        InFlightTracker tracker = inFlight;
+        if (tracker != null) {
+            tracker.awaitRoom(this, packetSize);
+        }
+        pacer.acquire(packetSize);
+    }
+
+    @Override
+    public long tryRateLimitSend(int packetSize) {
+        if (!canSendPacket(packetSize)) return WINDOW_FULL;
+        return pacer.tryAcquire(packetSize);
+    }
+
+    @Override
+    public void onPacketSent(int packetSize) {
+        totalPacketsSent.incrementAndGet();
+        totalBytesSent.addAndGet(packetSize);
+        pacer.onSent(packetSize);
+    }
+
+    @Override
+    public boolean canSendPacket(int packetSize) {
+        InFlightTracker tracker = inFlight;
+        return tracker == null || tracker.hasRoom(this, packetSize);
+    }
+
+    @Override
+    public void setInFlightTracker(InFlightTracker tracker) {
+        this.inFlight = tracker;
+    }
+
+    @Override
+    public long getBytesInFlight() {
+        InFlightTracker tracker = inFlight;
+        return tracker != null ? tracker.getBytesInFlight() : 0;
+    }
+
+    @Override
+    public synchronized void onNackFrameReceived(int receivedPacketCount, int lostPacketCount) {
+        if (lostPacketCount > 0) {
+            totalLossCount.addAndGet(lostPacketCount); // Model-based: loss is not a congestion signal
+        }
+        roundDelivered += (long) receivedPacketCount * PACKET_SIZE;
+
+        long now = System.nanoTime();
+        if (lastAckNs != 0) {
+            ackIntervalNs = (7 * ackIntervalNs + (now - lastAckNs)) / 8;
+        }
+        lastAckNs = now;
+        long elapsed = now - roundStartNs;
+        if (elapsed < Math.max(ROUND_MIN_NS, rtt.getMinRtt())) return;
+
+        // Round complete - one delivery rate sample into the max filter
+        long sample = (roundDelivered * 1_000_000_000L) / elapsed;
+        bwSamples[(int) (roundCount % BW_FILTER_ROUNDS)] = sample;
+        roundCount++;
+        roundDelivered = 0;
+        roundStartNs = now;
+
+        long max = 0;
+        for (long s : bwSamples) {
+            if (s > max) max = s;
+        }
+        btlBw = max;
+
+        onRoundEnd(now);
+        updateModel();
+    }
+
+    private void onRoundEnd(long now) {
+        switch (mode) {
+            case STARTUP:
+                if (btlBw >= fullBw * FULL_BW_GROWTH) {
+                    fullBw = btlBw;
+                    fullBwCount = 0;
+                } else if (++fullBwCount >= FULL_BW_ROUNDS) {
+                    filledPipe = true;
+                    enterMode(Mode.DRAIN, 1.0 / HIGH_GAIN);
+                }
+                break;
+            case DRAIN:
+                // Queue built in STARTUP is gone once in-flight drops to the BDP
+                long target = (long) (btlBw * ((rtt.getMinRtt() + ackIntervalNs) / 1_000_000_000.0));
+                if (getBytesInFlight() <= target) {
+                    cycleIndex = 2; // Start cruising, probe on the next cycle
+                    enterMode(Mode.PROBE_BW, PROBE_BW_GAINS[cycleIndex]);
+                }
+                break;
+            case PROBE_BW:
+                cycleIndex = (cycleIndex + 1) % PROBE_BW_GAINS.length;
+                pacingGain = PROBE_BW_GAINS[cycleIndex];
+                break;
+            case PROBE_RTT:
+                if (now >= probeRttDoneNs) {
+                    if (filledPipe) {
+                        enterMode(Mode.PROBE_BW, PROBE_BW_GAINS[cycleIndex]);
+                    } else {
+                        enterMode(Mode.STARTUP, HIGH_GAIN);
+                    }
+                }
+                break;
+        }
+
+        if (mode != Mode.PROBE_RTT && rtt.isMinRttExpired(now)) {
+            probeRttDoneNs = now + PROBE_RTT_NS;
+            enterMode(Mode.PROBE_RTT, 0.5);
+        }
+    }
+
+    private void enterMode(Mode next, double gain) {
+        if (mode != next) {
+            System.out.printf("🔄 BBR: %s -> %s (BtlBw %.1f Mbps, RTprop %.2fms)%n",
+                mode, next, btlBw * 8 / 1_000_000.0, rtt.getMinRtt() / 1_000_000.0);
+        }
+        mode = next;
+        pacingGain = gain;
+    }
+
+    @Override
+    public void onPacketLoss(int lostPacketCount, int lostBytes) {
+        if (lostPacketCount > 0) {
+            totalLossCount.addAndGet(lostPacketCount);
+        }
+    }
+
+    @Override
+    public void updateRtt(long rttNs) {
+        rtt.update(rttNs);
+        updateModel();
+    }
+
+    /**
+     * Derive pacing rate and cwnd from the model
+     */
+    private void updateModel() {
+        long bw = btlBw > 0 ? btlBw : initialBw;
+        long minRtt = Math.max(1, rtt.getMinRtt());
+
+        double gain = mode == Mode.STARTUP ? HIGH_GAIN : CWND_GAIN;
+        long cwnd = (long) (bw * gain * ((minRtt + ackIntervalNs) / 1_000_000_000.0));
+        if (mode == Mode.PROBE_RTT) {
+            cwnd = MIN_CWND_PACKETS * PACKET_SIZE;
+        }
+        congestionWindow = Math.max(cwnd, MIN_CWND_PACKETS * PACKET_SIZE);
+
+        pacingRate = (long) (bw * pacingGain);
+        packetIntervalNs = pacingRate > 0 ? (PACKET_SIZE * 1_000_000_000L) / pacingRate : 0;
+        pacer.setRate(pacingRate);
+    }
+
+    @Override
+    public synchronized void enableLocalNetworkMode() {
+        initialBw = 500_000_000 / 8; // 500 Mbps başlangıç
+        rtt.setInitialRtt(2_000_000);
+        updateModel();
+        System.out.println("⚡ LAN MODE: BBR model, initial estimate 500 Mbps");
+    }
+
+    @Override
+    public synchronized void enableWanMode() {
+        initialBw = 50_000_000 / 8; // 50 Mbps estimate
+        rtt.setInitialRtt(100_000_000);
+        updateModel();
+        System.out.println("📡 WAN MODE: BBR model, initial estimate 50 Mbps");
+    }
+
+    @Override
+    public synchronized void reset() {
+        mode = Mode.STARTUP;
+        pacingGain = HIGH_GAIN;
+        java.util.Arrays.fill(bwSamples, 0);
+        btlBw = 0;
+        fullBw = 0;
+        fullBwCount = 0;
+        filledPipe = false;
+        cycleIndex = 0;
+        roundCount = 0;
+        roundDelivered = 0;
+        roundStartNs = System.nanoTime();
+        lastAckNs = 0;
+        ackIntervalNs = ROUND_MIN_NS;
+        rtt.reset();
+        totalPacketsSent.set(0);
+        totalBytesSent.set(0);
+        totalLossCount.set(0);
+        startTime = System.nanoTime();
+        updateModel();
+    }
+
+    @Override
+    public String getStats() {
+        long elapsed = Math.max(1, System.nanoTime() - startTime);
+        double throughputMbps = (totalBytesSent.get() * 8.0 * 1_000_000_000L) / (elapsed * 1_000_000.0);
+
+        long totalSent = Math.max(1, totalPacketsSent.get());
+        long totalLost = totalLossCount.get();
+        double lossRate = Math.min(100.0, (totalLost * 100.0) / (totalSent + totalLost));
+
+        return String.format(
+            "BBR %s, gain %.2f, BtlBw: %.1f Mbps, RTprop: %.2fms, ACK every %.1fms, CWnd: %d pkts, InFlight: %d pkts, " +
+            "Loss: %.2f%%, Throughput: %.1f Mbps",
+            mode,
+            pacingGain,
+            btlBw * 8 / 1_000_000.0,
+            rtt.getMinRtt() / 1_000_000.0,
+            ackIntervalNs / 1_000_000.0,
+            congestionWindow / PACKET_SIZE,
+            getBytesInFlight() / PACKET_SIZE,
+            lossRate,
+            throughputMbps
+        );
+    }
+
+    @Override public long getCongestionWindow() { return congestionWindow; }
+    @Override public long getSmoothedRtt() { return rtt.getSmoothedRtt(); }
+    @Override public long getRttVar() { return rtt.getRttVar(); }
+    @Override public long getPacingInterval() { return packetIntervalNs; }
+    @Override public String getPacingStats() { return pacer.getStats(); }
+
+    @Override
+    public double getLossRate() {
+        long lost = totalLossCount.get();
+        return lost / (double) Math.max(1, totalPacketsSent.get() + lost);
+    }
+}
@@ -9,12 +9,26 @@ public final class CRC32C_Packet {
     public static final int OFF_CRC      = 18;
     public static final int HEADER_SIZE  = 22;
 
+    // Packet type flag in the length field (payload <= 1450 leaves the top bit free)
+    // Parity packet: seq = first data seq of the FEC group, total = group layout (FecEncoder)
+    public static final int PARITY_FLAG  = 0x8000;
+    // Fountain symbol: seq = first seq of the source block, total = K << 16 | ESI (FountainCode)
+    public static final int FOUNTAIN_FLAG = 0x4000;
+
     private final ByteBuffer header;
 
     public CRC32C_Packet() {
         this.header = ByteBuffer.allocateDirect(HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
     }
 
+    // Wrap an existing header region (e.g. a PacketRing slot view)
+    public CRC32C_Packet(ByteBuffer header) {
+        if (header.capacity() < HEADER_SIZE) {
+            throw new IllegalArgumentException("header buffer too small: " + header.capacity());
+        }
+        this.header = header.order(ByteOrder.BIG_ENDIAN);
+    }
+
     public ByteBuffer headerBuffer() { return header; }
 
     public void fillHeader(long fileId, int seqNo, int totalSeq, int payloadLen, int crc32c) {
@@ -33,5 +47,8 @@ public final class CRC32C_Packet {
     public  static long fileId(ByteBuffer h) { return h.getLong(OFF_FILE_ID); }
     public  static int  seqNo (ByteBuffer h) { return h.getInt (OFF_SEQ); }
     public  static int  plen  (ByteBuffer h) { return Short.toUnsignedInt(h.getShort(OFF_PLEN)); }
+    public  static int  total (ByteBuffer h) { return h.getInt (OFF_TOTAL); }
+    public  static boolean isParity(ByteBuffer h) { return (plen(h) & PARITY_FLAG) != 0; }
+    public  static boolean isFountain(ByteBuffer h) { return (plen(h) & FOUNTAIN_FLAG) != 0; }
     public  static int  crc32 (ByteBuffer h) { return h.getInt(OFF_CRC); }
 }
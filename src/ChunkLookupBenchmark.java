@@ -0,0 +1,176 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * seq -> chunk -> buffer lookup under contention
+ *
+ * Every sent, retransmitted and received packet does this lookup. Compares
+ * the previous scheme (synchronized access-order LinkedHashMap + binary
+ * search over the chunk table, kept here as "locked") with the lock-free
+ * ChunkManager path ("lock-free", pin + unpin per lookup). All chunks are resident, so only the
+ * lookup itself is measured:
+ *
+ *   java ChunkLookupBenchmark 1,4,8 2 4
+ *
+ * Arguments: thread counts, seconds per run (default 2), file size in
+ * mapping windows (default 4, backed by a sparse temp file).
+ */
+public class ChunkLookupBenchmark {
+
+    private static final int SLICE_SIZE = FileTransferReceiver.SLICE_SIZE;
+
+    /** Keeps the JIT from dropping the reads */
+    static volatile int blackhole;
+
+    /** Lookup + one payload byte read, as the send path does it */
+    interface Lookup {
+        int read(int seq) throws IOException;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String counts = args.length > 0 ? args[0] : "1,4,8";
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int windows = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+
+        Path file = Files.createTempFile("turbo-lookup", ".bin");
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(windows * ChunkManager.WINDOW_BYTES);
+        }
+
+        ChunkManager chunkManager = new ChunkManager(file, SLICE_SIZE);
+        try {
+            int totalSeq = chunkManager.getTotalSequenceCount();
+            Lookup lockFree = seq -> {
+                int idx = chunkManager.findChunkForSequence(seq);
+                ChunkMetadata meta = chunkManager.getChunkMetadata(idx);
+                try {
+                    return chunkManager.pinChunk(idx).get((seq - meta.globalSeqStart) * SLICE_SIZE);
+                } finally {
+                    chunkManager.unpinChunk(idx);
+                }
+            };
+            Lookup locked = new LockedLookup(chunkManager);
+
+            System.out.println("=== Chunk Lookup Benchmark ===");
+            System.out.println("📁 " + chunkManager.getChunkCount() + " resident windows, " + totalSeq + " packets, " + seconds + "s per run");
+
+            // Warm up both paths (JIT) before measuring
+            run(lockFree, totalSeq, 2, 1);
+            run(locked, totalSeq, 2, 1);
+
+            System.out.println(String.format("%8s %16s %16s %8s", "threads", "locked Mops/s", "lock-free Mops/s", "gain"));
+            for (String c : counts.split(",")) {
+                int threads = Integer.parseInt(c.trim());
+                double a = run(locked, totalSeq, threads, seconds);
+                double b = run(lockFree, totalSeq, threads, seconds);
+                System.out.println(String.format("%8d %16.2f %16.2f %7.1fx", threads, a, b, b / a));
+            }
+        } finally {
+            chunkManager.close();
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * @return Million lookups per second over all threads
+     */
+    private static double run(Lookup lookup, int totalSeq, int threads, int seconds) throws InterruptedException {
+        LongAdder ops = new LongAdder();
+        AtomicBoolean stop = new AtomicBoolean();
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+
+        for (int t = 0; t < threads; t++) {
+            final long seed = 0x9E3779B97F4A7C15L * (t + 1);
+            workers[t] = new Thread(() -> {
+                long x = seed;
+                long n = 0;
+                int sum = 0;
+                ready.countDown();
+                try {
+                    go.await();
+                    while (!stop.get()) {
+                        // Batches of 256 between stop checks
+                        for (int i = 0; i < 256; i++) {
+                            x ^= x << 13;
+                            x ^= x >>> 7;
+                            x ^= x << 17;
+                            sum += lookup.read((int) ((x >>> 1) % totalSeq));
+                        }
+                        n += 256;
+                    }
+                } catch (InterruptedException | IOException e) {
+                    Thread.currentThread().interrupt();
+                }
+                ops.add(n);
+                blackhole = sum;
+            }, "lookup-" + t);
+            workers[t].start();
+        }
+
+        ready.await();
+        long start = System.nanoTime();
+        go.countDown();
+        Thread.sleep(seconds * 1000L);
+        stop.set(true);
+        for (Thread w : workers) {
+            w.join();
+        }
+        double elapsedS = (System.nanoTime() - start) / 1e9;
+        return ops.sum() / elapsedS / 1e6;
+    }
+
+    /**
+     * The lookup as it was before the lock-free path: one monitor around an
+     * access-ordered LinkedHashMap (every get relinks the entry) plus a
+     * binary search for the chunk index
+     */
+    private static final class LockedLookup implements Lookup {
+
+        private final ChunkMetadata[] chunks;
+        private final Map<Integer, MappedByteBuffer> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+        LockedLookup(ChunkManager chunkManager) throws IOException {
+            chunks = new ChunkMetadata[chunkManager.getChunkCount()];
+            for (int i = 0; i < chunks.length; i++) {
+                chunks[i] = chunkManager.getChunkMetadata(i);
+                cache.put(i, chunkManager.pinChunk(i)); // Pinned until close()
+            }
+        }
+
+        @Override
+        public int read(int seq) {
+            int idx = find(seq);
+            return get(idx).get((seq - chunks[idx].globalSeqStart) * SLICE_SIZE);
+        }
+
+        private synchronized MappedByteBuffer get(int idx) {
+            return cache.get(idx);
+        }
+
+        private int find(int seq) {
+            int left = 0;
+            int right = chunks.length - 1;
+            while (left <= right) {
+                int mid = (left + right) >>> 1;
+                if (seq < chunks[mid].globalSeqStart) {
+                    right = mid - 1;
+                } else if (seq > chunks[mid].globalSeqEnd) {
+                    left = mid + 1;
+                } else {
+                    return mid;
+                }
+            }
+            throw new IllegalArgumentException("Sequence " + seq + " not found");
+        }
+    }
+}
@@ -1,47 +1,87 @@
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.reflect.Method;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
-import java.util.LinkedHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * Manages file chunks with LRU caching for large file transfers
+ * Manages file chunks (mapping windows) with CLOCK (approximate LRU) caching for file transfers
  * 
  * Responsibilities:
  * - Calculate chunk metadata for entire file
- * - Map/unmap chunks on demand with LRU eviction
- * - Binary search for sequence → chunk mapping
+ * - Map/unmap chunks on demand with CLOCK eviction
+ * - Release chunks the peer no longer needs (below the cumulative ACK)
+ * - Read-ahead: map + load() the next chunk(s) in the background
+ * - Unmap evicted/released chunks once no thread has them pinned
+ * - O(1) sequence → chunk mapping (seq / packets per chunk)
  * - Thread-safe chunk access
  * 
- * Thread-safety: synchronized on cache access
+ * Chunks are small windows (turbo.chunk.mb, default 32 MB) holding a whole
+ * number of packets, so sequence seq always starts at byte seq * sliceSize
+ * whatever window size each peer uses. Window boundaries themselves differ
+ * between peers with different turbo.chunk.mb; the fountain mode cuts its
+ * blocks at them, so its receiver maps the sender's grid (packet count from
+ * the SYN) instead of its own.
+ * Resident mapped memory per transfer is bounded by turbo.chunk.windows
+ * windows and reported by getCacheStats().
+ * 
+ * Chunk access is pinned: pinChunk() ... unpinChunk(). An evicted or
+ * released chunk is retired, and the background worker unmaps it (after
+ * force() on the receiver, so its dirty pages can be dropped) when its pin
+ * count reaches zero - unmapping a buffer still in use would crash the JVM.
+ * 
+ * Thread-safety: resident chunks are read from an AtomicReferenceArray
+ * without locking (a hit increments the pin count and sets the chunk's
+ * CLOCK bit if it is clear). Misses, eviction and release are synchronized;
+ * mapping, load(), force() and unmapping run outside the lock, so threads
+ * using cached chunks never wait for them
  */
 public class ChunkManager {
     
     // ========== STATIC CONFIGURATION ==========
     
-    /** Default chunk size (JVM-dependent) */
-    private static final long DEFAULT_CHUNK_SIZE;
+    /** Mapping window size (-Dturbo.chunk.mb, 1-1024), rounded down to whole packets */
+    public static final long WINDOW_BYTES = (long) Math.max(1, Math.min(1024,
+        Integer.getInteger("turbo.chunk.mb", 32))) << 20;
+    
+    /** Maximum chunks to keep in memory (cache size, -Dturbo.chunk.windows) */
+    private static final int CACHE_SIZE = Math.max(2, Integer.getInteger("turbo.chunk.windows", 8));
+    
+    /** Chunks are released this many packets behind the ACK (FEC blocks straddling it) */
+    private static final int RELEASE_LAG_SEQS = 512;
     
-    /** Maximum chunks to keep in memory (LRU cache size) */
-    private static final int CACHE_SIZE = 8; // 8 chunks x 1 GB = 8 GB max
+    /** Mapping slower than this is logged */
+    private static final long SLOW_MAP_MS = 50;
     
-    /** Detect JVM architecture and set chunk size */
+    /** Chunks mapped ahead of the highest one in use (-Dturbo.chunk.prefetch, 0 = off) */
+    public static final int PREFETCH_DEPTH = Math.max(0, Math.min(CACHE_SIZE - 1,
+        Integer.getInteger("turbo.chunk.prefetch", 1)));
+    
+    /** MappedByteBuffer.force(int, int) (Java 13+), or null: whole-window force() */
+    private static final Method FORCE_RANGE = lookupForceRange();
+    
+    /** Log configuration */
     static {
-        // Check if 64-bit JVM
-        String arch = System.getProperty("sun.arch.data.model");
-        boolean is64bit = "64".equals(arch);
-        
-        // 64-bit: 1 GB chunks (safe within 2 GB ByteBuffer limit)
-        // 32-bit: 128 MB chunks (conservative)
-        DEFAULT_CHUNK_SIZE = is64bit ? (1L << 30) : (128L << 20);
-        
-        // Log configuration
-        System.out.println("🖥️  JVM Architecture: " + (is64bit ? "64-bit" : "32-bit"));
-        System.out.println("📦 Chunk Size: " + (DEFAULT_CHUNK_SIZE >> 20) + " MB");
-        System.out.println("💾 LRU Cache Size: " + CACHE_SIZE + " chunks (" + 
-            (CACHE_SIZE * (DEFAULT_CHUNK_SIZE >> 20)) + " MB max)");
+        System.out.println("📦 Mapping window: " + (WINDOW_BYTES >> 20) + " MB");
+        System.out.println("💾 LRU Cache Size: " + CACHE_SIZE + " windows (" + 
+            (CACHE_SIZE * (WINDOW_BYTES >> 20)) + " MB max mapped per transfer)");
     }
     
     // ========== INSTANCE FIELDS ==========
@@ -55,6 +95,12 @@ public class ChunkManager {
     /** Packet payload size (typically 1450) */
     private final int sliceSize;
     
+    /** Bytes per chunk (WINDOW_BYTES rounded down to whole packets) */
+    private final long chunkSize;
+    
+    /** Packets per full chunk */
+    private final int seqPerChunk;
+    
     /** Array of chunk metadata (calculated once) */
     private final ChunkMetadata[] chunks;
     
@@ -64,8 +110,60 @@ public class ChunkManager {
     /** Map mode: READ_ONLY for sender, READ_WRITE for receiver */
     private final FileChannel.MapMode mapMode;
     
-    /** LRU cache of mapped chunks (thread-safe via synchronization) */
-    private final Map<Integer, MappedByteBuffer> chunkCache;
+    /** Mapped chunk by index, null if not resident - the lock-free read path */
+    private final AtomicReferenceArray<MappedByteBuffer> resident;
+    
+    /** CLOCK reference bit per chunk: set on hit, cleared by the eviction sweep */
+    private final AtomicIntegerArray referenced;
+    
+    /** Threads (or long-lived holders) using each chunk's buffer */
+    private final AtomicIntegerArray pins;
+    
+    /** Retired buffers per chunk index still waiting to be unmapped */
+    private final AtomicIntegerArray retiredAt;
+    
+    /** Evicted/released buffers not unmapped yet (guarded by this) */
+    private final List<Retired> retired = new ArrayList<>();
+    private boolean reclaimScheduled = false;
+    private boolean closed = false;
+    
+    /** Held while retired buffers are forced + unmapped (force() waits on it) */
+    private final Object reclaimLock = new Object();
+    
+    /** Receiver: force a window before unmapping it (see setForceOnUnmap) */
+    private volatile boolean forceOnUnmap = true;
+    
+    /** Resident chunk indices (-1 = free), swept by the CLOCK hand (guarded by this) */
+    private final int[] slots = new int[CACHE_SIZE];
+    private int hand = 0;
+    private int residentCount = 0;
+    
+    /** Chunks being mapped (demand or prefetch) - later callers wait on the future */
+    private final Map<Integer, CompletableFuture<MappedByteBuffer>> loading = new HashMap<>();
+    
+    /** Prefetch + unmap worker (one thread, exits when idle); created on first use */
+    private ThreadPoolExecutor worker;
+    
+    /** Highest chunk index already in use or scheduled (written under this) */
+    private volatile int prefetchedUpTo = -1;
+    
+    /** Chunks below this index were released (ACK passed them) */
+    private volatile int releasedBelow = 0;
+    
+    // Residency statistics (guarded by this)
+    private long mappedBytes = 0;
+    private long peakMappedBytes = 0;
+    private long evictions = 0;
+    private long releases = 0;
+    private long unmapped = 0;
+    
+    // Prefetch statistics
+    private final LongAdder prefetchIssued = new LongAdder();
+    private final LongAdder prefetchWaits = new LongAdder();
+    private final LongAdder prefetchWaitNs = new LongAdder();
+    private final AtomicLong prefetchMaxWaitNs = new AtomicLong();
+    private final LongAdder demandMaps = new LongAdder();
+    private final LongAdder demandMapNs = new LongAdder();
     
     // ========== CONSTRUCTOR ==========
     
@@ -79,6 +177,8 @@ public class ChunkManager {
     public ChunkManager(Path filePath, int sliceSize) throws IOException {
         this.filePath = filePath;
         this.sliceSize = sliceSize;
+        this.seqPerChunk = (int) Math.max(1, WINDOW_BYTES / sliceSize);
+        this.chunkSize = (long) seqPerChunk * sliceSize;
         this.mapMode = FileChannel.MapMode.READ_ONLY; // Sender mode
         
         // Open file channel (will stay open for entire transfer)
@@ -88,21 +188,12 @@ public class ChunkManager {
         // Calculate all chunk metadata upfront
         this.chunks = calculateChunks();
         
-        // Create LRU cache with access-order
-        this.chunkCache = new LinkedHashMap<Integer, MappedByteBuffer>(
-            CACHE_SIZE + 1,  // Initial capacity
-            0.75f,           // Load factor
-            true             // Access-order (LRU)
-        ) {
-            @Override
-            protected boolean removeEldestEntry(Map.Entry<Integer, MappedByteBuffer> eldest) {
-                boolean shouldRemove = size() > CACHE_SIZE;
-                if (shouldRemove) {
-                    System.out.println("🗑️  LRU evicted chunk " + eldest.getKey());
-                }
-                return shouldRemove;
-            }
-        };
+        // Resident table (one slot per chunk) + CLOCK state
+        this.resident = new AtomicReferenceArray<>(chunks.length);
+        this.referenced = new AtomicIntegerArray(chunks.length);
+        this.pins = new AtomicIntegerArray(chunks.length);
+        this.retiredAt = new AtomicIntegerArray(chunks.length);
+        Arrays.fill(slots, -1);
         
         // Log initialization
         System.out.println("📦 ChunkManager initialized");
@@ -123,30 +214,35 @@ public class ChunkManager {
      * @throws IOException if chunks cannot be calculated
      */
     public ChunkManager(FileChannel fileChannel, long fileSize, int sliceSize) throws IOException {
+        this(fileChannel, fileSize, sliceSize, 0);
+    }
+    
+    /**
+     * Create chunk manager on the peer's window grid (receiver - WRITE mode)
+     * 
+     * @param windowSeqs Packets per window, e.g. the sender's (0: own turbo.chunk.mb;
+     *                   clamped to the 1-1024 MB window range)
+     */
+    public ChunkManager(FileChannel fileChannel, long fileSize, int sliceSize, int windowSeqs) throws IOException {
         this.filePath = null;  // Not needed when FileChannel provided
         this.fileChannel = fileChannel;
         this.fileSize = fileSize;
         this.sliceSize = sliceSize;
+        this.seqPerChunk = windowSeqs > 0
+            ? (int) Math.min(windowSeqs, Math.max(1, (1024L << 20) / sliceSize))
+            : (int) Math.max(1, WINDOW_BYTES / sliceSize);
+        this.chunkSize = (long) seqPerChunk * sliceSize;
         this.mapMode = FileChannel.MapMode.READ_WRITE; // Receiver mode
         
         // Calculate all chunk metadata upfront
         this.chunks = calculateChunks();
         
-        // Create LRU cache with access-order
-        this.chunkCache = new LinkedHashMap<Integer, MappedByteBuffer>(
-            CACHE_SIZE + 1,  // Initial capacity
-            0.75f,           // Load factor
-            true             // Access-order (LRU)
-        ) {
-            @Override
-            protected boolean removeEldestEntry(Map.Entry<Integer, MappedByteBuffer> eldest) {
-                boolean shouldRemove = size() > CACHE_SIZE;
-                if (shouldRemove) {
-                    System.out.println("🗑️  LRU evicted chunk " + eldest.getKey());
-                }
-                return shouldRemove;
-            }
-        };
+        // Resident table (one slot per chunk) + CLOCK state
+        this.resident = new AtomicReferenceArray<>(chunks.length);
+        this.referenced = new AtomicIntegerArray(chunks.length);
+        this.pins = new AtomicIntegerArray(chunks.length);
+        this.retiredAt = new AtomicIntegerArray(chunks.length);
+        Arrays.fill(slots, -1);
         
         // Log initialization
         System.out.println("📦 ChunkManager initialized (using provided FileChannel)");
@@ -161,31 +257,31 @@ public class ChunkManager {
     /**
      * Calculate chunk metadata for entire file
      * 
-     * Divides file into fixed-size chunks (last may be smaller)
-     * and calculates sequence number ranges for each chunk.
+     * Divides file into fixed-size chunks of whole packets (last may be
+     * smaller) and calculates sequence number ranges for each chunk.
      * 
      * @return Array of chunk metadata, ordered by chunk index
      */
     private ChunkMetadata[] calculateChunks() {
         // How many chunks needed?
-        int numChunks = (int)((fileSize + DEFAULT_CHUNK_SIZE - 1) / DEFAULT_CHUNK_SIZE);
+        int numChunks = (int)((fileSize + chunkSize - 1) / chunkSize);
         ChunkMetadata[] result = new ChunkMetadata[numChunks];
         
         int globalSeqNo = 0; // Running sequence counter
         
         for (int i = 0; i < numChunks; i++) {
             // Calculate chunk boundaries
-            long chunkOffset = (long)i * DEFAULT_CHUNK_SIZE;
-            long chunkSize = Math.min(DEFAULT_CHUNK_SIZE, fileSize - chunkOffset);
+            long chunkOffset = (long)i * chunkSize;
+            long size = Math.min(chunkSize, fileSize - chunkOffset);
             
             // How many packets in this chunk?
-            int packetCount = (int)((chunkSize + sliceSize - 1) / sliceSize);
+            int packetCount = (int)((size + sliceSize - 1) / sliceSize);
             
             // Create metadata
             result[i] = new ChunkMetadata(
                 i,                              // chunkIndex
                 chunkOffset,                    // fileOffset
-                chunkSize,                      // chunkSize
+                size,                           // chunkSize
                 globalSeqNo,                    // globalSeqStart
                 globalSeqNo + packetCount - 1,  // globalSeqEnd (inclusive)
                 packetCount                     // packetCount
@@ -194,110 +290,474 @@ public class ChunkManager {
             // Advance global sequence counter
             globalSeqNo += packetCount;
             
-            // Log each chunk
-            System.out.println("   " + result[i]);
+            // Log each chunk (small files; large ones get a summary below)
+            if (numChunks <= CACHE_SIZE) {
+                System.out.println("   " + result[i]);
+            }
         }
         
+        if (numChunks > CACHE_SIZE) {
+            System.out.println("   " + numChunks + " chunks of " + 
+                String.format("%.1f", chunkSize / (1024.0 * 1024.0)) + " MB (" + seqPerChunk + " packets each)");
+        }
         System.out.println("   Total packets: " + String.format("%,d", globalSeqNo));
         return result;
     }
     
     /**
-     * Get chunk buffer (from cache or map new)
+     * Get chunk buffer (from cache or map new) and pin it
      * 
-     * Thread-safe: synchronized to protect LRU cache access.
+     * Thread-safe: hits take no lock; mapping is not done under the lock.
      * 
-     * Cache hit: Returns existing MappedByteBuffer (fast)
-     * Cache miss: Maps new chunk, adds to cache, evicts oldest if needed
+     * Cache hit: Returns existing MappedByteBuffer (one volatile read + pin)
+     * Being prefetched: waits for the prefetch (wait time is recorded)
+     * Cache miss: Maps new chunk on this thread, adds to cache, evicts a cold one if needed
+     * 
+     * Every access schedules read-ahead of the next PREFETCH_DEPTH chunks.
+     * The buffer (and duplicates of it) stays valid until the matching
+     * unpinChunk(chunkIndex); it must not be touched after that.
      * 
      * @param chunkIndex Zero-based chunk index
      * @return MappedByteBuffer for this chunk
-     * @throws IOException if mapping fails
+     * @throws IOException if mapping fails or the manager is closed
      * @throws IllegalArgumentException if chunkIndex invalid
      */
-    public synchronized MappedByteBuffer getChunk(int chunkIndex) throws IOException {
+    public MappedByteBuffer pinChunk(int chunkIndex) throws IOException {
         // Validation
         if (chunkIndex < 0 || chunkIndex >= chunks.length) {
-            throw new IllegalArgumentException("Invalid chunk index: " + chunkIndex + 
+            throw new IllegalArgumentException("Invalid chunk index: " + chunkIndex +
                 " (valid range: 0-" + (chunks.length - 1) + ")");
         }
-        
-        // Cache hit?
-        if (chunkCache.containsKey(chunkIndex)) {
-            // LinkedHashMap with access-order will mark this as recently used
-            return chunkCache.get(chunkIndex);
+    
+        int ahead = Math.min(chunks.length - 1, chunkIndex + PREFETCH_DEPTH);
+        while (true) {
+            // Fast path: resident and read-ahead already scheduled
+            MappedByteBuffer cached = resident.get(chunkIndex);
+            if (cached != null && ahead <= prefetchedUpTo) {
+                pins.incrementAndGet(chunkIndex);
+                if (resident.get(chunkIndex) == cached) { // Not retired before the pin was visible
+                    if (referenced.get(chunkIndex) == 0) {
+                        referenced.lazySet(chunkIndex, 1); // Write only on change - no shared cache line ping-pong
+                    }
+                    return cached;
+                }
+                unpinChunk(chunkIndex);
+            }
+    
+            CompletableFuture<MappedByteBuffer> pending;
+            boolean demand = false;
+            synchronized (this) {
+                if (closed) {
+                    throw new IOException("ChunkManager closed");
+                }
+                if (ahead > prefetchedUpTo) {
+                    schedulePrefetch(chunkIndex);
+                }
+                cached = resident.get(chunkIndex);
+                if (cached != null) {
+                    referenced.set(chunkIndex, 1);
+                    pins.incrementAndGet(chunkIndex);
+                    return cached;
+                }
+                pending = loading.get(chunkIndex);
+                if (pending == null) {
+                    pending = new CompletableFuture<>();
+                    loading.put(chunkIndex, pending);
+                    demand = true;
+                }
+            }
+    
+            // Cache miss - map new chunk on this thread (published pinned)
+            if (demand) {
+                long start = System.nanoTime();
+                MappedByteBuffer buffer = mapChunk(chunkIndex, pending, "Mapped", true);
+                demandMaps.increment();
+                demandMapNs.add(System.nanoTime() - start);
+                return buffer;
+            }
+    
+            // Mapped by the prefetcher or another thread - then pin it on the next pass
+            awaitMapped(chunkIndex, pending);
         }
-        
-        // Cache miss - map new chunk
+    }
+    
+    /**
+     * Release a pin taken by pinChunk(). The last unpin of a retired chunk
+     * schedules its unmapping.
+     * 
+     * @param chunkIndex Chunk index passed to pinChunk()
+     */
+    public void unpinChunk(int chunkIndex) {
+        if (pins.decrementAndGet(chunkIndex) == 0 && retiredAt.get(chunkIndex) > 0) {
+            boolean inline;
+            synchronized (this) {
+                inline = closed; // No worker after close - the last holder unmaps
+                if (!inline) scheduleReclaim();
+            }
+            if (inline) reclaim();
+        }
+    }
+    
+    /**
+     * Wait for a chunk being mapped by another thread (wait time is recorded)
+     */
+    private void awaitMapped(int chunkIndex, CompletableFuture<MappedByteBuffer> pending) throws IOException {
+        long waitStart = System.nanoTime();
+        boolean waited = !pending.isDone();
+        try {
+            pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for chunk " + chunkIndex);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            throw new IOException("Chunk " + chunkIndex + " mapping failed: " + cause, cause);
+        } finally {
+            if (waited) {
+                long waitNs = System.nanoTime() - waitStart;
+                prefetchWaits.increment();
+                prefetchWaitNs.add(waitNs);
+                prefetchMaxWaitNs.accumulateAndGet(waitNs, Math::max);
+                System.out.println("⏳ Waited " + String.format("%.1f", waitNs / 1_000_000.0) +
+                    " ms for chunk " + chunkIndex + " (being mapped)");
+            }
+        }
+    }
+    
+    /**
+     * Map + load() one chunk, publish it in the cache and complete its future
+     * (caller registered the future in loading)
+     * 
+     * @param pin true: published with one pin for the caller
+     */
+    private MappedByteBuffer mapChunk(int chunkIndex, CompletableFuture<MappedByteBuffer> pending, String what, boolean pin) throws IOException {
         ChunkMetadata meta = chunks[chunkIndex];
-        
-        long mapStart = System.nanoTime();
-        MappedByteBuffer buffer = fileChannel.map(
-            mapMode,  // READ_ONLY for sender, READ_WRITE for receiver
-            meta.fileOffset,
-            meta.chunkSize
-        );
-        
-        // Pre-fault pages into memory (force OS to load)
-        buffer.load();
-        
-        long mapTime = (System.nanoTime() - mapStart) / 1_000_000; // Convert to ms
-        
-        System.out.println("📦 Mapped chunk " + chunkIndex + " (" + 
-            String.format("%.1f", meta.chunkSize / (1024.0 * 1024.0)) + " MB) in " + 
-            mapTime + " ms");
-        
-        // Add to cache (LRU will evict oldest if size > CACHE_SIZE)
-        chunkCache.put(chunkIndex, buffer);
-        
+        MappedByteBuffer buffer;
+        try {
+            long mapStart = System.nanoTime();
+            buffer = fileChannel.map(
+                mapMode,  // READ_ONLY for sender, READ_WRITE for receiver
+                meta.fileOffset,
+                meta.chunkSize
+            );
+    
+            // Pre-fault pages into memory (force OS to load)
+            buffer.load();
+    
+            long mapTime = (System.nanoTime() - mapStart) / 1_000_000; // Convert to ms
+    
+            if (mapTime >= SLOW_MAP_MS) {
+                System.out.println("📦 " + what + " chunk " + chunkIndex + " (" +
+                    String.format("%.1f", meta.chunkSize / (1024.0 * 1024.0)) + " MB) in " +
+                    mapTime + " ms");
+            }
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                loading.remove(chunkIndex);
+            }
+            pending.completeExceptionally(e);
+            throw e;
+        }
+    
+        boolean lateClose;
+        synchronized (this) {
+            lateClose = closed;
+            if (!lateClose) {
+                // Add to cache (CLOCK evicts a cold chunk if all slots are taken)
+                if (resident.get(chunkIndex) == null) {
+                    int slot = freeSlot();
+                    slots[slot] = chunkIndex;
+                    residentCount++;
+                    mappedBytes += meta.chunkSize;
+                    peakMappedBytes = Math.max(peakMappedBytes, mappedBytes);
+                }
+                referenced.set(chunkIndex, 1);
+                if (pin) pins.incrementAndGet(chunkIndex);
+                resident.set(chunkIndex, buffer);
+                loading.remove(chunkIndex);
+            }
+        }
+        if (lateClose) {
+            // close() ran while mapping - never published, nobody else has it
+            Unmapper.unmap(buffer);
+            IOException closedEx = new IOException("ChunkManager closed");
+            pending.completeExceptionally(closedEx);
+            throw closedEx;
+        }
+        pending.complete(buffer);
         return buffer;
     }
     
+    /**
+     * Free slot for a new chunk, evicting one if the cache is full (holds this)
+     * 
+     * CLOCK sweep: a chunk used since the hand last passed, or pinned right
+     * now, gets a second chance (bit cleared); the first one that is
+     * neither is evicted. After two full sweeps a pinned chunk is evicted
+     * anyway - it is retired and unmapped on its last unpin.
+     */
+    private int freeSlot() {
+        for (int i = 0; i < CACHE_SIZE; i++) {
+            if (slots[i] < 0) return i;
+        }
+        for (int scanned = 0; ; scanned++) {
+            int slot = hand;
+            hand = (hand + 1) % CACHE_SIZE;
+            int idx = slots[slot];
+            if (scanned < 2 * CACHE_SIZE && (referenced.get(idx) != 0 || pins.get(idx) > 0)) {
+                referenced.set(idx, 0);
+                continue;
+            }
+            retire(slot);
+            evictions++;
+            return slot;
+        }
+    }
+    
+    /**
+     * Drop the chunk in slot from the resident table and queue its mapping
+     * for unmapping (holds this)
+     */
+    private void retire(int slot) {
+        int idx = slots[slot];
+        MappedByteBuffer buffer = resident.get(idx);
+        resident.set(idx, null); // New pins fail their re-check from here on
+        referenced.set(idx, 0);
+        slots[slot] = -1;
+        residentCount--;
+        mappedBytes -= chunks[idx].chunkSize;
+        retired.add(new Retired(idx, buffer));
+        retiredAt.incrementAndGet(idx);
+        scheduleReclaim();
+    }
+    
+    /**
+     * Run reclaim() on the worker unless one is queued (holds this)
+     */
+    private void scheduleReclaim() {
+        if (reclaimScheduled || closed || retired.isEmpty()) return;
+        reclaimScheduled = true;
+        worker().execute(this::reclaim);
+    }
+    
+    /**
+     * Unmap retired buffers whose chunk has no pins left; receiver chunks are
+     * forced to disk first so their pages are clean and can be dropped
+     */
+    private void reclaim() {
+        List<Retired> ready = new ArrayList<>();
+        int count = 0;
+        synchronized (reclaimLock) {
+            synchronized (this) {
+                reclaimScheduled = false;
+                for (Iterator<Retired> it = retired.iterator(); it.hasNext(); ) {
+                    Retired r = it.next();
+                    if (pins.get(r.chunkIndex) == 0) {
+                        it.remove();
+                        retiredAt.decrementAndGet(r.chunkIndex);
+                        ready.add(r);
+                    }
+                }
+            }
+            for (Retired r : ready) {
+                if (mapMode == FileChannel.MapMode.READ_WRITE && forceOnUnmap) {
+                    try {
+                        r.buffer.force();
+                    } catch (RuntimeException e) {
+                        System.err.println("Chunk " + r.chunkIndex + " force failed: " + e);
+                    }
+                }
+                if (Unmapper.unmap(r.buffer)) count++;
+            }
+        }
+        if (count > 0) {
+            synchronized (this) {
+                unmapped += count;
+            }
+        }
+    }
+    
+    /**
+     * Whether windows are forced before they are unmapped (receiver, default
+     * true). Keeps dirty pages from piling up in the page cache behind the
+     * transfer; off only when nothing is to be forced at all
+     * (DurabilityEngine policy none).
+     */
+    public void setForceOnUnmap(boolean force) {
+        forceOnUnmap = force;
+    }
+    
+    /**
+     * Force the file bytes [from, to) to disk (receiver)
+     * 
+     * Only windows still mapped (resident or retired) are forced - they are
+     * pinned meanwhile, nothing is mapped for it. Windows already unmapped
+     * were forced before unmapping; a reclaim in
+     * progress is waited for.
+     * 
+     * @param from First byte
+     * @param to   End byte (exclusive)
+     */
+    public void force(long from, long to) throws IOException {
+        if (from >= to || chunks.length == 0) return;
+        int first = (int) (from / chunkSize);
+        int last = (int) Math.min(chunks.length - 1, (to - 1) / chunkSize);
+        List<Retired> mapped = new ArrayList<>();
+        synchronized (this) {
+            if (closed) throw new IOException("ChunkManager closed");
+            for (int i = first; i <= last; i++) {
+                MappedByteBuffer b = resident.get(i);
+                if (b != null) {
+                    pins.incrementAndGet(i);
+                    mapped.add(new Retired(i, b));
+                }
+            }
+            for (Retired r : retired) {
+                if (r.chunkIndex >= first && r.chunkIndex <= last) {
+                    pins.incrementAndGet(r.chunkIndex);
+                    mapped.add(r);
+                }
+            }
+        }
+        try {
+            for (Retired r : mapped) {
+                ChunkMetadata meta = chunks[r.chunkIndex];
+                long start = Math.max(from, meta.fileOffset) - meta.fileOffset;
+                long end = Math.min(to, meta.fileOffset + meta.chunkSize) - meta.fileOffset;
+                forceRange(r.buffer, (int) start, (int) (end - start));
+            }
+        } finally {
+            for (Retired r : mapped) {
+                unpinChunk(r.chunkIndex);
+            }
+        }
+        synchronized (reclaimLock) {
+            // A window removed from retired just before we looked is forced under this lock
+        }
+    }
+    
+    private static void forceRange(MappedByteBuffer buffer, int index, int length) {
+        if (FORCE_RANGE != null) {
+            try {
+                FORCE_RANGE.invoke(buffer, index, length);
+                return;
+            } catch (ReflectiveOperationException e) {
+                // Fall through to the whole window
+            }
+        }
+        buffer.force();
+    }
+    
+    private static Method lookupForceRange() {
+        try {
+            return MappedByteBuffer.class.getMethod("force", int.class, int.class);
+        } catch (NoSuchMethodException e) {
+            return null; // Before Java 13
+        }
+    }
+    
+    /**
+     * Background worker for prefetch and unmapping (holds this)
+     */
+    private ThreadPoolExecutor worker() {
+        if (worker == null) {
+            // No idle thread per transfer: the worker exits 1s after its last task
+            worker = new ThreadPoolExecutor(0, 1, 1, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), SessionThreads.factory("chunk-worker"));
+        }
+        return worker;
+    }
+    
+    /**
+     * Queue background mapping of the chunks after chunkIndex (holds this)
+     */
+    private void schedulePrefetch(int chunkIndex) {
+        int last = Math.min(chunks.length - 1, chunkIndex + PREFETCH_DEPTH);
+        for (int i = Math.max(chunkIndex + 1, prefetchedUpTo + 1); i <= last; i++) {
+            if (resident.get(i) != null || loading.containsKey(i)) continue;
+            CompletableFuture<MappedByteBuffer> pending = new CompletableFuture<>();
+            loading.put(i, pending);
+            final int idx = i;
+            prefetchIssued.increment();
+            worker().execute(() -> {
+                try {
+                    mapChunk(idx, pending, "Prefetched", false);
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("Chunk " + idx + " prefetch failed: " + e);
+                }
+            });
+        }
+        prefetchedUpTo = Math.max(prefetchedUpTo, Math.max(chunkIndex, last));
+    }
+    
+    /**
+     * Release chunks the peer no longer needs: everything well below seq
+     * (sender: receiver's cumulative ACK, receiver: own cumulative ACK).
+     * Released chunks are unmapped once unpinned; one is mapped again only
+     * if it is asked for again.
+     * 
+     * @param seq First sequence still needed
+     */
+    public void releaseBelow(int seq) {
+        int below = Math.max(0, seq - RELEASE_LAG_SEQS) / seqPerChunk;
+        if (below <= releasedBelow) return; // Fast path: nothing new to release
+        synchronized (this) {
+            if (closed || below <= releasedBelow) return;
+            for (int slot = 0; slot < CACHE_SIZE; slot++) {
+                if (slots[slot] >= 0 && slots[slot] < below) {
+                    retire(slot);
+                    releases++;
+                }
+            }
+            releasedBelow = below;
+        }
+    }
+    
     /**
      * Find which chunk contains given global sequence number
      * 
-     * Uses binary search: O(log n) complexity
+     * Every chunk but the last holds exactly seqPerChunk packets: O(1)
      * 
      * @param globalSeq Global sequence number to search
      * @return Chunk index containing this sequence
      * @throws IllegalArgumentException if sequence not found in any chunk
      */
     public int findChunkForSequence(int globalSeq) {
-        int left = 0;
-        int right = chunks.length - 1;
-        
-        while (left <= right) {
-            int mid = left + (right - left) / 2;
-            ChunkMetadata chunk = chunks[mid];
-            
-            // Found it?
-            if (globalSeq >= chunk.globalSeqStart && globalSeq <= chunk.globalSeqEnd) {
-                return mid;
-            }
-            
-            // Search left half?
-            if (globalSeq < chunk.globalSeqStart) {
-                right = mid - 1;
-            } 
-            // Search right half
-            else {
-                left = mid + 1;
-            }
+        int idx = globalSeq / seqPerChunk;
+        if (globalSeq < 0 || idx >= chunks.length || globalSeq > chunks[idx].globalSeqEnd) {
+            throw new IllegalArgumentException("Sequence " + globalSeq + 
+                " not found in any chunk (valid range: 0-" + 
+                (getTotalSequenceCount() - 1) + ")");
         }
-        
-        // Not found - throw exception
-        throw new IllegalArgumentException("Sequence " + globalSeq + 
-            " not found in any chunk (valid range: 0-" + 
-            chunks[chunks.length - 1].globalSeqEnd + ")");
+        return idx;
     }
     
     /**
      * Close file channel and release resources
      * 
+     * Resident chunks are unmapped (receiver: forced to disk first); a chunk
+     * still pinned is unmapped when its last holder unpins it.
+     * 
      * @throws IOException if close fails
      */
     public void close() throws IOException {
-        chunkCache.clear();
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            if (worker != null) {
+                worker.shutdownNow();
+            }
+            for (CompletableFuture<MappedByteBuffer> pending : loading.values()) {
+                pending.completeExceptionally(new IOException("ChunkManager closed"));
+            }
+            loading.clear();
+            for (int slot = 0; slot < CACHE_SIZE; slot++) {
+                if (slots[slot] >= 0) retire(slot);
+            }
+        }
+        // Unpinned chunks now (forced first on the receiver); still pinned ones on their last unpin
+        reclaim();
         fileChannel.close();
         System.out.println("📦 ChunkManager closed");
     }
@@ -341,8 +801,23 @@ public class ChunkManager {
      * 
      * @return Human-readable cache stats
      */
-    public String getCacheStats() {
-        return String.format("Cache: %d/%d chunks loaded", chunkCache.size(), CACHE_SIZE);
+    public synchronized String getCacheStats() {
+        return String.format("Mapped windows: %d/%d (%.1f MB, peak %.1f MB, bound %.1f MB), released=%d, evicted=%d, unmapped=%d (%s), pending unmap=%d",
+            residentCount, CACHE_SIZE, mappedBytes / (1024.0 * 1024.0), peakMappedBytes / (1024.0 * 1024.0),
+            maxMappedBytes(fileSize) / (1024.0 * 1024.0), releases, evictions, unmapped, Unmapper.describe(), retired.size());
+    }
+    
+    /**
+     * Read-ahead effectiveness: how often and how long callers waited for a
+     * chunk still being mapped, versus chunks mapped on demand
+     * 
+     * @return Human-readable prefetch stats
+     */
+    public String getPrefetchStats() {
+        long waits = prefetchWaits.sum();
+        return String.format("Chunk prefetch (depth %d): issued=%d, waits=%d (total %.1f ms, max %.1f ms), demand maps=%d (%.1f ms)",
+            PREFETCH_DEPTH, prefetchIssued.sum(), waits, prefetchWaitNs.sum() / 1_000_000.0,
+            prefetchMaxWaitNs.get() / 1_000_000.0, demandMaps.sum(), demandMapNs.sum() / 1_000_000.0);
     }
     
     /**
@@ -353,4 +828,43 @@ public class ChunkManager {
     public long getFileSize() {
         return fileSize;
     }
+    
+    /**
+     * Upper bound of mapped bytes for a file of this size (full LRU cache)
+     * 
+     * @param fileSize File size in bytes
+     * @return Bytes mapped at most at any one time
+     */
+    public static long maxMappedBytes(long fileSize) {
+        return Math.min(fileSize, CACHE_SIZE * WINDOW_BYTES);
+    }
+    
+    /**
+     * Bytes per chunk (all but the last)
+     * 
+     * @return Chunk size in bytes
+     */
+    public long getChunkSize() {
+        return chunkSize;
+    }
+    
+    /**
+     * Packets per chunk (all but the last) - the window grid
+     */
+    public int getSequencesPerChunk() {
+        return seqPerChunk;
+    }
+    
+    /**
+     * Evicted or released mapping waiting for its chunk's pins to drain
+     */
+    private static final class Retired {
+        final int chunkIndex;
+        final MappedByteBuffer buffer;
+        
+        Retired(int chunkIndex, MappedByteBuffer buffer) {
+            this.chunkIndex = chunkIndex;
+            this.buffer = buffer;
+        }
+    }
 }
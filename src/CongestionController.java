@@ -0,0 +1,116 @@
+import java.util.Locale;
+
+/**
+ * Sender-side congestion control strategy
+ *
+ * Feedback is NACK-driven: the listener reports received/lost counts per
+ * NACK frame plus RTT samples, the send path asks for pacing before each
+ * packet and reports the packet after the write.
+ *
+ * Implementations (selected with -Dturbo.cc=NAME or the sender CLI):
+ * - hybrid : original AIMD window + delivery-rate estimate (default)
+ * - cubic  : CUBIC window function (RFC 8312) with fast convergence
+ * - bbr    : BBR-style model, pacing = gain * max bandwidth, cwnd = 2 * BDP
+ */
+public interface CongestionController {
+
+    /** Algorithm used when none is given on the command line */
+    String DEFAULT_ALGORITHM = System.getProperty("turbo.cc", "hybrid");
+
+    /**
+     * Create controller by name (hybrid, cubic, bbr)
+     *
+     * @throws IllegalArgumentException for an unknown name
+     */
+    static CongestionController create(String name) {
+        String n = name == null ? DEFAULT_ALGORITHM : name.trim().toLowerCase(Locale.ROOT);
+        switch (n) {
+            case "hybrid": return new HybridCongestionController();
+            case "cubic":  return new CubicCongestionController();
+            case "bbr":    return new BbrCongestionController();
+            default:
+                throw new IllegalArgumentException("Unknown congestion control: " + name +
+                    " (hybrid, cubic, bbr)");
+        }
+    }
+
+    /** Short algorithm name for logs */
+    String getName();
+
+    // Send path
+
+    /** Block until the window has room and the pacer releases packetSize bytes */
+    void rateLimitSend(int packetSize);
+
+    /** tryRateLimitSend: the congestion window is full */
+    long WINDOW_FULL = -1;
+
+    /**
+     * Event-loop variant of rateLimitSend: never waits for the window or the pacer
+     *
+     * @return 0 if the pacer released packetSize bytes; otherwise nothing is
+     *         reserved and the result is WINDOW_FULL or the pacing delay in ns
+     *         (re-queue the send with Reactor.Loop.schedule)
+     */
+    long tryRateLimitSend(int packetSize);
+
+    void onPacketSent(int packetSize);
+
+    boolean canSendPacket(int packetSize);
+
+    default void rateLimitSend() { rateLimitSend(EnhancedFileTransferSender.SLICE_SIZE); }
+
+    default void onPacketSent() { onPacketSent(EnhancedFileTransferSender.SLICE_SIZE); }
+
+    default boolean canSendPacket() { return canSendPacket(EnhancedFileTransferSender.SLICE_SIZE); }
+
+    /**
+     * Attach per-transfer in-flight accounting; the congestion window is
+     * enforced on the send path once a tracker is attached
+     */
+    void setInFlightTracker(InFlightTracker tracker);
+
+    /** Bytes sent and not yet acknowledged or declared lost */
+    long getBytesInFlight();
+
+    // Feedback (NACK listener thread)
+
+    /**
+     * One NACK frame: packets newly acknowledged and newly declared lost
+     */
+    void onNackFrameReceived(int receivedPacketCount, int lostPacketCount);
+
+    void onPacketLoss(int lostPacketCount, int lostBytes);
+
+    default void onPacketLoss(int lostPacketCount) {
+        onPacketLoss(lostPacketCount, lostPacketCount * EnhancedFileTransferSender.SLICE_SIZE);
+    }
+
+    void updateRtt(long rttNs);
+
+    // Network profile
+
+    void enableLocalNetworkMode();
+
+    void enableWanMode();
+
+    void reset();
+
+    // Getters
+
+    long getCongestionWindow();
+
+    long getSmoothedRtt();
+
+    long getRttVar();
+
+    /** Mean inter-packet gap at the current pacing rate */
+    long getPacingInterval();
+
+    String getPacingStats();
+
+    /** Fraction of packets reported lost (0..1) since the last reset */
+    double getLossRate();
+
+    String getStats();
+}
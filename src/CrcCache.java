@@ -0,0 +1,119 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Per-sequence CRC32C cache for retransmissions
+ *
+ * The CRC computed on first send is stored in a primitive int[] page per
+ * chunk (indexed by local sequence), so a retransmission only has to fill
+ * the header and copy the payload - no re-hashing of the same 1450 bytes
+ * every time a sequence is NACKed.
+ *
+ * Memory: 4 bytes (+1 presence bit) per packet of a chunk, allocated lazily
+ * on first send and released once the cumulative ACK has passed the chunk.
+ *
+ * Thread-safety: put() from any number of sending threads, lookup() from any
+ * thread, releaseBelow() from a single thread (NACK listener).
+ */
+public final class CrcCache {
+
+    /** Returned by lookup() when no CRC is cached */
+    public static final long MISS = -1L;
+
+    private static final class Page {
+        final int[] crcs;
+        final AtomicBitmap present;
+
+        Page(int packetCount) {
+            this.crcs = new int[packetCount];
+            this.present = new AtomicBitmap(packetCount);
+        }
+    }
+
+    /** Marker for pages whose chunk is fully acknowledged */
+    private static final Page RELEASED = new Page(0);
+
+    private final ChunkManager chunkManager;
+    private final AtomicReferenceArray<Page> pages;
+
+    /** First chunk index not yet released */
+    private int releasedUpTo = 0;
+
+    // Statistics
+    private final AtomicLong residentBytes = new AtomicLong(0);
+    private volatile long hits = 0;
+    private volatile long misses = 0;
+
+    public CrcCache(ChunkManager chunkManager) {
+        this.chunkManager = chunkManager;
+        this.pages = new AtomicReferenceArray<>(chunkManager.getChunkCount());
+    }
+
+    /**
+     * Store CRC computed on first send
+     */
+    public void put(int globalSeq, int crc32c) {
+        int chunkIdx = chunkManager.findChunkForSequence(globalSeq);
+        Page page = pages.get(chunkIdx);
+        if (page == null) {
+            ChunkMetadata meta = chunkManager.getChunkMetadata(chunkIdx);
+            Page fresh = new Page(meta.packetCount);
+            if (pages.compareAndSet(chunkIdx, null, fresh)) {
+                residentBytes.addAndGet(4L * meta.packetCount);
+                page = fresh;
+            } else {
+                page = pages.get(chunkIdx);
+            }
+        }
+        if (page == RELEASED) return;
+
+        int local = globalSeq - chunkManager.getChunkMetadata(chunkIdx).globalSeqStart;
+        page.crcs[local] = crc32c;
+        page.present.set(local); // publishes the crc write
+    }
+
+    /**
+     * Cached CRC for a sequence
+     *
+     * @return CRC as unsigned int value, or MISS
+     */
+    public long lookup(int globalSeq) {
+        int chunkIdx = chunkManager.findChunkForSequence(globalSeq);
+        Page page = pages.get(chunkIdx);
+        if (page != null && page != RELEASED) {
+            int local = globalSeq - chunkManager.getChunkMetadata(chunkIdx).globalSeqStart;
+            if (page.present.get(local)) {
+                hits++;
+                return page.crcs[local] & 0xFFFFFFFFL;
+            }
+        }
+        misses++;
+        return MISS;
+    }
+
+    /**
+     * Release pages of chunks that lie entirely below the cumulative ACK
+     *
+     * @param cumAck First sequence not yet received by the peer
+     */
+    public void releaseBelow(int cumAck) {
+        int chunkCount = chunkManager.getChunkCount();
+        while (releasedUpTo < chunkCount
+                && chunkManager.getChunkMetadata(releasedUpTo).globalSeqEnd < cumAck) {
+            Page old = pages.getAndSet(releasedUpTo, RELEASED);
+            if (old != null && old != RELEASED) {
+                residentBytes.addAndGet(-4L * old.crcs.length);
+            }
+            releasedUpTo++;
+        }
+    }
+
+    public long getResidentBytes() {
+        return residentBytes.get();
+    }
+
+    public String getStats() {
+        return String.format("CRC cache: hits=%d, misses=%d, resident=%.1f KB, released chunks=%d",
+            hits, misses, residentBytes.get() / 1024.0, releasedUpTo);
+    }
+}
@@ -0,0 +1,306 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CUBIC congestion control (RFC 8312) for the NACK-based protocol
+ *
+ * Window growth after a loss follows W(t) = C * (t - K)^3 + W_max: fast
+ * towards the previous maximum, flat around it, then probing beyond it.
+ * The Reno-friendly estimate W_est keeps CUBIC at least as aggressive as
+ * AIMD on short-RTT paths. Fast convergence releases bandwidth to new
+ * flows by remembering a lower W_max when losses come before reaching it.
+ *
+ * The window is enforced on real bytes in flight (InFlightTracker) and
+ * paced out through the token-bucket PacingEngine at gain * cwnd / sRTT.
+ *
+ * Thread-safety: window updates are synchronized (NACK listener);
+ * the send path only reads volatile snapshots.
+ */
+public class CubicCongestionController implements CongestionController {
+
+    private static final int PACKET_SIZE = EnhancedFileTransferSender.SLICE_SIZE;
+
+    /** Cubic scaling constant (packets / s^3) */
+    private static final double C = 0.4;
+
+    /** Multiplicative decrease factor */
+    private static final double BETA = 0.7;
+
+    /** Reno-friendly additive increase per RTT */
+    private static final double ALPHA = 3 * (1 - BETA) / (1 + BETA);
+
+    private static final double MIN_CWND_PACKETS = 2;
+    private static final double MAX_CWND_PACKETS = 4096;
+
+    /**
+     * Minimum time between two window reductions. A hole is reported on
+     * every NACK tick (10-50ms) until it is repaired, so reducing once per
+     * tick would punish the same loss several times on short-RTT paths.
+     */
+    private static final long MIN_RECOVERY_NS = 25_000_000; // 25ms
+
+    /** Pacing gain: slow start doubles per RTT, avoidance leaves headroom */
+    private static final double SLOW_START_GAIN = 2.0;
+    private static final double AVOIDANCE_GAIN = 1.2;
+
+    // Window state in packets (fractional growth), guarded by this
+    private double cwnd = 32;
+    private double ssthresh = Double.MAX_VALUE;
+    private double wMax = 0;
+    private double wLastMax = 0;
+    private double wEst = 0;
+    private double k = 0;
+    private double originPoint = 0;
+    private long epochStartNs = 0;
+    private long recoveryUntilNs = 0;
+
+    // Published snapshot for the send path
+    private volatile long congestionWindow = 32 * PACKET_SIZE;
+    private volatile boolean slowStart = true;
+    private volatile long packetIntervalNs = 0;
+
+    private final RttStats rtt = new RttStats(100_000_000); // 100ms başlangıç
+    private final PacingEngine pacer = new PacingEngine(PACKET_SIZE);
+    private volatile InFlightTracker inFlight = null;
+
+    // Statistics
+    private final AtomicLong totalPacketsSent = new AtomicLong(0);
+    private final AtomicLong totalBytesSent = new AtomicLong(0);
+    private final AtomicLong totalLossCount = new AtomicLong(0);
+    private volatile long lossEvents = 0;
+    private volatile long startTime = System.nanoTime();
+
+    public CubicCongestionController() {
+        updatePacingRate();
+    }
+
+    @Override
+    public String getName() {
+        return "cubic";
+    }
+
+    @Override
+    public void rateLimitSend(int packetSize) {
+        InFlightTracker tracker = inFlight;
+        if (tracker != null) {
+            tracker.awaitRoom(this, packetSize);
+        }
+        pacer.acquire(packetSize);
+    }
+
+    @Override
+    public long tryRateLimitSend(int packetSize) {
+        if (!canSendPacket(packetSize)) return WINDOW_FULL;
+        return pacer.tryAcquire(packetSize);
+    }
+
+    @Override
+    public void onPacketSent(int packetSize) {
+        totalPacketsSent.incrementAndGet();
+        totalBytesSent.addAndGet(packetSize);
+        pacer.onSent(packetSize);
+    }
+
+    @Override
+    public boolean canSendPacket(int packetSize) {
+        InFlightTracker tracker = inFlight;
+        return tracker == null || tracker.hasRoom(this, packetSize);
+    }
+
+    @Override
+    public void setInFlightTracker(InFlightTracker tracker) {
+        this.inFlight = tracker;
+    }
+
+    @Override
+    public long getBytesInFlight() {
+        InFlightTracker tracker = inFlight;
+        return tracker != null ? tracker.getBytesInFlight() : 0;
+    }
+
+    @Override
+    public synchronized void onNackFrameReceived(int receivedPacketCount, int lostPacketCount) {
+        if (lostPacketCount > 0) {
+            onPacketLoss(lostPacketCount, lostPacketCount * PACKET_SIZE);
+        }
+        if (receivedPacketCount > 0) {
+            onAck(receivedPacketCount, System.nanoTime());
+        }
+    }
+
+    private void onAck(int acked, long now) {
+        if (now < recoveryUntilNs) return; // Recovery: no growth until the reduction settles
+
+        if (cwnd < ssthresh) {
+            // Slow start
+            cwnd += acked;
+            if (cwnd >= ssthresh) {
+                System.out.println("🔄 CUBIC: slow start -> congestion avoidance");
+            }
+        } else {
+            if (epochStartNs == 0) {
+                startEpoch(now);
+            }
+
+            // Target window one RTT ahead on the cubic curve
+            double t = (now - epochStartNs + rtt.getMinRtt()) / 1_000_000_000.0;
+            double target = originPoint + C * Math.pow(t - k, 3);
+            target = Math.min(target, cwnd * 1.5);
+
+            if (target > cwnd) {
+                cwnd += (target - cwnd) * acked / cwnd;
+            } else {
+                cwnd += 0.01 * acked / cwnd; // Plateau around W_max
+            }
+
+            // Reno-friendly region
+            wEst += ALPHA * acked / cwnd;
+            if (wEst > cwnd) {
+                cwnd = wEst;
+            }
+        }
+
+        cwnd = Math.min(cwnd, MAX_CWND_PACKETS);
+        publish();
+    }
+
+    private void startEpoch(long now) {
+        epochStartNs = now;
+        if (cwnd < wMax) {
+            k = Math.cbrt((wMax - cwnd) / C);
+            originPoint = wMax;
+        } else {
+            k = 0;
+            originPoint = cwnd;
+        }
+        wEst = cwnd;
+    }
+
+    @Override
+    public synchronized void onPacketLoss(int lostPacketCount, int lostBytes) {
+        if (lostPacketCount <= 0) return;
+        totalLossCount.addAndGet(lostPacketCount);
+
+        long now = System.nanoTime();
+        if (now < recoveryUntilNs) return; // Same congestion event
+
+        double before = cwnd;
+
+        // Fast convergence: loss before reaching the old maximum -> release bandwidth
+        if (cwnd < wLastMax) {
+            wLastMax = cwnd;
+            wMax = cwnd * (1 + BETA) / 2;
+        } else {
+            wLastMax = cwnd;
+            wMax = cwnd;
+        }
+
+        cwnd = Math.max(cwnd * BETA, MIN_CWND_PACKETS);
+        ssthresh = cwnd;
+        epochStartNs = 0;
+        recoveryUntilNs = now + Math.max(MIN_RECOVERY_NS, rtt.getSmoothedRtt());
+        lossEvents++;
+        publish();
+
+        System.out.printf("🔴 CUBIC LOSS: %d packets, cwnd: %.0f -> %.0f pkts, W_max: %.0f pkts%n",
+            lostPacketCount, before, cwnd, wMax);
+    }
+
+    @Override
+    public void updateRtt(long rttNs) {
+        rtt.update(rttNs);
+        updatePacingRate();
+    }
+
+    private void publish() {
+        congestionWindow = (long) (cwnd * PACKET_SIZE);
+        slowStart = cwnd < ssthresh;
+        updatePacingRate();
+    }
+
+    private void updatePacingRate() {
+        double gain = slowStart ? SLOW_START_GAIN : AVOIDANCE_GAIN;
+        long srtt = Math.max(1, rtt.getSmoothedRtt());
+        long pacingRate = (long) (congestionWindow * 1_000_000_000.0 * gain / srtt);
+        packetIntervalNs = pacingRate > 0 ? (PACKET_SIZE * 1_000_000_000L) / pacingRate : 0;
+        pacer.setRate(pacingRate);
+    }
+
+    @Override
+    public synchronized void enableLocalNetworkMode() {
+        cwnd = 64;
+        rtt.setInitialRtt(2_000_000); // 2ms LAN RTT
+        publish();
+        System.out.println("⚡ LAN MODE: CUBIC, initial cwnd 64 pkts");
+    }
+
+    @Override
+    public synchronized void enableWanMode() {
+        cwnd = 32;
+        rtt.setInitialRtt(100_000_000);
+        publish();
+        System.out.println("📡 WAN MODE: CUBIC, initial cwnd 32 pkts");
+    }
+
+    @Override
+    public synchronized void reset() {
+        cwnd = 32;
+        ssthresh = Double.MAX_VALUE;
+        wMax = 0;
+        wLastMax = 0;
+        wEst = 0;
+        k = 0;
+        epochStartNs = 0;
+        recoveryUntilNs = 0;
+        lossEvents = 0;
+        rtt.reset();
+        totalPacketsSent.set(0);
+        totalBytesSent.set(0);
+        totalLossCount.set(0);
+        startTime = System.nanoTime();
+        publish();
+    }
+
+    @Override
+    public String getStats() {
+        long elapsed = Math.max(1, System.nanoTime() - startTime);
+        double throughputMbps = (totalBytesSent.get() * 8.0 * 1_000_000_000L) / (elapsed * 1_000_000.0);
+
+        long totalSent = Math.max(1, totalPacketsSent.get());
+        long totalLost = totalLossCount.get();
+        double lossRate = Math.min(100.0, (totalLost * 100.0) / (totalSent + totalLost));
+
+        double wMaxSnapshot;
+        double kSnapshot;
+        synchronized (this) {
+            wMaxSnapshot = wMax;
+            kSnapshot = k;
+        }
+
+        return String.format(
+            "CUBIC %s, CWnd: %d pkts, InFlight: %d pkts, W_max: %.0f pkts, K: %.2fs, RTT: %.1fms (min %.1fms), " +
+            "Loss: %.2f%% (%d events), Throughput: %.1f Mbps",
+            slowStart ? "SLOW_START" : "AVOIDANCE",
+            congestionWindow / PACKET_SIZE,
+            getBytesInFlight() / PACKET_SIZE,
+            wMaxSnapshot,
+            kSnapshot,
+            rtt.getSmoothedRtt() / 1_000_000.0,
+            rtt.getMinRtt() / 1_000_000.0,
+            lossRate,
+            lossEvents,
+            throughputMbps
+        );
+    }
+
+    @Override public long getCongestionWindow() { return congestionWindow; }
+    @Override public long getSmoothedRtt() { return rtt.getSmoothedRtt(); }
+    @Override public long getRttVar() { return rtt.getRttVar(); }
+    @Override public long getPacingInterval() { return packetIntervalNs; }
+    @Override public String getPacingStats() { return pacer.getStats(); }
+
+    @Override
+    public double getLossRate() {
+        long lost = totalLossCount.get();
+        return lost / (double) Math.max(1, totalPacketsSent.get() + lost);
+    }
+}
@@ -0,0 +1,107 @@
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * Ring of preallocated direct buffers filled by draining a socket
+ *
+ * drain() reads datagrams until the (non-blocking) channel is empty or the
+ * batch is full; the caller then processes the whole batch and does its
+ * bookkeeping once. On a blocking channel (virtual-thread sessions) a drain
+ * waits for one datagram and returns it - a second read could block with
+ * the first still unprocessed. All slots are views over one direct block,
+ * created once. Unconnected drains also keep each datagram's source address.
+ *
+ * Thread-safety: NOT thread-safe, each receive loop owns its batch.
+ */
+public final class DatagramBatch {
+
+    /** Datagrams per drain (-Dturbo.rx.batch) */
+    public static final int DEFAULT_SIZE = Math.max(1, Integer.getInteger("turbo.rx.batch", 64));
+
+    private final ByteBuffer[] slots;
+    private final SocketAddress[] sources;
+    private int count = 0;
+
+    // Statistics
+    private long batches = 0;
+    private long datagrams = 0;
+    private int maxBatch = 0;
+
+    /**
+     * @param size     Maximum datagrams per drain
+     * @param slotSize Bytes per datagram slot (largest expected datagram)
+     */
+    public DatagramBatch(int size, int slotSize) {
+        this.slots = new ByteBuffer[Math.max(1, size)];
+        this.sources = new SocketAddress[slots.length];
+        ByteBuffer block = ByteBuffer.allocateDirect(slotSize * slots.length);
+        for (int i = 0; i < slots.length; i++) {
+            block.clear().position(i * slotSize).limit((i + 1) * slotSize);
+            slots[i] = block.slice().order(ByteOrder.BIG_ENDIAN);
+        }
+    }
+
+    /**
+     * Read until the socket is empty or the batch is full
+     *
+     * @param connected true: channel.read (connected peer), false: channel.receive
+     * @return Datagrams in the batch (0 = socket was empty)
+     * @throws IOException only if nothing was read; an error after the first
+     *         datagram ends the batch early (a persistent error recurs on the next call)
+     */
+    public int drain(DatagramChannel channel, boolean connected) throws IOException {
+        count = 0;
+        int limit = channel.isBlocking() ? 1 : slots.length;
+        try {
+            while (count < limit) {
+                ByteBuffer b = slots[count];
+                b.clear();
+                int x;
+                if (connected) {
+                    x = channel.read(b);
+                } else {
+                    SocketAddress from = channel.receive(b);
+                    sources[count] = from;
+                    x = from == null ? 0 : b.position();
+                }
+                if (x <= 0) break;
+                b.flip();
+                count++;
+            }
+        } catch (IOException e) {
+            if (count == 0) throw e;
+        }
+        if (count > 0) {
+            batches++;
+            datagrams += count;
+            if (count > maxBatch) maxBatch = count;
+        }
+        return count;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return Datagram i of the last drain (position 0, limit = datagram length)
+     */
+    public ByteBuffer packet(int i) {
+        return slots[i];
+    }
+
+    /**
+     * @return Sender of datagram i (unconnected drains only, else null)
+     */
+    public SocketAddress source(int i) {
+        return sources[i];
+    }
+
+    public String getStats() {
+        return String.format("batches=%d, avg %.1f datagrams (max %d of %d)",
+            batches, batches == 0 ? 0.0 : (double) datagrams / batches, maxBatch, slots.length);
+    }
+}
@@ -0,0 +1,130 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.DatagramChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput cost of the receiver durability policies
+ *
+ * One loopback NACK transfer per policy (none, periodic, completion) in one
+ * process, repeated round-robin so page cache state is shared fairly:
+ *
+ *   java DurabilityBenchmark 256 3 /var/tmp
+ *
+ * Arguments: file size in MB (default 256), rounds (default 3), directory
+ * for the files (default "." - use a real disk, /tmp is often tmpfs where
+ * force() is free). Reports goodput up to the completion frame (which waits
+ * for the policy's forces), forces issued and the completion force time.
+ * Transfer logs are silenced; round 1 includes JIT warm-up.
+ */
+public class DurabilityBenchmark {
+
+    private static final int SOCKET_BUFFER = 16 * 1024 * 1024;
+
+    private static final long TRANSFER_TIMEOUT_S = 300;
+
+    public static void main(String[] args) throws Exception {
+        int sizeMb = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        Path dir = Files.createTempDirectory(Paths.get(args.length > 2 ? args[2] : "."), "turbo-durability");
+
+        Path source = dir.resolve("source.bin");
+        byte[] block = new byte[1 << 20];
+        Random random = new Random(42);
+        try (OutputStream os = Files.newOutputStream(source)) {
+            for (int i = 0; i < sizeMb; i++) {
+                random.nextBytes(block);
+                os.write(block);
+            }
+        }
+
+        System.out.println("=== Durability Benchmark ===");
+        System.out.println("📁 " + sizeMb + " MB in " + dir.toAbsolutePath() + ", " + rounds + " rounds, region "
+            + (DurabilityEngine.REGION_BYTES >> 20) + " MB, window " + (ChunkManager.WINDOW_BYTES >> 20) + " MB");
+        System.out.println(String.format("%6s %11s %10s %10s %8s %16s %5s", "round", "policy", "wall(s)", "MB/s",
+            "forces", "completion(ms)", "ok"));
+
+        try {
+            for (int round = 1; round <= rounds; round++) {
+                for (DurabilityEngine.Policy policy : DurabilityEngine.Policy.values()) {
+                    run(round, policy, source, dir, (long) sizeMb << 20);
+                }
+            }
+        } finally {
+            Files.deleteIfExists(source);
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    private static void run(int round, DurabilityEngine.Policy policy, Path source, Path dir, long fileSize) throws Exception {
+        Path output = dir.resolve("recv-" + policy.name().toLowerCase(Locale.ROOT) + ".bin");
+        Files.deleteIfExists(output);
+
+        FileTransferReceiver receiver = new FileTransferReceiver();
+        receiver.durabilityPolicy = policy;
+        receiver.filePath = output;
+        CountDownLatch done = new CountDownLatch(2);
+        boolean failed = false;
+
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+        PrintStream silent = new PrintStream(OutputStream.nullOutputStream());
+        System.setOut(silent);
+        System.setErr(silent);
+
+        long start = System.nanoTime();
+        try (DatagramChannel rx = open(); DatagramChannel tx = open()) {
+            rx.bind(new InetSocketAddress("127.0.0.1", 0));
+            receiver.channel = rx;
+            SessionThreads.start("bench-rx", () -> {
+                try {
+                    receiver.ReceiveData();
+                } finally {
+                    done.countDown();
+                }
+            });
+
+            tx.bind(new InetSocketAddress("127.0.0.1", 0));
+            tx.connect(rx.getLocalAddress());
+            SessionThreads.start("bench-tx", () -> {
+                try {
+                    // Returns once the completion frame arrived, i.e. after the policy's forces
+                    new EnhancedFileTransferSender(tx).sendFile(source, round);
+                } catch (Exception e) {
+                    System.err.println("Send failed: " + e);
+                } finally {
+                    done.countDown();
+                }
+            });
+            failed = !done.await(TRANSFER_TIMEOUT_S, TimeUnit.SECONDS);
+        } finally {
+            System.setOut(out);
+            System.setErr(err);
+        }
+        double wallS = (System.nanoTime() - start) / 1e9;
+
+        boolean ok = !failed && Files.exists(output) && Files.mismatch(source, output) == -1;
+        DurabilityEngine durability = receiver.durability;
+        System.out.println(String.format("%6d %11s %10.2f %10.2f %8d %16.1f %5s", round, policy.name().toLowerCase(Locale.ROOT),
+            wallS, fileSize / (1024.0 * 1024.0) / wallS,
+            durability != null ? durability.getForceCount() : 0,
+            durability != null ? durability.getCompletionMs() : 0.0,
+            ok ? "yes" : "NO"));
+        Files.deleteIfExists(output);
+    }
+
+    private static DatagramChannel open() throws java.io.IOException {
+        DatagramChannel ch = DatagramChannel.open();
+        ch.setOption(StandardSocketOptions.SO_SNDBUF, SOCKET_BUFFER);
+        ch.setOption(StandardSocketOptions.SO_RCVBUF, SOCKET_BUFFER);
+        return ch;
+    }
+}
@@ -0,0 +1,214 @@
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.Locale;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * When received data is forced to disk (receiver side)
+ *
+ * The output is written through mappings, so a SYNC FileChannel never made
+ * those writes durable - it only slowed metadata updates. Durability is an
+ * explicit policy instead (-Dturbo.durability):
+ * - none:       nothing is forced; the kernel writes back on its own schedule
+ * - periodic:   a background flusher forces every completed region of
+ *               turbo.durability.region.mb (default 8) below the cumulative
+ *               ACK, and the tail + metadata at completion (write-behind)
+ * - completion: one force of the whole file + metadata before the
+ *               completion frame goes out (default)
+ * With periodic and completion the sender's "complete" means "on disk".
+ * Windows are forced before ChunkManager unmaps them, so dirty pages do not
+ * pile up in the page cache on long transfers - except with none, which
+ * leaves all writeback to the kernel.
+ *
+ * Thread-safety: onContiguous() from any receive thread; flushing is
+ * serialized on this.
+ */
+public final class DurabilityEngine {
+
+    public enum Policy { NONE, PERIODIC, COMPLETION }
+
+    /** -Dturbo.durability=none|periodic|completion */
+    public static final Policy DEFAULT_POLICY = parse(System.getProperty("turbo.durability", "completion"));
+
+    /** Flush granularity of the periodic policy */
+    public static final long REGION_BYTES = (long) Math.max(1, Integer.getInteger("turbo.durability.region.mb", 8)) << 20;
+
+    /** Flusher poll interval (a completed region also wakes it) */
+    private static final long INTERVAL_NS = 100_000_000; // 100ms
+
+    /** Flusher progress line interval */
+    private static final long PROGRESS_NS = 1_000_000_000;
+
+    private final Policy policy;
+    private final FileChannel fc;
+    private final ChunkManager chunks;
+    private final long fileSize;
+    private final int sliceSize;
+
+    /** Contiguous bytes received from offset 0 (cumulative ACK) */
+    private volatile long receivedBytes = 0;
+
+    /** Bytes from offset 0 known to be on disk (written under this) */
+    private volatile long flushedBytes = 0;
+
+    private Thread flusher;
+    private volatile boolean running = false;
+    private boolean completed = false;
+
+    // Statistics (guarded by this)
+    private long forces = 0;
+    private long forceNs = 0;
+    private long maxForceNs = 0;
+    private long completionNs = 0;
+
+    /**
+     * @param policy    Durability policy
+     * @param fc        Output channel (metadata force at completion)
+     * @param chunks    Mapping windows of the output
+     * @param fileSize  Output size in bytes
+     * @param sliceSize Packet payload size
+     */
+    public DurabilityEngine(Policy policy, FileChannel fc, ChunkManager chunks, long fileSize, int sliceSize) {
+        this.policy = policy;
+        this.fc = fc;
+        this.chunks = chunks;
+        this.fileSize = fileSize;
+        this.sliceSize = sliceSize;
+        chunks.setForceOnUnmap(policy != Policy.NONE);
+    }
+
+    static Policy parse(String value) {
+        try {
+            return Policy.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            System.err.println("⚠️  Unknown turbo.durability '" + value + "' - using completion");
+            return Policy.COMPLETION;
+        }
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    /** Start the background flusher (periodic policy only) */
+    public synchronized void start() {
+        if (policy != Policy.PERIODIC || running || completed) return;
+        running = true;
+        flusher = SessionThreads.start("durability-flusher", this::runFlusher);
+    }
+
+    /**
+     * The cumulative ACK advanced: everything below cumAck is received
+     */
+    public void onContiguous(int cumAck) {
+        long bytes = Math.min(fileSize, (long) cumAck * sliceSize);
+        if (bytes <= receivedBytes) return;
+        receivedBytes = bytes; // Monotonic enough: a stale smaller write is corrected by the next ACK
+        if (policy == Policy.PERIODIC && bytes - flushedBytes >= REGION_BYTES) {
+            Thread t = flusher;
+            if (t != null) LockSupport.unpark(t);
+        }
+    }
+
+    private void runFlusher() {
+        long lastProgressNs = System.nanoTime();
+        while (running) {
+            LockSupport.parkNanos(INTERVAL_NS);
+            // Whole regions only; the tail is flushed by complete()
+            long target = receivedBytes / REGION_BYTES * REGION_BYTES;
+            if (target > flushedBytes) {
+                try {
+                    flushTo(target);
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("Durability flush error: " + e);
+                }
+            }
+            long now = System.nanoTime();
+            if (now - lastProgressNs >= PROGRESS_NS && running) {
+                lastProgressNs = now;
+                System.out.println("💾 " + getProgress());
+            }
+        }
+    }
+
+    /**
+     * Force [flushedBytes, target) to disk
+     */
+    private synchronized void flushTo(long target) throws IOException {
+        if (target <= flushedBytes) return;
+        long start = System.nanoTime();
+        chunks.force(flushedBytes, target);
+        long ns = System.nanoTime() - start;
+        forces++;
+        forceNs += ns;
+        maxForceNs = Math.max(maxForceNs, ns);
+        flushedBytes = target;
+    }
+
+    /**
+     * All data received: make it durable as the policy requires. Called
+     * before the completion frame is sent.
+     */
+    public void complete() throws IOException {
+        synchronized (this) {
+            if (completed) return;
+            completed = true;
+        }
+        stopFlusher();
+        receivedBytes = fileSize;
+        if (policy == Policy.NONE) return;
+
+        long start = System.nanoTime();
+        flushTo(fileSize);
+        fc.force(true); // File size / metadata (the output was truncated to size)
+        synchronized (this) {
+            completionNs = System.nanoTime() - start;
+        }
+    }
+
+    /** Stop the flusher (idempotent) */
+    public void close() {
+        stopFlusher();
+    }
+
+    private void stopFlusher() {
+        Thread t;
+        synchronized (this) {
+            running = false;
+            t = flusher;
+            flusher = null;
+        }
+        if (t == null) return;
+        LockSupport.unpark(t);
+        try {
+            t.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Flushed vs received bytes
+     */
+    public String getProgress() {
+        long received = receivedBytes;
+        long flushed = flushedBytes;
+        return String.format("Durability (%s): flushed %.1f / received %.1f MB (%.0f%%), file %.1f MB",
+            policy.name().toLowerCase(Locale.ROOT), flushed / (1024.0 * 1024.0), received / (1024.0 * 1024.0),
+            received > 0 ? flushed * 100.0 / received : 100.0, fileSize / (1024.0 * 1024.0));
+    }
+
+    public synchronized long getForceCount() {
+        return forces;
+    }
+
+    /** Time complete() spent forcing (0 for none) */
+    public synchronized double getCompletionMs() {
+        return completionNs / 1_000_000.0;
+    }
+
+    public synchronized String getStats() {
+        return String.format("%s, forces=%d (%.1f ms, max %.1f ms), completion force %.1f ms",
+            getProgress(), forces, forceNs / 1_000_000.0, maxForceNs / 1_000_000.0, completionNs / 1_000_000.0);
+    }
+}
@@ -1,4 +1,6 @@
 import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.MappedByteBuffer;
@@ -6,9 +8,6 @@ import java.nio.channels.DatagramChannel;
 import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.locks.LockSupport;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -18,26 +17,61 @@ public class EnhancedFileTransferSender {
 	    private final DatagramChannel channel;
 	    private volatile boolean stopRequested = false;
 	    
-	    // QUIC-inspired congestion control
-	    private HybridCongestionController hybridControl;
+	    // Pluggable congestion control (hybrid, cubic, bbr)
+	    private CongestionController congestionControl;
+	    private String congestionAlgorithm = CongestionController.DEFAULT_ALGORITHM;
 	    private EnhancedNackListener enhancedNackListener;
-	    private Thread statsThread;
+	    
+	    // Event loop (shared Reactor) for NACK reads, retransmissions and the stats timer;
+	    // with virtual threads (SessionThreads) the listener and retransmitter are threads
+	    private Reactor.Loop loop;
+	    private Reactor.Registration nackRegistration;
+	    private Reactor.Timer statsTimer;
 	    private Thread nackThread;
 	    private Thread retransmissionThread;
+	    private volatile boolean transferActive = false;
+	    
+	    // Retransmission state - touched only by the event loop or the retransmitter thread
+	    private RetransmissionQueue retxQueue;
+	    private final int[] retxBatch = new int[RETX_BATCH];
+	    private final CRC32C retxCrc = new CRC32C();
+	    private final PacketRing retxRing = new PacketRing();
+	    private boolean retxScheduled = false;
+	    private long retxFileId;
+	    private int retxTotalSeq;
 	    private ChunkManager chunkManager;
+	    private CrcCache crcCache;
+	    private InFlightTracker inFlight;
+	    private final RetransmissionThrottle retxThrottle = new RetransmissionThrottle();
+	    
+	    // Striped mode: requested stripe count and negotiated extra channels
+	    private int stripeCount = 1;
+	    private int[] stripePorts = new int[0];
+	    private DatagramChannel[] stripeChannels = new DatagramChannel[0];
+	    
+	    // Framing pipeline depth (0 = inline CRC/framing on the send thread)
+	    public static final int DEFAULT_PIPELINE_DEPTH = Integer.getInteger("turbo.pipeline.depth", 0);
+	    private int pipelineDepth = DEFAULT_PIPELINE_DEPTH;
+	    private volatile FramePipeline[] pipelines = new FramePipeline[0];
+	    
+	    // XOR parity per block of data packets (-Dturbo.fec=true), one encoder per stripe
+	    private boolean fecEnabled = FecEncoder.ENABLED;
+	    private volatile FecEncoder[] fecEncoders = new FecEncoder[0];
+	    
+	    // Rateless mode (-Dturbo.fountain=true): used only if the receiver grants it in the ACK
+	    private boolean fountainMode = FountainCode.ENABLED;
+	    private boolean fountainGranted = false;
+	    private long handshakeRttNs = 0; // SYN -> ACK round trip
 	    
-	    private static final ExecutorService threadPool = 
-	        Executors.newCachedThreadPool(r -> {
-	            Thread t = new Thread(r);
-	            t.setDaemon(true);
-	            t.setName("enhanced-transfer-" + t.getId());
-	            return t;
-	        });
-
 	    public static final long TURBO_MAX  = 256L << 20; // 256 MB
 	    public static final int  SLICE_SIZE = 1450; // Maximum payload without fragmentation
 	    public static final int  MAX_TRY    = 4;
 	    public static final int  BACKOFF_NS = 0; // HİÇ BEKLEME YOK!
+	    public static final int  RETX_BATCH = 64; // Sequences drained per retransmission pass
+	    public static final long RETX_RETRY_NS = 1_000_000; // Window full: retry slice after 1ms (or next NACK)
+	    public static final long SEND_BUFFER_RETRY_NS = 50_000; // Event loop: socket send buffer full, retry after 50μs
+	    public static final long RETX_IDLE_NS = 10_000_000; // Virtual retransmitter: park between NACK batches
+	    public static final long STATS_INTERVAL_NS = 2_000_000_000L;
 	
 	    public EnhancedFileTransferSender(DatagramChannel ch){
 		this.channel = ch;
@@ -46,15 +80,75 @@ public class EnhancedFileTransferSender {
 	    public void requestStop() {
 	        this.stopRequested = true;
 	    }
+	    
+	    /**
+	     * Request striped mode: N sender threads, each on its own socket.
+	     * The receiver may grant fewer stripes during the handshake.
+	     */
+	    public void setStripeCount(int stripes) {
+	        this.stripeCount = Math.max(1, Math.min(stripes, HandShake_Packet.MAX_STRIPES));
+	    }
+	    
+	    /**
+	     * Congestion control algorithm for the next transfer (hybrid, cubic, bbr)
+	     */
+	    public void setCongestionControl(String algorithm) {
+	        this.congestionAlgorithm = algorithm;
+	    }
+	    
+	    /**
+	     * Framed packets queued ahead of each send thread (0 disables the pipeline)
+	     */
+	    public void setPipelineDepth(int depth) {
+	        this.pipelineDepth = Math.max(0, depth);
+	    }
+	    
+	    /**
+	     * Send FEC parity packets after every block of data packets
+	     */
+	    public void setFecEnabled(boolean enabled) {
+	        this.fecEnabled = enabled;
+	    }
+	    
+	    /**
+	     * Retransmitted packets of the last transfer
+	     */
+	    public long getRetransmissionCount() {
+	        return retxThrottle.getSent();
+	    }
+	    
+	    /**
+	     * FEC parity packets sent by all stripes of the last transfer
+	     */
+	    public long getParityPacketCount() {
+	        long parity = 0;
+	        for (FecEncoder fec : fecEncoders) {
+	            if (fec != null) parity += fec.getParityPackets();
+	        }
+	        return parity;
+	    }
+	    
+	    /**
+	     * Request the rateless fountain mode (single stripe, no NACK / retransmission)
+	     */
+	    public void setFountainMode(boolean enabled) {
+	        this.fountainMode = enabled;
+	    }
 
 		public boolean handshake(long fileId, long file_size, int total_seq) throws IOException {
 		if(channel == null) throw new IllegalStateException("Datagram Channel is null you must bind and connect first");
 		long candidate_file_Id = -1;
 		HandShake_Packet pkt = new HandShake_Packet();
-		pkt.make_SYN(fileId, file_size, total_seq);
+		if(fountainMode) {
+			// Blocks are cut at our window boundaries - the receiver maps the same grid
+			pkt.make_SYN(fileId, file_size, total_seq, 1, HandShake_Packet.FLAG_FOUNTAIN, chunkManager.getSequencesPerChunk());
+		} else {
+			pkt.make_SYN(fileId, file_size, total_seq, stripeCount);
+		}
 	
+		long synSentNs = System.nanoTime();
 		channel.write(pkt.get_header().duplicate());
-		ByteBuffer buffer = ByteBuffer.allocateDirect(HandShake_Packet.HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+		ByteBuffer buffer = ByteBuffer.allocateDirect(HandShake_Packet.MAX_SIZE).order(ByteOrder.BIG_ENDIAN);
 		
 		long ackDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
 		int r;
@@ -69,15 +163,39 @@ public class EnhancedFileTransferSender {
 			if(r <= 0) LockSupport.parkNanos(1_000_000); // 1ms bekleme
 		}while( r <= 0);
 		
+		handshakeRttNs = System.nanoTime() - synSentNs;
 		buffer.flip();
 		if(r >= HandShake_Packet.HEADER_SIZE && buffer.get(0) == 0x10){
 			buffer.position(1); // Position'ı 1'e set et
 			candidate_file_Id = buffer.getLong(); // Relative okuma
+			
+			// Striped ACK: receiver granted extra stripe ports
+			int granted = Math.min(HandShake_Packet.get_stripes(buffer, r), stripeCount);
+			if(r < HandShake_Packet.OFF_STRIPE_PORTS + 2 * (granted - 1)) granted = 1;
+			stripePorts = new int[granted - 1];
+			for(int i = 0; i < stripePorts.length; i++) {
+				stripePorts[i] = HandShake_Packet.get_stripe_port(buffer, i);
+			}
+			
+			// Older receivers ignore the flag and answer with a plain ACK: stay on NACK mode
+			fountainGranted = fountainMode && (HandShake_Packet.get_ack_flags(buffer, r) & HandShake_Packet.FLAG_FOUNTAIN) != 0;
 		}
 
 		if(candidate_file_Id == fileId)
 		{
-			pkt.make_SYN_ACK(fileId);
+			// Striped mode: open the extra sockets now so the SYN_ACK can carry
+			// their source ports - the receiver connects each stripe socket to one.
+			// A retried handshake replaces the sockets of the previous attempt.
+			int[] sourcePorts = new int[0];
+			closeStripeChannels();
+			if(stripePorts.length > 0) {
+				openStripeChannels();
+				sourcePorts = new int[stripeChannels.length];
+				for(int i = 0; i < sourcePorts.length; i++) {
+					sourcePorts[i] = ((InetSocketAddress) stripeChannels[i].getLocalAddress()).getPort();
+				}
+			}
+			pkt.make_SYN_ACK(fileId, sourcePorts);
 			try{
 				// SYN_ACK için de timeout ekle
 				long synAckDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(3);
@@ -87,7 +205,6 @@ public class EnhancedFileTransferSender {
 						System.err.println("SYN_ACK send timeout");
 						return false;
 					}
-					pkt.resetForRetransmitter();
 					LockSupport.parkNanos(1_000_000); // 1ms bekleme
 				}
 			}catch(IOException e){
@@ -99,44 +216,334 @@ public class EnhancedFileTransferSender {
 		return false;
 	}
 	    
-	    public void sendOne(CRC32C crc, CRC32C_Packet pkt,
+	    public void sendOne(CRC32C crc, PacketRing ring,
                 MappedByteBuffer mem, long fileId,
                 int seqNo, int totalSeq, int take, int off) throws IOException{
-	    	
-	    	ByteBuffer payload = mem.duplicate();
-	    	payload.position(off).limit(off + take);
-	    	payload = payload.slice();
-	    	crc.reset();
-	    	crc.update(payload.duplicate());
-	    	int crc32c = (int) crc.getValue();
-	    	
-	    	pkt.fillHeader(fileId, seqNo, totalSeq, take, crc32c);
-	    	
-	        ByteBuffer[] frame = new ByteBuffer[]{ pkt.headerBuffer(), payload.position(0).limit(take) };
-		
-	        // Enhanced: RTT measurement için timestamp kaydet (retransmission için)
-	        if (enhancedNackListener != null) {
-	        	enhancedNackListener.recordPacketSendTime(seqNo);
-	        }
+	    	transmit(channel, encodeOne(crc, ring, mem, fileId, seqNo, totalSeq, take, off));
+	    }
+	    
+	    private PacketRing.Slot encodeOne(CRC32C crc, PacketRing ring,
+                MappedByteBuffer mem, long fileId,
+                int seqNo, int totalSeq, int take, int off) {
+	    	// Pre-encoded slot: payload copy + CRC + header, no per-packet allocation
+	    	// Retransmission of an already sent seq reuses the CRC from its first send
+	    	long cached = crcCache != null ? crcCache.lookup(seqNo) : CrcCache.MISS;
+	    	PacketRing.Slot slot;
+	    	if (cached != CrcCache.MISS) {
+	    		slot = ring.encodeCached(mem, fileId, seqNo, totalSeq, take, off, (int) cached);
+	    	} else {
+	    		slot = ring.encode(crc, mem, fileId, seqNo, totalSeq, take, off);
+	    		if (crcCache != null) crcCache.put(seqNo, slot.crc);
+	    	}
+	    	return slot;
+	    }
+	    
+	    private void transmit(DatagramChannel ch, PacketRing.Slot slot) {
+	        // Parity is paced like data but has no sequence to time, track or retransmit
+	        boolean parity = slot.seqNo == PacketRing.PARITY_SEQ;
 	        
 	        // QUIC-style congestion control
-	        if (hybridControl != null) {
-	        	hybridControl.rateLimitSend(); // Rate pacing
+	        if (congestionControl != null) {
+	        	congestionControl.rateLimitSend(slot.take); // Token-bucket rate pacing + window wait
 	        }
 	        
-	        // Send packet
+	        // Enhanced: RTT measurement için timestamp kaydet (retransmission için)
+	        // After the window wait - it can block up to the stall timeout
+	        if (!parity && enhancedNackListener != null) {
+	        	enhancedNackListener.recordPacketSendTime(slot.seqNo);
+	        }
+	        writeSlot(ch, slot, parity);
+	    }
+	    
+	    /**
+	     * Event-loop send: never waits for the congestion window, the pacer or
+	     * the socket send buffer
+	     *
+	     * @return 0 if sent; otherwise nothing was sent and the result is
+	     *         CongestionController.WINDOW_FULL or the delay before a retry (ns)
+	     */
+	    private long tryTransmit(DatagramChannel ch, PacketRing.Slot slot) {
+	        if (congestionControl != null) {
+	        	long wait = congestionControl.tryRateLimitSend(slot.take);
+	        	if (wait != 0) return wait;
+	        }
+	        if (enhancedNackListener != null) {
+	        	enhancedNackListener.recordPacketSendTime(slot.seqNo);
+	        }
+	        try {
+	        	// Primary channel is non-blocking: a full send buffer returns 0
+	        	if (ch.write(slot.frame) == 0) {
+	        		return SEND_BUFFER_RETRY_NS;
+	        	}
+	        	// After the write: the NACK listener runs on this loop thread, so no ACK can come first
+	        	if (inFlight != null) {
+	        		inFlight.onSent(slot.seqNo);
+	        	}
+	        	if (congestionControl != null) {
+	        		congestionControl.onPacketSent(slot.take);
+	        	}
+	        } catch(IOException e) {
+	        	System.err.println("Frame sending error: " + e);
+	        }
+	        return 0;
+	    }
+	    
+	    private void writeSlot(DatagramChannel ch, PacketRing.Slot slot, boolean parity) {
+	        // Send packet - counted in flight before the write so a fast ACK cannot miss it
 			try{
-	        	channel.write(frame);
+	        	if (!parity && inFlight != null) {
+	        		inFlight.onSent(slot.seqNo);
+	        	}
+	        	// Primary channel is non-blocking (the NACK listener drains it): a full
+	        	// send buffer returns 0 instead of blocking, so wait and retry
+	        	// (send threads only - the event loop uses tryTransmit)
+	        	while (ch.write(slot.frame) == 0) {
+	        		LockSupport.parkNanos(1_000);
+	        	}
 	        	
 	        	// Notify congestion controller
-	        	if (hybridControl != null) {
-	        		hybridControl.onPacketSent(take + pkt.headerBuffer().remaining());
+	        	if (congestionControl != null) {
+	        		congestionControl.onPacketSent(slot.take);
 	        	}
 			}catch(IOException e){
 				System.err.println("Frame sending error: " + e);
 			}
 	    }
 	    
+	    /**
+	     * Initial transmission of one stripe: every seq with seq % stripes == stripe.
+	     * Each stripe uses its own CRC32C and PacketRing (no shared encoder state).
+	     */
+	    private void sendStripe(DatagramChannel ch, int stripe, int stripes,
+	    		long fileId, int totalSeq, boolean reportProgress) throws IOException {
+	    	final long[] lastProgressTime = {System.currentTimeMillis()};
+	    	final long startTime = lastProgressTime[0];
+	    	
+	    	if(pipelineDepth > 0) {
+	    		sendStripePipelined(ch, stripe, stripes, fileId, totalSeq, reportProgress, startTime, lastProgressTime);
+	    		return;
+	    	}
+	    	
+	    	CRC32C crc = new CRC32C();
+	    	PacketRing ring = new PacketRing();
+	    	FecEncoder fec = newFecEncoder(stripe, stripes);
+	    	
+	    	forEachStripeSeq(stripe, stripes, (chunkBuffer, seqNo, take, off) -> {
+	    		// DYNAMIC RTT-BASED PACING - rateLimitSend() transmit içinde
+	    		PacketRing.Slot slot = ring.encode(crc, chunkBuffer, fileId, seqNo, totalSeq, take, off);
+	    		crcCache.put(seqNo, slot.crc);
+	    		transmit(ch, slot);
+	    		if (fec != null && fec.add(seqNo, slot.payload())) {
+	    			sendParity(ch, fec, ring, crc, fileId);
+	    		}
+	    		if (reportProgress) {
+	    			reportProgress(seqNo, totalSeq, startTime, lastProgressTime);
+	    		}
+	    	});
+	    	if (fec != null && fec.hasPending()) {
+	    		sendParity(ch, fec, ring, crc, fileId); // Short last block
+	    	}
+	    }
+	    
+	    private FecEncoder newFecEncoder(int stripe, int stripes) {
+	    	if (!fecEnabled) return null;
+	    	FecEncoder fec = new FecEncoder(stripes, congestionControl);
+	    	fecEncoders[stripe] = fec;
+	    	return fec;
+	    }
+	    
+	    private boolean fecRepairPending(int seq, long graceNs) {
+	    	FecEncoder[] encoders = fecEncoders;
+	    	if (encoders.length == 0) return false;
+	    	FecEncoder fec = encoders[seq % encoders.length];
+	    	return fec != null && fec.mayRepair(seq, System.nanoTime(), graceNs);
+	    }
+	    
+	    private void sendParity(DatagramChannel ch, FecEncoder fec, PacketRing ring, CRC32C crc, long fileId) {
+	    	for (int j = 0; j < fec.parityCount(); j++) {
+	    		transmit(ch, fec.encodeParity(j, ring, crc, fileId));
+	    	}
+	    	fec.endBlock();
+	    }
+	    
+	    /**
+	     * Pipelined variant: a framer thread checksums and frames ahead into a
+	     * bounded ring, this thread only paces and writes.
+	     */
+	    private void sendStripePipelined(DatagramChannel ch, int stripe, int stripes,
+	    		long fileId, int totalSeq, boolean reportProgress,
+	    		long startTime, long[] lastProgressTime) throws IOException {
+	    	FramePipeline pipeline = new FramePipeline(pipelineDepth);
+	    	pipelines[stripe] = pipeline;
+	    	FecEncoder fec = newFecEncoder(stripe, stripes);
+	    	
+	    	Thread framer = new Thread(() -> {
+	    		CRC32C crc = new CRC32C();
+	    		PacketRing ring = pipeline.ring();
+	    		try {
+	    			forEachStripeSeq(stripe, stripes, (chunkBuffer, seqNo, take, off) -> {
+	    				PacketRing.Slot slot = pipeline.claim();
+	    				if (slot == null) throw new IOException("Framer interrupted");
+	    				ring.encodeInto(slot, crc, chunkBuffer, fileId, seqNo, totalSeq, take, off);
+	    				crcCache.put(seqNo, slot.crc);
+	    				boolean blockDone = fec != null && fec.add(seqNo, slot.payload());
+	    				pipeline.publish();
+	    				if (blockDone) {
+	    					framePipelinedParity(pipeline, fec, ring, crc, fileId);
+	    				}
+	    			});
+	    			if (fec != null && fec.hasPending()) {
+	    				framePipelinedParity(pipeline, fec, ring, crc, fileId);
+	    			}
+	    			pipeline.finish();
+	    		} catch(Throwable t) {
+	    			pipeline.fail(t);
+	    		}
+	    	}, "enhanced-framer-" + stripe);
+	    	framer.setDaemon(true);
+	    	framer.start();
+	    	
+	    	try {
+	    		PacketRing.Slot slot;
+	    		while((slot = pipeline.take()) != null) {
+	    			transmit(ch, slot);
+	    			int seqNo = slot.seqNo;
+	    			pipeline.release();
+	    			if (reportProgress && seqNo != PacketRing.PARITY_SEQ) {
+	    				reportProgress(seqNo, totalSeq, startTime, lastProgressTime);
+	    			}
+	    		}
+	    	} catch(IllegalStateException e) {
+	    		throw new IOException(e.getMessage(), e.getCause());
+	    	} finally {
+	    		framer.interrupt();
+	    	}
+	    }
+	    
+	    private static void framePipelinedParity(FramePipeline pipeline, FecEncoder fec, PacketRing ring,
+	    		CRC32C crc, long fileId) throws IOException {
+	    	for (int j = 0; j < fec.parityCount(); j++) {
+	    		PacketRing.Slot slot = pipeline.claim();
+	    		if (slot == null) throw new IOException("Framer interrupted");
+	    		fec.encodeParityInto(j, ring, slot, crc, fileId);
+	    		pipeline.publish();
+	    	}
+	    	fec.endBlock();
+	    }
+	    
+	    private interface StripeSeqVisitor {
+	    	void visit(MappedByteBuffer chunkBuffer, int seqNo, int take, int off) throws IOException;
+	    }
+	    
+	    private void forEachStripeSeq(int stripe, int stripes, StripeSeqVisitor visitor) throws IOException {
+	    	// Chunk-based sequential transmission
+	    	int chunkCount = chunkManager.getChunkCount();
+	    	for(int chunkIdx = 0; chunkIdx < chunkCount; chunkIdx++) {
+	    		ChunkMetadata chunkMeta = chunkManager.getChunkMetadata(chunkIdx);
+	    		MappedByteBuffer chunkBuffer = chunkManager.pinChunk(chunkIdx);
+	    		try {
+	    			// First sequence of this chunk owned by this stripe
+	    			int seqNo = chunkMeta.globalSeqStart + Math.floorMod(stripe - chunkMeta.globalSeqStart, stripes);
+	    			for(; seqNo <= chunkMeta.globalSeqEnd; seqNo += stripes) {
+	    				int localSeq = seqNo - chunkMeta.globalSeqStart;
+	    				visitor.visit(chunkBuffer, seqNo,
+	    					chunkMeta.getPayloadSize(localSeq, SLICE_SIZE),
+	    					chunkMeta.getLocalOffset(localSeq, SLICE_SIZE));
+	    			}
+	    		} finally {
+	    			chunkManager.unpinChunk(chunkIdx);
+	    		}
+	    	}
+	    }
+	    
+	    // Enhanced progress display
+	    private void reportProgress(int seqNo, int totalSeq, long startTime, long[] lastProgressTime) {
+	    	if (System.currentTimeMillis() - lastProgressTime[0] <= 1000) return;
+	    	
+	    	double progress = (double)(seqNo + 1) / totalSeq * 100;
+	    	long elapsed = System.currentTimeMillis() - startTime;
+	    	double throughputMbps = ((seqNo + 1) * (double) SLICE_SIZE * 8.0) / (elapsed * 1000.0);
+	    	int chunkIdx = chunkManager.findChunkForSequence(seqNo);
+	    	System.out.printf(" Progress: %.1f%% (Chunk %d/%d), Throughput: %.1f Mbps\n", 
+	    		progress, chunkIdx + 1, chunkManager.getChunkCount(), throughputMbps);
+	    	System.out.println(" " + congestionControl.getStats());
+	    	lastProgressTime[0] = System.currentTimeMillis();
+	    }
+	    
+	    private void openStripeChannels() throws IOException {
+	    	InetSocketAddress remote = (InetSocketAddress) channel.getRemoteAddress();
+	    	stripeChannels = new DatagramChannel[stripePorts.length];
+	    	for(int i = 0; i < stripePorts.length; i++) {
+	    		DatagramChannel ch = DatagramChannel.open();
+	    		ch.setOption(StandardSocketOptions.SO_SNDBUF, 16 * 1024 * 1024);
+	    		ch.bind(new InetSocketAddress(0));
+	    		ch.connect(new InetSocketAddress(remote.getAddress(), stripePorts[i]));
+	    		stripeChannels[i] = ch;
+	    	}
+	    	System.out.println(" Striped mode: " + (stripePorts.length + 1) + " stripes negotiated");
+	    }
+	    
+	    private void closeStripeChannels() {
+	    	for(DatagramChannel stripeChannel : stripeChannels) {
+	    		if(stripeChannel == null) continue;
+	    		try {
+	    			stripeChannel.close();
+	    		} catch (IOException e) {
+	    			System.err.println("Stripe channel close error: " + e);
+	    		}
+	    	}
+	    	stripeChannels = new DatagramChannel[0];
+	    }
+	    
+	    private void applyNetworkProfile() {
+	    	String targetHost = channel.socket().getRemoteSocketAddress().toString();
+	    	boolean isLocalNetwork = targetHost.contains("127.0.0.1") || targetHost.contains("localhost") || 
+	    	    targetHost.contains("192.168.") || targetHost.contains("10.");
+	    	    
+	    	if (isLocalNetwork) {
+	    		congestionControl.enableLocalNetworkMode();
+	    		System.out.println(" Local network detected - enabling aggressive mode");
+	    	} else {
+	    		congestionControl.enableWanMode();
+	    		System.out.println(" WAN detected - packet-by-packet conservative mode");
+	    	}
+	    }
+	    
+	    /**
+	     * Rateless transfer: LT symbols per block, one stop frame per block
+	     */
+	    private void sendFountain(long fileId) throws IOException {
+	    	this.congestionControl = CongestionController.create(congestionAlgorithm);
+	    	System.out.println(" Congestion control: " + congestionControl.getName());
+	    	applyNetworkProfile();
+	    	
+	    	FountainSender fountain = new FountainSender(channel, chunkManager, congestionControl, fileId, handshakeRttNs);
+	    	System.out.println(" Fountain mode: " + FountainCode.BLOCK_SIZE + " packets per block, window " +
+	    		FountainSender.WINDOW + " blocks, overhead " + String.format("%.0f%%", FountainSender.OVERHEAD * 100));
+	    	
+	    	Thread stats = new Thread(() -> {
+	    		while (!Thread.currentThread().isInterrupted()) {
+	    			try {
+	    				Thread.sleep(2000);
+	    				System.out.println(" " + congestionControl.getStats());
+	    				System.out.println(" " + fountain.getStats());
+	    			} catch (InterruptedException e) {
+	    				break;
+	    			}
+	    		}
+	    	}, "enhanced-stats");
+	    	stats.setDaemon(true);
+	    	stats.start();
+	    	
+	    	try {
+	    		fountain.run();
+	    		System.out.println(" File transfer completed successfully!");
+	    	} finally {
+	    		stats.interrupt();
+	    		System.out.println(" " + fountain.getStats());
+	    	}
+	    }
+	    
 	    public void sendFile(Path filePath, long fileId) throws IOException{
 	    	if(channel == null) throw new IllegalStateException("Datagram Channel is null you must bind and connect first");
 	    	if(stopRequested) throw new IllegalStateException("Transfer was stopped");
@@ -146,12 +553,30 @@ public class EnhancedFileTransferSender {
 	    		
 	    		// Initialize ChunkManager for unlimited file size support
 	    		this.chunkManager = new ChunkManager(filePath, SLICE_SIZE);
+	    		try {
+	    			sendChunks(fileId, fileSize);
+	    		} finally {
+	    			// Every exit (fountain, handshake timeout, errors): unmap windows, stop the prefetch worker.
+	    			// Pins still held by a stuck thread defer their unmap to the unpin.
+	    			chunkManager.close();
+	    		}
+	    	}
+	    }
+	    
+	    /**
+	     * Handshake + transfer over the open ChunkManager (closed by sendFile)
+	     */
+	    private void sendChunks(long fileId, long fileSize) throws IOException {
+	    	try {
 	    		int totalSeq = chunkManager.getTotalSequenceCount();
 	    		
-	    		// Thread-safe için her thread kendi instance'larını kullanacak
-	    		CRC32C initialCrc = new CRC32C();
-	    		CRC32C_Packet initialPkt = new CRC32C_Packet();
+	    		// CRC computed on first send, reused by retransmissions
+	    		this.crcCache = new CrcCache(chunkManager);
+	    		
+	    		// Bytes in flight: set on send, released by NACK implicit ACKs
+	    		this.inFlight = new InFlightTracker(totalSeq, SLICE_SIZE);
 	    		
+	    		// Thread-safe için her thread kendi instance'larını kullanacak
 			long deadline = System.nanoTime() + java.util.concurrent.TimeUnit.SECONDS.toNanos(5);
 			final long MAX_BACKOFF = 10_000_000L;
 			long backoff  = 1_000_000L;
@@ -170,12 +595,23 @@ public class EnhancedFileTransferSender {
 					}
 			}while(!hand_shaking);
 
-	    	ConcurrentLinkedQueue<Integer> retxQueue = new ConcurrentLinkedQueue<>();
+	    	if(fountainGranted) {
+	    		sendFountain(fileId);
+	    		return;
+	    	}
+	    	if(fountainMode) {
+	    		System.out.println(" Receiver does not support fountain mode - using NACK mode");
+	    	}
+	    	
+	    	// Primitive, deduplicating retransmission queue (each seq queued at most once)
+	    	this.retxQueue = new RetransmissionQueue(totalSeq);
+	    	this.retxFileId = fileId;
+	    	this.retxTotalSeq = totalSeq;
 	    	
 	    	// Transfer completion için latch
 	    	final CountDownLatch transferCompleteLatch = new CountDownLatch(1);
 	    	 
-	    	// Enhanced NACK listener'ı başlat
+	    	// Enhanced NACK listener - runs on the shared event loop, no thread of its own
 	    	this.enhancedNackListener = new EnhancedNackListener(channel, fileId, totalSeq, retxQueue, BACKOFF_NS);
 	    	
 	    	// Completion callback ayarla
@@ -184,154 +620,80 @@ public class EnhancedFileTransferSender {
 	    		transferCompleteLatch.countDown();
 	    	};
 	    	
-	    	 this.nackThread = new Thread(enhancedNackListener, "enhanced-nack-listener");
-	    	 if (this.nackThread == null) {
-	    	 	System.err.println("Enhanced NackThread creation failed!");
-	    	 	return;
-	    	 }
-	    	 this.nackThread.setDaemon(true);
-	    	 this.nackThread.start();
-	    	
-	    	// QUIC-inspired hybrid congestion control
-	    	this.hybridControl = new HybridCongestionController();
+	    	// Selected congestion control (-Dturbo.cc or CLI)
+	    	this.congestionControl = CongestionController.create(congestionAlgorithm);
+	    	System.out.println(" Congestion control: " + congestionControl.getName());
 	    	
 	    	// Enhanced NACK listener'a congestion control referansını ver
-	    	enhancedNackListener.hybridControl = hybridControl;
+	    	enhancedNackListener.congestionControl = congestionControl;
+	    	enhancedNackListener.inFlight = inFlight;
+	    	congestionControl.setInFlightTracker(inFlight);
+	    	enhancedNackListener.crcCache = crcCache;
+	    	enhancedNackListener.chunkManager = chunkManager;
 	    	
 	    	// Network türüne göre optimize et
-	    	String targetHost = channel.socket().getRemoteSocketAddress().toString();
-	    	boolean isLocalNetwork = targetHost.contains("127.0.0.1") || targetHost.contains("localhost") || 
-	    	    targetHost.contains("192.168.") || targetHost.contains("10.");
-	    	    
-	    	if (isLocalNetwork) {
-	    		hybridControl.enableLocalNetworkMode();
-	    		System.out.println(" Local network detected - enabling aggressive mode");
-	    	} else {
-	    		hybridControl.enableWanMode();
-	    		System.out.println(" WAN detected - packet-by-packet conservative mode");
-	    	}
+	    	applyNetworkProfile();
 	    	
-	    	// Enhanced statistics display thread
-	    	this.statsThread = new Thread(() -> {
-	    		while (!Thread.currentThread().isInterrupted()) {
-	    			try {
-	    				Thread.sleep(2000); // Her 2 saniyede bir stats göster
-	    				System.out.println(" " + hybridControl.getStats());
-	    				System.out.println(" " + enhancedNackListener.getRttStats());
-	    			} catch (InterruptedException e) {
-	    				break;
+	    	// NACK reads, retransmission slices and stats share one loop thread per session
+	    	this.loop = Reactor.shared().next();
+	    	this.transferActive = true;
+	    	if (SessionThreads.isVirtual()) {
+	    		// Blocking reads on virtual threads; the listener wakes the retransmitter per batch
+	    		this.retransmissionThread = SessionThreads.newThread("enhanced-retransmission", this::runRetransmitter);
+	    		final Thread retx = retransmissionThread;
+	    		enhancedNackListener.onFeedback = () -> LockSupport.unpark(retx);
+	    		retx.start();
+	    		this.nackThread = SessionThreads.start("enhanced-nack-listener", enhancedNackListener);
+	    	} else {
+	    		channel.configureBlocking(false);
+	    		this.nackRegistration = loop.register(channel, () -> {
+	    			if (!enhancedNackListener.onReadable()) {
+	    				nackRegistration.cancel();
 	    			}
-	    		}
-	    	}, "enhanced-stats");
-	    	if (this.statsThread == null) {
-	    		System.err.println("Enhanced StatsThread creation failed!");
-	    		return;
+	    			requestRetransmit();
+	    		});
 	    	}
-	    	this.statsThread.setDaemon(true);
-	    	this.statsThread.start();
 	    	
-	    	// Enhanced retransmission thread with congestion awareness
-	    	final boolean[] initialTransmissionDone = {false};
+	    	// Enhanced statistics display - every 2 seconds on the loop
+	    	this.statsTimer = loop.scheduleRepeating(STATS_INTERVAL_NS, this::printStats);
 	    	
-			this.retransmissionThread = new Thread( () -> {
-				CRC32C retxCrc = new CRC32C();
-				CRC32C_Packet retxPkt = new CRC32C_Packet();
-				
-				while(!Thread.currentThread().isInterrupted() && !stopRequested){
-	    			Integer miss = retxQueue.poll();
-	    			if(miss == null) {
-	    				if(initialTransmissionDone[0]) {
-	    					LockSupport.parkNanos(1_000_000); // 1ms bekle
-	    					continue;
-	    				}
-	    				LockSupport.parkNanos(50_000); // 50μs hızlı polling
-	    				continue;
-	    			}
-    			
-    			if(miss < 0 || miss >= totalSeq) {
-    				System.err.println("Invalid sequence number: " + miss);
-    				continue;
-    			}
-    			
-    			// Congestion control check before retransmission
-    			if (hybridControl != null && !hybridControl.canSendPacket()) {
-    				// Window full, put back and wait
-    				retxQueue.offer(miss);
-    				LockSupport.parkNanos(100_000); // 100μs bekle
-    				continue;
-    			}
-    			
-    			// Chunk-aware retransmission: find which chunk contains this sequence
-    			try {
-    				int chunkIdx = chunkManager.findChunkForSequence(miss);
-    				if (chunkIdx < 0) {
-    					System.err.println("No chunk found for sequence: " + miss);
-    					continue;
-    				}
-    				
-    				ChunkMetadata chunkMeta = chunkManager.getChunkMetadata(chunkIdx);
-    				MappedByteBuffer chunkBuffer = chunkManager.getChunk(chunkIdx);
-    				int localSeq = chunkMeta.toLocalSequence(miss);
-    				int localOff = chunkMeta.getLocalOffset(localSeq, SLICE_SIZE);
-    				int take = chunkMeta.getPayloadSize(localSeq, SLICE_SIZE);
-    				
-    				if(take > 0) {
-    					sendOne(retxCrc, retxPkt, chunkBuffer, fileId, miss, totalSeq, take, localOff);
-    				}
-    			} catch(IOException e) {
-    				System.err.println("Retransmission error for seq " + miss + ": " + e);
-    			}
-    		}
-	}, "enhanced-retransmission");
-		if (this.retransmissionThread == null) {
-			System.err.println(" Enhanced RetransmissionThread creation failed!");
-			return;
-		}
-		this.retransmissionThread.setDaemon(true);
-		this.retransmissionThread.start();	
-		
 		// ENHANCED WINDOWED TRANSMISSION - QUIC-style with Chunk Support
 		System.out.println("Starting QUIC-inspired windowed transmission with chunked I/O...");
-		int seqNo = 0;
-		long startTime = System.currentTimeMillis();
-		long lastProgressTime = startTime;
 		
-		// Chunk-based sequential transmission
-		int chunkCount = chunkManager.getChunkCount();
-		for(int chunkIdx = 0; chunkIdx < chunkCount; chunkIdx++) {
-			ChunkMetadata chunkMeta = chunkManager.getChunkMetadata(chunkIdx);
-			MappedByteBuffer chunkBuffer = chunkManager.getChunk(chunkIdx);
-			
-			// Send all sequences in this chunk
-			int localSeq = 0;
-			for(int off = 0; off < chunkBuffer.capacity(); ) {
-				int remaining = chunkBuffer.capacity() - off;
-				int take = Math.min(SLICE_SIZE, remaining);
-				
-				// DYNAMIC RTT-BASED PACING - Controller'ın hesapladığı değeri kullan
-				sendOne(initialCrc, initialPkt, chunkBuffer, fileId, seqNo, totalSeq, take, off);
-				
-				// Controller'dan dynamic pacing al - RTT'ye göre adaptive
-				// rateLimitSend() zaten internal pacing yapıyor, ekstra sabit pacing yok!
-				
-				off += take;
-				seqNo++;
-				localSeq++;
-				
-				// Enhanced progress display
-				if (System.currentTimeMillis() - lastProgressTime > 1000) {
-					double progress = (double)seqNo / totalSeq * 100;
-					long elapsed = System.currentTimeMillis() - startTime;
-					double throughputMbps = (seqNo * SLICE_SIZE * 8.0) / (elapsed * 1000.0);
-					System.out.printf(" Progress: %.1f%% (Chunk %d/%d), Throughput: %.1f Mbps\n", 
-						progress, chunkIdx + 1, chunkCount, throughputMbps);
-					System.out.println(" " + hybridControl.getStats());
-					lastProgressTime = System.currentTimeMillis();
+		// Striped mode: extra stripes send seq % N == i on their own sockets
+		final int stripes = stripeChannels.length + 1;
+		pipelines = new FramePipeline[stripes];
+		fecEncoders = new FecEncoder[stripes];
+		if (fecEnabled) {
+			System.out.println(" FEC: " + FecEncoder.BLOCK_SIZE + " data packets per block, parity adapts to loss (max " +
+				FecEncoder.MAX_PARITY + ")");
+		}
+		Thread[] stripeThreads = new Thread[stripeChannels.length];
+		for(int i = 0; i < stripeChannels.length; i++) {
+			final int stripe = i + 1;
+			final DatagramChannel stripeChannel = stripeChannels[i];
+			stripeThreads[i] = new Thread(() -> {
+				try {
+					sendStripe(stripeChannel, stripe, stripes, fileId, totalSeq, false);
+				} catch(IOException e) {
+					System.err.println("Stripe " + stripe + " send error: " + e);
 				}
+			}, "enhanced-stripe-" + stripe);
+			stripeThreads[i].setDaemon(true);
+			stripeThreads[i].start();
+		}
+		
+		sendStripe(channel, 0, stripes, fileId, totalSeq, true);
+		
+		for(Thread stripeThread : stripeThreads) {
+			try {
+				stripeThread.join();
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
 			}
 		}
 		
-		initialTransmissionDone[0] = true;
 	    	System.out.println("Initial transmission completed, waiting for retransmissions...");
 	    	
 	    	// Transfer completion bekle
@@ -339,7 +701,7 @@ public class EnhancedFileTransferSender {
 	    		boolean completed = transferCompleteLatch.await(300, TimeUnit.SECONDS);
 	    		if(completed) {
 	    			System.out.println(" File transfer completed successfully!");
-	    			System.out.println(" Final stats: " + hybridControl.getStats());
+	    			System.out.println(" Final stats: " + congestionControl.getStats());
 	    		} else {
 	    			System.err.println(" Transfer timeout - network issue or very large file");
 	    		}
@@ -351,44 +713,200 @@ public class EnhancedFileTransferSender {
 	    		// Enhanced cleanup
 	    		System.out.println(" Cleaning up enhanced transfer threads...");
 	    		
-	    		if(nackThread != null && nackThread.isAlive()) {
-	    			nackThread.interrupt();
-	    			try {
-	    				nackThread.join(2000); 
-	    			} catch (InterruptedException e) {
-	    				Thread.currentThread().interrupt();
-	    			}
+	    		transferActive = false;
+	    		if(nackRegistration != null) {
+	    			nackRegistration.cancel();
+	    		}
+	    		// Retransmitter sees transferActive=false on unpark; interrupting it could close the
+	    		// channel mid-write. The listener normally exits on completion - interrupt only if stuck.
+	    		joinSessionThread(retransmissionThread, false);
+	    		joinSessionThread(nackThread, true);
+	    		if(statsTimer != null) {
+	    			statsTimer.cancel();
 	    		}
 	    		
-	    		if(retransmissionThread != null && retransmissionThread.isAlive()) {
-	    			retransmissionThread.interrupt();
-	    			try {
-	    				retransmissionThread.join(2000); 
-	    			} catch (InterruptedException e) {
-	    				Thread.currentThread().interrupt();
-	    			}
+	    		closeStripeChannels();
+	    		
+	    		// Reset controller
+	    		if (congestionControl != null) {
+	    			System.out.println(" Transfer summary: " + congestionControl.getStats());
+	    		}
+	    		if (crcCache != null) {
+	    			System.out.println(" " + crcCache.getStats());
+	    		}
+	    		if (inFlight != null) {
+	    			System.out.println(" " + inFlight.getStats());
+	    		}
+	    		System.out.println(" " + retxThrottle.getStats());
+	    		if (chunkManager.getChunkCount() > 1) {
+	    			System.out.println(" " + chunkManager.getCacheStats());
+	    			System.out.println(" " + chunkManager.getPrefetchStats());
+	    		}
+	    		for (FramePipeline pipeline : pipelines) {
+	    			if (pipeline != null) System.out.println(" " + pipeline.getStats());
+	    		}
+	    		for (FecEncoder fec : fecEncoders) {
+	    			if (fec != null) System.out.println(" " + fec.getStats());
+	    		}
+	    		if (loop != null) {
+	    			System.out.println(" " + Reactor.shared().getStats());
+	    		}
+	    	}
+	    }
+	    
+	    /**
+	     * Queue a retransmission slice on the loop if NACKs left work
+	     * (loop thread: after every NACK batch and from the retry timer)
+	     */
+	    private void requestRetransmit() {
+	    	if (retxScheduled || !transferActive || retxQueue.isEmpty()) return;
+	    	retxScheduled = true;
+	    	loop.execute(this::retransmitSlice);
+	    }
+	    
+	    /**
+	     * One retransmission slice on the event loop: at most RETX_BATCH
+	     * sequences, then the remainder is a new task so other sessions on the
+	     * loop get their turn. Nothing on the loop waits: a full window ends
+	     * the slice until the retry timer, the pacer or a full socket buffer
+	     * until its delay has passed.
+	     */
+	    private void retransmitSlice() {
+	    	retxScheduled = false;
+	    	if (!transferActive || stopRequested) return;
+	    	
+	    	long wait = retransmitBatch(false);
+	    	if (wait > 0) {
+	    		retxScheduled = true;
+	    		loop.schedule(wait, () -> {
+	    			retxScheduled = false;
+	    			requestRetransmit();
+	    		});
+	    		return;
+	    	}
+	    	requestRetransmit();
+	    }
+	    
+	    /**
+	     * Virtual-thread retransmitter: parks until the listener reports a
+	     * NACK batch, then sends with the blocking (window-waiting) path
+	     */
+	    private void runRetransmitter() {
+	    	while (transferActive && !stopRequested && !Thread.currentThread().isInterrupted()) {
+	    		if (retxQueue.isEmpty()) {
+	    			LockSupport.parkNanos(this, RETX_IDLE_NS);
+	    			continue;
+	    		}
+	    		retransmitBatch(true);
+	    	}
+	    }
+	    
+	    private void requeue(int from, int count) {
+	    	for (int j = from; j < count; j++) {
+	    		retxQueue.offer(retxBatch[j]);
+	    	}
+	    }
+	    
+	    /**
+	     * Drain up to RETX_BATCH queued holes and retransmit them
+	     *
+	     * @param blocking true: wait for the congestion window and the pacer (retransmitter
+	     *                 thread), false: stop instead of waiting (event loop)
+	     * @return 0 if the batch was done, else the delay before the remaining
+	     *         (re-queued) sequences can go out
+	     */
+	    private long retransmitBatch(boolean blocking) {
+	    	int count = retxQueue.drain(retxBatch);
+	    	long suppressWindow = RetransmissionThrottle.windowNs(congestionControl);
+	    	for (int i = 0; i < count; i++) {
+	    		int miss = retxBatch[i];
+	    		
+	    		// Cum ACK passed it while queued - nothing to repair
+	    		if (inFlight != null && inFlight.isDelivered(miss)) {
+	    			continue;
 	    		}
 	    		
-	    		if(statsThread != null && statsThread.isAlive()) {
-	    			statsThread.interrupt();
+	    		// Congestion window full: put the rest back and retry later
+	    		if (!blocking && congestionControl != null && !congestionControl.canSendPacket()) {
+	    			requeue(i, count);
+	    			return RETX_RETRY_NS;
 	    		}
 	    		
-	    		// Reset controller
-	    		if (hybridControl != null) {
-	    			System.out.println(" Transfer summary: " + hybridControl.getStats());
+	    		// FEC: parity of this block may still rebuild it at the receiver
+	    		if (fecRepairPending(miss, suppressWindow)) {
+	    			continue;
+	    		}
+	    		
+	    		// RTT-aware suppression: previous retransmission may still be in flight
+	    		if (!retxThrottle.tryRetransmit(miss, System.nanoTime(), suppressWindow)) {
+	    			continue;
+	    		}
+	    		
+	    		// Chunk-aware retransmission: find which chunk contains this sequence
+	    		try {
+	    			int chunkIdx = chunkManager.findChunkForSequence(miss);
+	    			ChunkMetadata chunkMeta = chunkManager.getChunkMetadata(chunkIdx);
+	    			int localSeq = chunkMeta.toLocalSequence(miss);
+	    			int localOff = chunkMeta.getLocalOffset(localSeq, SLICE_SIZE);
+	    			int take = chunkMeta.getPayloadSize(localSeq, SLICE_SIZE);
+	    			if (take <= 0) continue;
+	    			
+	    			MappedByteBuffer chunkBuffer = chunkManager.pinChunk(chunkIdx);
+	    			PacketRing.Slot slot;
+	    			try {
+	    				slot = encodeOne(retxCrc, retxRing, chunkBuffer, retxFileId, miss, retxTotalSeq, take, localOff);
+	    			} finally {
+	    				chunkManager.unpinChunk(chunkIdx); // Payload is copied into the ring slot
+	    			}
+	    			if (blocking) {
+	    				transmit(channel, slot);
+	    			} else {
+	    				long wait = tryTransmit(channel, slot);
+	    				if (wait != 0) {
+	    					// Paced, window filled by the send threads meanwhile or socket buffer
+	    					// full: not sent, so not suppressed on the retry either
+	    					retxThrottle.cancel(miss);
+	    					requeue(i, count);
+	    					return wait > 0 ? wait : RETX_RETRY_NS;
+	    				}
+	    			}
+	    		} catch(IOException e) {
+	    			System.err.println("Retransmission error for seq " + miss + ": " + e);
 	    		}
 	    	}
+	    	return 0;
 	    }
 	    
-	    public static void shutdownThreadPool() {
-	        threadPool.shutdown();
-	        try {
-	            if (!threadPool.awaitTermination(5, java.util.concurrent.TimeUnit.SECONDS)) {
-	                threadPool.shutdownNow();
-	            }
-	        } catch (InterruptedException e) {
-	            threadPool.shutdownNow();
-	            Thread.currentThread().interrupt();
-	        }
+	    private static void joinSessionThread(Thread t, boolean interrupt) {
+	    	if (t == null || !t.isAlive()) return;
+	    	if (interrupt) {
+	    		t.interrupt();
+	    	} else {
+	    		LockSupport.unpark(t);
+	    	}
+	    	try {
+	    		t.join(2000);
+	    	} catch (InterruptedException e) {
+	    		Thread.currentThread().interrupt();
+	    	}
 	    }
+	    
+	    private void printStats() {
+	    	System.out.println(" " + congestionControl.getStats());
+	    	System.out.println(" " + enhancedNackListener.getRttStats());
+	    	System.out.println(" " + congestionControl.getPacingStats());
+	    	System.out.println(" " + inFlight.getStats());
+	    	System.out.println(" " + crcCache.getStats());
+	    	System.out.println(" " + chunkManager.getCacheStats());
+	    	System.out.println(" " + retxQueue.getStats());
+	    	System.out.println(" " + retxThrottle.getStats());
+	    	for (FramePipeline pipeline : pipelines) {
+	    		if (pipeline != null) System.out.println(" " + pipeline.getStats());
+	    	}
+	    	for (FecEncoder fec : fecEncoders) {
+	    		if (fec != null) System.out.println(" " + fec.getStats());
+	    	}
+	    	System.out.println(" " + Reactor.shared().getStats());
+	    }
+	    
 	}
@@ -1,228 +1,390 @@
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.DatagramChannel;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.locks.LockSupport;
 
 public class EnhancedNackListener implements Runnable{
 	public final DatagramChannel channel;
 	public final long fileId;
 	public final int totalSeq;
-	public final ConcurrentLinkedQueue<Integer> retxQueue;
+	public final RetransmissionQueue retxQueue;
 	public final int backoffNs;
 	
 	// Completion callback
 	public volatile Runnable onTransferComplete = null;
 	
+	// Called after every applied batch (run() mode: wakes the retransmitter)
+	public volatile Runnable onFeedback = null;
+	
 	// Enhanced congestion control reference
-	public volatile HybridCongestionController hybridControl = null;
+	public volatile CongestionController congestionControl = null;
+	
+	// Per-seq in-flight accounting - released by implicit ACKs and losses
+	public volatile InFlightTracker inFlight = null;
+	
+	// Retransmission CRC cache - released per chunk as cum ACK advances
+	public volatile CrcCache crcCache = null;
+	
+	// File mapping windows - released as cum ACK advances (never retransmitted again)
+	public volatile ChunkManager chunkManager = null;
 	
 	// RTT measurement - packet timestamp tracking
-	private final ConcurrentHashMap<Integer, Long> packetSendTimes = new ConcurrentHashMap<>();
+	// Primitive ring indexed by seq & mask: no boxing, stale entries are overwritten
+	private final SeqTimeRing packetSendTimes = new SeqTimeRing();
 	private volatile long lastRttMeasurement = 0;
+	private volatile long rttSampleCount = 0;
+	
+	// Control datagrams drained together (completion signal için 8 byte)
+	private final DatagramBatch batch = new DatagramBatch(DatagramBatch.DEFAULT_SIZE, Math.max(NackFrame.MAX_SIZE, 8));
+	
+	// Per-batch totals (listener thread only), applied once in endBatch()
+	private int batchFrames = 0;
+	private int batchReceived = 0;
+	private int batchLost = 0;
+	private long batchRttSum = 0;
+	private int batchRttSamples = 0;
+	
+	// A hole is reported on every NACK tick until repaired - count each loss
+	// once per transmission (the bit is cleared when the seq is sent again)
+	private final AtomicBitmap lossReported;
 	
     public static final int DEFAULT_BACKOFF_NS = 200_000;
 
 	public EnhancedNackListener(DatagramChannel channel,
 			long fileId,
 			int totalSeq,
-			ConcurrentLinkedQueue<Integer> retxQueue,
+			RetransmissionQueue retxQueue,
 			int backoffNs){
         this.channel   = channel;
         this.fileId    = fileId;
         this.totalSeq  = totalSeq;
         this.retxQueue = retxQueue;
         this.backoffNs = backoffNs > 0 ? backoffNs : DEFAULT_BACKOFF_NS;
+        this.lossReported = new AtomicBitmap(totalSeq);
 	}
 	
 	/**
-	 * Record packet send time for RTT calculation
+	 * Record packet send time for RTT calculation. A retransmission re-arms
+	 * loss counting for the seq, so losing it again counts again.
 	 */
 	public void recordPacketSendTime(int seqNo) {
 		packetSendTimes.put(seqNo, System.nanoTime());
+		if(seqNo >= 0 && seqNo < totalSeq) lossReported.clear(seqNo);
 	}
+
 	
 	@Override
 	public void run() {
-		final ByteBuffer ctrl = ByteBuffer.allocateDirect(Math.max(NackFrame.SIZE, 8)); // Completion signal için 8 byte
-		long lastCleanupTime = System.nanoTime();
+		BackoffIdle idle = new BackoffIdle(backoffNs);
+		try {
+			// Non-blocking: drain every queued frame, then spin/park adaptively
+			// (virtual threads: blocking reads, the carrier is released while waiting)
+			channel.configureBlocking(SessionThreads.isVirtual());
+		} catch(IOException e) {
+			System.err.println("NACK listener channel setup failed: " + e);
+			return;
+		}
 		
 		while(!Thread.currentThread().isInterrupted()) {
-			ctrl.clear();
+			int n;
 			try {
-				int r = channel.read(ctrl); //READ ONLY FROM CONNECTED PEER
-				if(r <= 0) {
-					LockSupport.parkNanos(backoffNs);
-					
-					// Periodic cleanup of old timestamps (her 5 saniyede bir)
-					long now = System.nanoTime();
-					if (now - lastCleanupTime > 5_000_000_000L) {
-						cleanupOldTimestamps(now);
-						lastCleanupTime = now;
-					}
-					continue;
-				}
-				
-				long receiveTime = System.nanoTime();
-				
-				// Completion signal kontrolü (8 byte)
-				if(r == 8) {
-					ctrl.flip();
-					int magic = ctrl.getInt();
-					int receivedFileId = ctrl.getInt();
-					
-					if(magic == 0xDEADBEEF && receivedFileId == (int)fileId) {
-						System.out.println("🎉 Transfer completion signal received from receiver!");
-						if(onTransferComplete != null) {
-							try {
-								onTransferComplete.run();
-							} catch(Exception e) {
-								System.err.println("Error in completion callback: " + e);
-							}
-						}
-						break; // Exit listener loop
-					}
-					continue;
-				}
-				
-				// NACK Frame tam boyut kontrolü - şimdi 28 byte (timestamp dahil)
-				if(r != NackFrame.SIZE) {
-					System.err.println("Invalid frame size: expected " + NackFrame.SIZE + " (NACK) or 8 (completion), received " + r + " bytes");
-					continue;
-				}
-				
-				ctrl.flip();
-				
-				// Buffer'ın tam olarak frame size kadar olduğunu kontrol et
-				if(ctrl.remaining() != NackFrame.SIZE) {
-					System.err.println("Buffer remaining mismatch: expected " + NackFrame.SIZE + ", got " + ctrl.remaining());
-					continue;
-				}
-				
-				long fid = NackFrame.fileId(ctrl);
-				if(fid != fileId) {
-					// Farklı dosya ID'si - sessizce atla
-					continue;
-				}
-				
-				// RTT MEASUREMENT - NACK timestamp'ini al ve RTT hesapla! 🎯
-				long nackSentTime = NackFrame.timestamp(ctrl);
-				long nackReceiveTime = System.nanoTime();
-				long rttNs = nackReceiveTime - nackSentTime;
-				
-				// RTT sanity check ve congestion control güncelle
-				if(rttNs > 50_000 && rttNs < 100_000_000) { // 50μs - 100ms arası
-					if(hybridControl != null) {
-						hybridControl.updateRtt(rttNs);
-						lastRttMeasurement = rttNs;
-					}
+				n = pollBatch();
+			} catch(IOException e) {
+				System.out.println("IO Error: " + e);
+				LockSupport.parkNanos(backoffNs);
+				continue;
+			}
+			if(n < 0) return; // Listener'ı sonlandır
+			idle.idle(n);
+		}
+	}
+	
+	/**
+	 * Reactor read event: drain every queued frame (channel must already be
+	 * non-blocking and registered)
+	 *
+	 * @return false once the transfer completed - stop reading
+	 */
+	public boolean onReadable() {
+		try {
+			int n;
+			while((n = pollBatch()) > 0) {
+			}
+			return n == 0;
+		} catch(IOException e) {
+			System.out.println("IO Error: " + e);
+			return true;
+		}
+	}
+	
+	/**
+	 * Drain one batch of control datagrams and apply it
+	 *
+	 * @return datagrams processed (0 = socket empty), -1 once completion was signalled
+	 */
+	private int pollBatch() throws IOException {
+		int n = batch.drain(channel, true); //READ ONLY FROM CONNECTED PEER
+		if(n == 0) return 0;
+		
+		long receiveTime = System.nanoTime();
+		batchFrames = 0;
+		batchReceived = 0;
+		batchLost = 0;
+		batchRttSum = 0;
+		batchRttSamples = 0;
+		
+		boolean completed = false;
+		for(int i = 0; i < n && !completed; i++) {
+			completed = onFrame(batch.packet(i), receiveTime);
+		}
+		endBatch(receiveTime);
+		
+		Runnable feedback = onFeedback;
+		if(feedback != null && !completed) {
+			feedback.run();
+		}
+		
+		if(completed) {
+			if(onTransferComplete != null) {
+				try {
+					onTransferComplete.run();
+				} catch(Exception e) {
+					System.err.println("Transfer completion callback error: " + e);
 				}
-				
-				int base = NackFrame.baseSeq(ctrl);
-				long mask = NackFrame.mask64(ctrl);
-				
-				// Base sequence validation
-				if(base < 0 || base >= totalSeq) {
-					System.err.println("Invalid base sequence: " + base + " (total: " + totalSeq + ")");
-					continue;
+			}
+			return -1;
+		}
+		return n;
+	}
+	
+	/**
+	 * Process one control datagram of the batch (position 0, limit = length).
+	 * Delivery / loss counts and RTT samples accumulate into the batch totals.
+	 *
+	 * @return true if it signals transfer completion
+	 */
+	private boolean onFrame(ByteBuffer ctrl, long receiveTime) {
+		int r = ctrl.remaining();
+		
+		// Completion signal kontrolü (8 byte)
+		if(r == 8) {
+			int magic = ctrl.getInt(0);
+			int receivedFileId = ctrl.getInt(4);
+			
+			if(magic == 0xDEADBEEF && receivedFileId == (int)fileId) {
+				System.out.println("🎉 Transfer completion signal received from receiver!");
+				return true;
+			}
+			return false;
+		}
+		
+		// NACK Frame boyut kontrolü - 28 byte legacy veya extended (34 + 8 * blocks)
+		boolean extended = r != NackFrame.SIZE;
+		if(extended && !NackFrame.isExtended(ctrl, r)) {
+			System.err.println("Invalid frame size: expected " + NackFrame.SIZE + " or " + NackFrame.EXT_HEADER_SIZE +
+				"+8n (NACK) or 8 (completion), received " + r + " bytes");
+			return false;
+		}
+		
+		long fid = NackFrame.fileId(ctrl);
+		if(fid != fileId) {
+			// Farklı dosya ID'si - sessizce atla
+			return false;
+		}
+		
+		// RTT MEASUREMENT - NACK timestamp'ini al ve RTT hesapla! 🎯
+		long nackSentTime = NackFrame.timestamp(ctrl);
+		long nackReceiveTime = System.nanoTime();
+		long rttNs = nackReceiveTime - nackSentTime;
+		
+		// RTT sanity check ve congestion control güncelle
+		if(rttNs > 50_000 && rttNs < 100_000_000) { // 50μs - 100ms arası
+			if(congestionControl != null) {
+				congestionControl.updateRtt(rttNs);
+				lastRttMeasurement = rttNs;
+			}
+		}
+		
+		int base = NackFrame.baseSeq(ctrl);
+		long mask = NackFrame.mask64(ctrl);
+		
+		// Base sequence validation
+		if(base < 0 || base >= totalSeq) {
+			System.err.println("Invalid base sequence: " + base + " (total: " + totalSeq + ")");
+			return false;
+		}
+		
+		// base = receiver cum ACK: chunks below it never need a retransmission CRC
+		CrcCache cache = crcCache;
+		if(cache != null) {
+			cache.releaseBelow(base);
+		}
+		ChunkManager chunks = chunkManager;
+		if(chunks != null) {
+			chunks.releaseBelow(base);
+		}
+		
+		batchFrames++;
+		
+		// Process NACKs - sadece loss ve delivery rate
+		// With a tracker, counts are newly acked / newly lost only (no re-counting per frame)
+		InFlightTracker tracker = inFlight;
+		
+		// Extended frame: [base + 64, coveredUpTo) is described by missing ranges
+		int coveredUpTo = base + 64;
+		if(extended) {
+			coveredUpTo = Math.max(coveredUpTo, Math.min(NackFrame.coveredUpTo(ctrl), totalSeq));
+		}
+		
+		long reorderWindow = reorderWindowNs();
+		long tailWindow = Math.max(reorderWindow, RetransmissionThrottle.windowNs(congestionControl));
+		if(tracker != null) {
+			batchReceived += tracker.onCumulativeAck(base);
+			tracker.onUncoveredAged(coveredUpTo); // Frees the window only - not confirmed deliveries
+		}
+		
+		// Holes above the highest received bit may still be in flight:
+		// they are re-offered, but only holes below it count as loss (once per seq)
+		int highestReceived = 63 - Long.numberOfLeadingZeros(mask); // -1 if none
+		if(coveredUpTo > base + 64) {
+			highestReceived = 64; // Receiver has seen past the mask: every mask hole is real
+		}
+		
+		for(int i = 0; i < 64; i++){
+			int seq = base + i;
+			if(seq >= totalSeq) break; // Son paketten sonrası için dur
+			
+			boolean received = ((mask >>> i) & 1L) == 1L;
+			if(!received && tracker != null && !tracker.wasSent(seq)) {
+				// Not transmitted yet (window-limited / lagging stripe) - not a hole
+				continue;
+			}
+			if(!received) {
+				// NACK - retransmission gerekli
+				boolean belowHighest = i < highestReceived;
+				batchLost += onHole(seq, belowHighest, tracker, receiveTime - (belowHighest ? reorderWindow : tailWindow));
+			} else {
+				// Received (implicit ACK)
+				if(tracker == null || tracker.onAcked(seq)) {
+					batchReceived++;
 				}
 				
-				// Process NACKs - sadece loss ve delivery rate
-				int lossCount = 0;
-				int receivedCount = 0;
-				long totalRtt = 0;
-				int rttSamples = 0;
-				
-				for(int i = 0; i < 64; i++){
-					int seq = base + i;
-					if(seq >= totalSeq) break; // Son paketten sonrası için dur
-					
-					boolean received = ((mask >>> i) & 1L) == 1L;
-					if(!received) {
-						// NACK - retransmission gerekli
-						if(seq >= 0 && seq < totalSeq) {
-							boolean added = retxQueue.offer(seq);
-							if(!added) {
-								System.err.println("Failed to add seq " + seq + " to retransmission queue");
-							}
-							lossCount++;
-						}
-					} else {
-						// Received (implicit ACK)
-						receivedCount++;
-						
-						// RTT calculation - sadece mantıklı RTT'ler
-						Long sendTime = packetSendTimes.remove(seq);
-						if (sendTime != null) {
-							long rtt = receiveTime - sendTime;
-							// Local network için: 50μs < RTT < 100ms
-							if (rtt > 50_000 && rtt < 100_000_000L) { 
-								totalRtt += rtt;
-								rttSamples++;
-							}
-						}
+				// RTT calculation - sadece mantıklı RTT'ler
+				long sendTime = packetSendTimes.remove(seq);
+				if (sendTime != SeqTimeRing.NONE) {
+					long rtt = receiveTime - sendTime;
+					// Local network için: 50μs < RTT < 100ms
+					if (rtt > 50_000 && rtt < 100_000_000L) { 
+						batchRttSum += rtt;
+						batchRttSamples++;
 					}
 				}
-				
-				// RTT update (average of this NACK frame)
-				if (rttSamples > 0 && hybridControl != null) {
-					long avgRtt = totalRtt / rttSamples;
-					hybridControl.updateRtt(avgRtt);
-					lastRttMeasurement = receiveTime;
-				}
-				
-				// NACK frame feedback - bandwidth ve congestion update
-				// onNackFrameReceived() zaten loss'u handle ediyor, çift sayma yok!
-				if(hybridControl != null) {
-					hybridControl.onNackFrameReceived(receivedCount, lossCount);
+			}
+		}
+		
+		// Extended ranges: gaps between blocks were received, blocks are holes
+		if(extended) {
+			int next = base + 64;
+			int blocks = NackFrame.blockCount(ctrl);
+			for(int b = 0; b < blocks; b++) {
+				int start = Math.max(next, NackFrame.blockStart(ctrl, b));
+				int end = (int) Math.min((long) NackFrame.blockStart(ctrl, b) + NackFrame.blockLength(ctrl, b), coveredUpTo);
+				if(start >= end) continue; // Malformed / overlaps the mask
+				if(tracker != null) {
+					batchReceived += tracker.onAckedRange(next, start);
 				}
-				
-				// Transfer completion kontrolü - eğer base + 64 >= totalSeq ve tüm bitler 1 ise tamamlanmış
-				int remainingPackets = totalSeq - base;
-				if(remainingPackets <= 64) {
-					// Son 64 paket içinde - tümünün alındığını kontrol et
-					long expectedMask = (1L << remainingPackets) - 1; // remainingPackets kadar bit 1
-					if((mask & expectedMask) == expectedMask) {
-						System.out.println("Transfer completed detected by sender! All packets received.");
-						if(onTransferComplete != null) {
-							try {
-								onTransferComplete.run();
-							} catch(Exception e) {
-								System.err.println("Transfer completion callback error: " + e);
-							}
-						}
-						return; // Listener'ı sonlandır
-					}
+				for(int seq = start; seq < end; seq++) {
+					if(tracker != null && !tracker.wasSent(seq)) continue;
+					batchLost += onHole(seq, true, tracker, receiveTime - reorderWindow);
 				}
-				
-			}catch(IOException e) {
-				System.out.println("IO Error: " + e);
-				LockSupport.parkNanos(backoffNs);
+				next = end;
+			}
+			if(tracker != null) {
+				batchReceived += tracker.onAckedRange(next, coveredUpTo);
 			}
 		}
 		
-		// Cleanup
-		packetSendTimes.clear();
+		// Transfer completion kontrolü - eğer base + 64 >= totalSeq ve tüm bitler 1 ise tamamlanmış
+		int remainingPackets = totalSeq - base;
+		if(remainingPackets <= 64) {
+			// Son 64 paket içinde - tümünün alındığını kontrol et
+			// remainingPackets kadar bit 1 (1L << 64 == 1, so 64 needs all bits explicitly)
+			long expectedMask = remainingPackets == 64 ? -1L : (1L << remainingPackets) - 1;
+			if((mask & expectedMask) == expectedMask) {
+				System.out.println("Transfer completed detected by sender! All packets received.");
+				return true; // Listener'ı sonlandır
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Batch bookkeeping: one RTT update and one congestion-control feedback
+	 * call for all frames drained together
+	 */
+	private void endBatch(long receiveTime) {
+		// RTT update (average of this batch)
+		if (batchRttSamples > 0 && congestionControl != null) {
+			rttSampleCount += batchRttSamples;
+			long avgRtt = batchRttSum / batchRttSamples;
+			congestionControl.updateRtt(avgRtt);
+			lastRttMeasurement = receiveTime;
+		}
+		
+		// NACK frame feedback - bandwidth ve congestion update
+		// onNackFrameReceived() zaten loss'u handle ediyor, çift sayma yok!
+		if(congestionControl != null && batchFrames > 0) {
+			congestionControl.onNackFrameReceived(batchReceived, batchLost);
+		}
+	}
+	
+	/**
+	 * Re-offer a reported hole; holes below the highest received sequence
+	 * count as loss (once per seq) and leave the flight
+	 *
+	 * Holes sent after sentBefore are left alone: stripes and extended
+	 * frames report holes hundreds of packets behind the highest sequence,
+	 * and a recent one is usually still queued behind a faster stripe. The
+	 * next frame reports it again if it really was lost. Tail holes (nothing
+	 * later received yet) wait a full RTO: there is no evidence of loss at
+	 * all, only that the packet has not arrived.
+	 *
+	 * @return 1 if this is a newly counted loss
+	 */
+	private int onHole(int seq, boolean belowHighest, InFlightTracker tracker, long sentBefore) {
+		if(seq < 0 || seq >= totalSeq) return 0;
+		long sendTime = packetSendTimes.get(seq);
+		if(sendTime != SeqTimeRing.NONE && sendTime > sentBefore) {
+			return 0; // May still be in flight (reordering)
+		}
+		// Already pending seqs are deduped inside the queue
+		retxQueue.offer(seq);
+		if(!belowHighest) return 0;
+		if(tracker != null) {
+			tracker.onLost(seq); // Out of flight until retransmitted
+		}
+		return lossReported.set(seq) ? 1 : 0;
 	}
 	
 	/**
-	 * Clean up old packet timestamps to prevent memory leak
+	 * RACK-style reordering window: a hole younger than ~1.25 sRTT may
+	 * simply not have arrived yet
 	 */
-	private void cleanupOldTimestamps(long now) {
-		packetSendTimes.entrySet().removeIf(entry -> 
-			now - entry.getValue() > 30_000_000_000L // 30 seconds old
-		);
+	private long reorderWindowNs() {
+		CongestionController cc = congestionControl;
+		if(cc == null) return 0;
+		long srtt = cc.getSmoothedRtt();
+		return srtt + srtt / 4;
 	}
 	
 	/**
 	 * Get current RTT statistics
 	 */
 	public String getRttStats() {
-		if (hybridControl != null) {
-			return String.format("RTT: %.1fms, Pending: %d", 
-				hybridControl.getSmoothedRtt() / 1_000_000.0, 
-				packetSendTimes.size());
+		if (congestionControl != null) {
+			return String.format("RTT: %.1fms, Samples: %d (ring %d slots)", 
+				congestionControl.getSmoothedRtt() / 1_000_000.0, 
+				rttSampleCount, packetSendTimes.capacity());
 		}
 		return "RTT: N/A";
 	}
@@ -7,20 +7,22 @@ import java.nio.file.Paths;
 
 /**
  * Enhanced P2P File Transfer Sender with QUIC-inspired congestion control
- * Kullanım: java EnhancedP2PSender <bind_port> <target_ip> <target_port> <file_path>
+ * Kullanım: java EnhancedP2PSender <bind_port> <target_ip> <target_port> <file_path> [stripes] [cc]
  */
 public class EnhancedP2PSender {
     
     public static void main(String[] args) {
         if (args.length < 4) {
             System.out.println("=== Enhanced P2P File Transfer Sender ===");
-            System.out.println("Kullanım: java EnhancedP2PSender <bind_port> <target_ip> <target_port> <file_path>");
+            System.out.println("Kullanım: java EnhancedP2PSender <bind_port> <target_ip> <target_port> <file_path> [stripes] [cc]");
             System.out.println("");
             System.out.println("Parametreler:");
             System.out.println("  bind_port   : Kendi bilgisayarınızda bind edilecek port");
             System.out.println("  target_ip   : Hedef bilgisayarın IP adresi");
             System.out.println("  target_port : Hedef bilgisayarın port numarası");
             System.out.println("  file_path   : Gönderilecek dosyanın yolu");
+            System.out.println("  stripes     : (opsiyonel) Paralel soket/thread sayısı, 1-" + HandShake_Packet.MAX_STRIPES + " (varsayılan 1)");
+            System.out.println("  cc          : (opsiyonel) Congestion control: hybrid, cubic, bbr (varsayılan " + CongestionController.DEFAULT_ALGORITHM + ", -Dturbo.cc)");
             System.out.println("");
             System.out.println("Özellikler:");
             System.out.println("  ⚡ QUIC-inspired congestion control");
@@ -31,6 +33,8 @@ public class EnhancedP2PSender {
             System.out.println("Örnekler:");
             System.out.println("  java EnhancedP2PSender 8888 192.168.1.101 9999 test_file.txt");
             System.out.println("  java EnhancedP2PSender 0 127.0.0.1 9999 large_file.bin");
+            System.out.println("  java EnhancedP2PSender 0 10.0.0.2 9999 huge_file.bin 4");
+            System.out.println("  java EnhancedP2PSender 0 10.0.0.2 9999 huge_file.bin 1 bbr");
             return;
         }
         
@@ -38,6 +42,8 @@ public class EnhancedP2PSender {
         String targetIp = args[1];
         int targetPort;
         String filePath = args[3];
+        int stripes = 1;
+        String congestionAlgorithm = CongestionController.DEFAULT_ALGORITHM;
         
         try {
             bindPort = Integer.parseInt(args[0]);
@@ -47,6 +53,29 @@ public class EnhancedP2PSender {
             return;
         }
         
+        if (args.length > 4) {
+            try {
+                stripes = Integer.parseInt(args[4]);
+            } catch (NumberFormatException e) {
+                System.err.println("❌ Hata: Stripe sayısı geçersiz: " + args[4]);
+                return;
+            }
+            if (stripes < 1 || stripes > HandShake_Packet.MAX_STRIPES) {
+                System.err.println("❌ Hata: Stripe sayısı 1-" + HandShake_Packet.MAX_STRIPES + " arasında olmalı: " + stripes);
+                return;
+            }
+        }
+        
+        if (args.length > 5) {
+            congestionAlgorithm = args[5];
+            try {
+                CongestionController.create(congestionAlgorithm);
+            } catch (IllegalArgumentException e) {
+                System.err.println("❌ Hata: " + e.getMessage());
+                return;
+            }
+        }
+        
         if (bindPort < 0 || bindPort > 65535 || targetPort < 1 || targetPort > 65535) {
             System.err.println("❌ Hata: Port numaraları geçersiz (bind_port: 0-65535, target_port: 1-65535)");
             return;
@@ -105,6 +134,8 @@ public class EnhancedP2PSender {
             
             // Enhanced FileTransferSender kullan
             EnhancedFileTransferSender sender = new EnhancedFileTransferSender(senderChannel);
+            sender.setStripeCount(stripes);
+            sender.setCongestionControl(congestionAlgorithm);
             long fileId = System.currentTimeMillis(); // Unique file ID
             
             System.out.println("🚀 Enhanced file transfer başlatılıyor...");
@@ -129,7 +160,7 @@ public class EnhancedP2PSender {
             System.out.println("⏱️  Transfer süresi: " + String.format("%.2f", transferTime) + " saniye");
             System.out.println("🚀 Transfer hızı: " + String.format("%.2f", throughputMBps) + " MB/s (" + 
                              String.format("%.1f", throughputMbps) + " Mbps)");
-            System.out.println("🎯 Congestion control: QUIC-inspired hybrid algorithm");
+            System.out.println("🎯 Congestion control: " + congestionAlgorithm);
             
         } catch (IOException e) {
             System.err.println("❌ IO Hatası: " + e.getMessage());
@@ -148,8 +179,6 @@ public class EnhancedP2PSender {
                 }
             }
             
-            // Thread pool'u kapat
-            EnhancedFileTransferSender.shutdownThreadPool();
             System.out.println("🟢 Enhanced P2P Sender sona erdi");
         }
     }
@@ -0,0 +1,136 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.DatagramChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FEC throughput vs overhead over a lossy local relay
+ *
+ * For every loss rate, one NACK transfer without and one with XOR parity,
+ * both through a LossyRelay (sender -> receiver datagrams dropped at random,
+ * same one-way delay both ways) in one process:
+ *
+ *   java FecBenchmark 32 0,5,15 10
+ *   java -Dturbo.cc=cubic FecBenchmark 16 5 10
+ *
+ * Arguments: file size in MB (default 32), loss rates in percent (default
+ * 0,5,15), one-way delay in ms (default 10). Reports goodput, retransmissions,
+ * parity overhead (parity / data packets), packets rebuilt from parity and
+ * byte-exactness. The loss pattern is seeded per loss rate, so both runs of
+ * a row see the same drops. Transfer logs are silenced; the first row
+ * includes JIT warm-up.
+ */
+public class FecBenchmark {
+
+    private static final int SOCKET_BUFFER = 16 * 1024 * 1024;
+
+    private static final long TRANSFER_TIMEOUT_S = 300;
+
+    public static void main(String[] args) throws Exception {
+        int sizeMb = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        String losses = args.length > 1 ? args[1] : "0,5,15";
+        long delayMs = args.length > 2 ? Long.parseLong(args[2]) : 10;
+
+        Path dir = Files.createTempDirectory("turbo-fec");
+        Path source = dir.resolve("source.bin");
+        byte[] data = new byte[sizeMb << 20];
+        new Random(42).nextBytes(data);
+        Files.write(source, data);
+        int totalSeq = (data.length + FileTransferReceiver.SLICE_SIZE - 1) / FileTransferReceiver.SLICE_SIZE;
+
+        System.out.println("=== FEC Benchmark ===");
+        System.out.println("📁 " + sizeMb + " MB (" + totalSeq + " packets), one-way delay " + delayMs + " ms, cc "
+            + CongestionController.DEFAULT_ALGORITHM + ", N=" + FecEncoder.BLOCK_SIZE + ", K max " + FecEncoder.MAX_PARITY);
+        System.out.println(String.format("%6s %5s %10s %10s %8s %10s %10s %5s", "loss%", "fec", "wall(s)", "Mbps",
+            "retx", "overhead%", "recovered", "ok"));
+
+        try {
+            for (String l : losses.split(",")) {
+                double lossPct = Double.parseDouble(l.trim());
+                run(lossPct, false, delayMs, source, dir, data.length, totalSeq);
+                run(lossPct, true, delayMs, source, dir, data.length, totalSeq);
+            }
+        } finally {
+            Files.deleteIfExists(source);
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    private static void run(double lossPct, boolean fec, long delayMs, Path source, Path dir, long fileSize, int totalSeq) throws Exception {
+        Path output = dir.resolve("recv.bin");
+        Files.deleteIfExists(output);
+
+        FileTransferReceiver receiver = new FileTransferReceiver();
+        receiver.filePath = output;
+        EnhancedFileTransferSender[] senderRef = new EnhancedFileTransferSender[1];
+        CountDownLatch done = new CountDownLatch(2);
+        boolean failed = false;
+
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+        PrintStream silent = new PrintStream(OutputStream.nullOutputStream());
+        System.setOut(silent);
+        System.setErr(silent);
+
+        long start = System.nanoTime();
+        try (DatagramChannel rx = open(); DatagramChannel tx = open()) {
+            rx.bind(new InetSocketAddress("127.0.0.1", 0));
+            receiver.channel = rx;
+            try (LossyRelay relay = new LossyRelay(new InetSocketAddress("127.0.0.1", 0),
+                    (InetSocketAddress) rx.getLocalAddress(), lossPct / 100.0, delayMs * 1_000_000L,
+                    Double.doubleToLongBits(lossPct)).start()) {
+                SessionThreads.start("bench-rx", () -> {
+                    try {
+                        receiver.ReceiveData();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+
+                tx.bind(new InetSocketAddress("127.0.0.1", 0));
+                tx.connect(relay.getAddress());
+                EnhancedFileTransferSender sender = new EnhancedFileTransferSender(tx);
+                sender.setFecEnabled(fec);
+                senderRef[0] = sender;
+                SessionThreads.start("bench-tx", () -> {
+                    try {
+                        sender.sendFile(source, 1);
+                    } catch (Exception e) {
+                        System.err.println("Send failed: " + e);
+                    } finally {
+                        done.countDown();
+                    }
+                });
+                failed = !done.await(TRANSFER_TIMEOUT_S, TimeUnit.SECONDS);
+            }
+        } finally {
+            System.setOut(out);
+            System.setErr(err);
+        }
+        double wallS = (System.nanoTime() - start) / 1e9;
+
+        boolean ok = !failed && Files.exists(output) && Files.mismatch(source, output) == -1;
+        EnhancedFileTransferSender sender = senderRef[0];
+        NackSender feedback = receiver.feedback;
+        System.out.println(String.format("%6.1f %5s %10.2f %10.1f %8d %10.1f %10d %5s", lossPct, fec ? "on" : "off",
+            wallS, fileSize * 8.0 / 1e6 / wallS,
+            sender.getRetransmissionCount(),
+            sender.getParityPacketCount() * 100.0 / totalSeq,
+            feedback != null ? feedback.fec.getRecovered() : 0,
+            ok ? "yes" : "NO"));
+        Files.deleteIfExists(output);
+    }
+
+    private static DatagramChannel open() throws java.io.IOException {
+        DatagramChannel ch = DatagramChannel.open();
+        ch.setOption(StandardSocketOptions.SO_SNDBUF, SOCKET_BUFFER);
+        ch.setOption(StandardSocketOptions.SO_RCVBUF, SOCKET_BUFFER);
+        return ch;
+    }
+}
@@ -0,0 +1,209 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.CRC32C;
+
+/**
+ * Receiver-side XOR FEC recovery (parity layout: see FecEncoder)
+ *
+ * Parity packets are kept in a fixed table indexed by (first seq, j). A
+ * parity group is recoverable once exactly one member is missing: the
+ * parity is XORed with the members already written to the file mapping and
+ * the result goes through the normal data path (CRC, write, bitmap).
+ * Recovery is tried when the parity arrives and again before every NACK
+ * frame, so a hole parity can repair is never NACKed.
+ *
+ * A colliding group overwrites its table slot; the evicted group simply
+ * falls back to NACK / retransmission.
+ *
+ * Thread-safety: synchronized (receive, stripe and NACK feedback threads).
+ * Lock order is decoder -> NackSender, never the reverse.
+ */
+public final class FecDecoder {
+
+    /** Parity groups held at once (power of two) */
+    public static final int TABLE_SIZE = 1024;
+
+    private static final int PAYLOAD_SIZE = EnhancedFileTransferSender.SLICE_SIZE;
+    private static final int HEADER_SIZE = CRC32C_Packet.HEADER_SIZE;
+
+    private final NackSender owner;
+
+    // Parity table (payload storage allocated on the first parity packet)
+    private ByteBuffer[] parity = null;
+    private final int[] first = new int[TABLE_SIZE];
+    private final int[] layout = new int[TABLE_SIZE];
+    private final int[] length = new int[TABLE_SIZE];
+    private final boolean[] used = new boolean[TABLE_SIZE];
+    private int usedCount = 0;
+
+    // Scratch buffers for rebuilding one packet
+    private final ByteBuffer member = ByteBuffer.allocateDirect(PAYLOAD_SIZE).order(ByteOrder.BIG_ENDIAN);
+    private final ByteBuffer frame = ByteBuffer.allocateDirect(HEADER_SIZE + PAYLOAD_SIZE).order(ByteOrder.BIG_ENDIAN);
+    private final ByteBuffer work;
+    private final CRC32C crc = new CRC32C();
+
+    // Statistics
+    private volatile long parityReceived = 0;
+    private volatile long recovered = 0;
+    private volatile long evicted = 0;
+    private volatile long rejected = 0;
+
+    public FecDecoder(NackSender owner) {
+        this.owner = owner;
+        frame.clear().position(HEADER_SIZE);
+        this.work = frame.slice().order(ByteOrder.BIG_ENDIAN);
+        frame.clear();
+    }
+
+    /**
+     * Parity packet arrived (header at position 0, CRC not yet checked)
+     */
+    public synchronized void onParity(ByteBuffer packet, CRC32C packetCrc) {
+        int len = CRC32C_Packet.plen(packet) & ~CRC32C_Packet.PARITY_FLAG;
+        int groupFirst = CRC32C_Packet.seqNo(packet);
+        int groupLayout = CRC32C_Packet.total(packet);
+        if (len <= 0 || len > PAYLOAD_SIZE || packet.limit() < HEADER_SIZE + len || !isValidLayout(groupFirst, groupLayout)) {
+            rejected++;
+            return;
+        }
+
+        ByteBuffer payload = packet.duplicate();
+        payload.position(HEADER_SIZE).limit(HEADER_SIZE + len);
+        packetCrc.reset();
+        packetCrc.update(payload.duplicate());
+        if ((int) packetCrc.getValue() != CRC32C_Packet.crc32(packet)) {
+            rejected++;
+            return;
+        }
+
+        if (parity == null) {
+            allocateTable();
+        }
+        int j = FecEncoder.layoutJ(groupLayout);
+        int slot = (groupFirst * 31 + j) & (TABLE_SIZE - 1);
+        if (used[slot]) {
+            if (first[slot] == groupFirst && layout[slot] == groupLayout) return; // Duplicate
+            evicted++;
+        } else {
+            used[slot] = true;
+            usedCount++;
+        }
+        first[slot] = groupFirst;
+        layout[slot] = groupLayout;
+        length[slot] = len;
+        ByteBuffer dst = parity[slot];
+        dst.clear();
+        dst.put(payload);
+        parityReceived++;
+
+        tryRecover(slot);
+    }
+
+    /**
+     * Rebuild every recoverable packet (called before a NACK frame is built)
+     *
+     * @return Number of packets recovered
+     */
+    public synchronized int recoverPending() {
+        if (usedCount == 0) return 0;
+        int count = 0;
+        for (int slot = 0; slot < TABLE_SIZE && usedCount > 0; slot++) {
+            if (used[slot] && tryRecover(slot)) count++;
+        }
+        return count;
+    }
+
+    private boolean tryRecover(int slot) {
+        int groupFirst = first[slot];
+        int groupLayout = layout[slot];
+        int stride = FecEncoder.layoutStride(groupLayout);
+        int n = FecEncoder.layoutN(groupLayout);
+        int k = FecEncoder.layoutK(groupLayout);
+
+        int missing = -1;
+        for (int i = FecEncoder.layoutJ(groupLayout); i < n; i += k) {
+            int seq = groupFirst + i * stride;
+            if (!owner.isReceived(seq)) {
+                if (missing >= 0) return false; // Two or more holes - wait for NACK repair
+                missing = seq;
+            }
+        }
+        if (missing < 0) {
+            free(slot); // Group complete, parity no longer needed
+            return false;
+        }
+
+        // missing = parity ^ every other member
+        int len = length[slot];
+        ByteBuffer src = parity[slot];
+        src.clear().limit(len);
+        work.clear();
+        work.put(src);
+        for (int i = FecEncoder.layoutJ(groupLayout); i < n; i += k) {
+            int seq = groupFirst + i * stride;
+            if (seq == missing) continue;
+            if (!owner.readPayload(seq, member)) return false;
+            FecEncoder.xorInto(work, member, member.remaining());
+        }
+
+        int size = owner.payloadSize(missing);
+        if (size <= 0 || size > len) {
+            free(slot);
+            return false;
+        }
+        work.clear().limit(size);
+        crc.reset();
+        crc.update(work);
+
+        frame.clear();
+        frame.putLong(CRC32C_Packet.OFF_FILE_ID, owner.fileId);
+        frame.putInt(CRC32C_Packet.OFF_SEQ, missing);
+        frame.putInt(CRC32C_Packet.OFF_TOTAL, owner.total_seq);
+        frame.putShort(CRC32C_Packet.OFF_PLEN, (short) size);
+        frame.putInt(CRC32C_Packet.OFF_CRC, (int) crc.getValue());
+        frame.limit(HEADER_SIZE + size);
+        owner.onData(frame, crc);
+
+        free(slot);
+        recovered++;
+        return true;
+    }
+
+    private boolean isValidLayout(int groupFirst, int groupLayout) {
+        int stride = FecEncoder.layoutStride(groupLayout);
+        int n = FecEncoder.layoutN(groupLayout);
+        int k = FecEncoder.layoutK(groupLayout);
+        int j = FecEncoder.layoutJ(groupLayout);
+        if (stride <= 0 || n <= 0 || k <= 0 || j >= k || j >= n || groupFirst < 0) return false;
+        return groupFirst + (long) (n - 1) * stride < owner.total_seq;
+    }
+
+    private void free(int slot) {
+        if (used[slot]) {
+            used[slot] = false;
+            usedCount--;
+        }
+    }
+
+    private void allocateTable() {
+        ByteBuffer store = ByteBuffer.allocateDirect(TABLE_SIZE * PAYLOAD_SIZE).order(ByteOrder.BIG_ENDIAN);
+        parity = new ByteBuffer[TABLE_SIZE];
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            store.clear().position(i * PAYLOAD_SIZE).limit((i + 1) * PAYLOAD_SIZE);
+            parity[i] = store.slice().order(ByteOrder.BIG_ENDIAN);
+        }
+    }
+
+    public long getRecovered() {
+        return recovered;
+    }
+
+    public long getParityReceived() {
+        return parityReceived;
+    }
+
+    public String getStats() {
+        return String.format("FEC: parity received=%d, recovered=%d, evicted=%d, rejected=%d, pending groups=%d",
+            parityReceived, recovered, evicted, rejected, usedCount);
+    }
+}
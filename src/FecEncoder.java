@@ -0,0 +1,211 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.CRC32C;
+
+/**
+ * Sender-side XOR forward error correction
+ *
+ * Each sending stripe groups its own sequences (first, first + stride, ...)
+ * into blocks of N data packets and follows every block with K parity
+ * packets. N is BLOCK_SIZE, or half the congestion window when that is
+ * smaller, so parity reaches the receiver before the block's holes are
+ * NACKed. Parity j is the XOR of block members j, j + K, j + 2K, ...
+ * (interleaved), so a block survives up to K losses as long as no two of
+ * them share a parity group - a burst of K consecutive losses is always
+ * recoverable. The receiver (FecDecoder) rebuilds a missing member before
+ * it would be NACKed, saving the retransmission round trip.
+ *
+ * K follows the loss rate reported by the congestion controller:
+ * K = ceil(2 * N * loss) within [1, min(MAX_PARITY, N / 2)]. It rises at once and falls
+ * by one per block, because packets FEC repairs are no longer reported lost
+ * and the observed rate drops while it works.
+ *
+ * Parity packets reuse the data header with PARITY_FLAG in the length
+ * field, seq = first data sequence of the block and total = layout
+ * (stride, n, k, j). They are paced like data but not tracked in flight
+ * and never retransmitted.
+ *
+ * Thread-safety: NOT thread-safe, one encoder per sending stripe.
+ */
+public final class FecEncoder {
+
+    /** -Dturbo.fec=true enables parity on the sender (receivers always decode) */
+    public static final boolean ENABLED = Boolean.getBoolean("turbo.fec");
+
+    /** Data packets per block (N) */
+    public static final int BLOCK_SIZE = Math.max(2, Math.min(255, Integer.getInteger("turbo.fec.block", 32)));
+
+    /** Smallest block when the congestion window is small */
+    public static final int MIN_BLOCK_SIZE = Math.min(BLOCK_SIZE, 4);
+
+    /** Upper bound for parity packets per block (K) */
+    public static final int MAX_PARITY = Math.max(1, Math.min(16, Integer.getInteger("turbo.fec.max", 8)));
+
+    private static final int PAYLOAD_SIZE = EnhancedFileTransferSender.SLICE_SIZE;
+
+    // Parity header "total" field: stride | n | k | j, one byte each
+    public static int layout(int stride, int n, int k, int j) {
+        return (stride & 0xFF) << 24 | (n & 0xFF) << 16 | (k & 0xFF) << 8 | (j & 0xFF);
+    }
+
+    public static int layoutStride(int layout) { return (layout >>> 24) & 0xFF; }
+    public static int layoutN(int layout)      { return (layout >>> 16) & 0xFF; }
+    public static int layoutK(int layout)      { return (layout >>> 8) & 0xFF; }
+    public static int layoutJ(int layout)      { return layout & 0xFF; }
+
+    private final int stride;
+    private final CongestionController congestionControl;
+
+    // Parity accumulators, one per interleave group
+    private final ByteBuffer[] parity = new ByteBuffer[MAX_PARITY];
+    private final int[] parityLen = new int[MAX_PARITY];
+
+    private int first = -1;
+    private int count = 0;
+
+    // Published for the retransmission thread: open block start, last closed block
+    private volatile int openFirst = Integer.MAX_VALUE;
+    private volatile int closedFirst = Integer.MAX_VALUE;
+    private volatile long closedAtNs = 0;
+    private int n = BLOCK_SIZE;
+    private int k = 1;
+
+    // Statistics
+    private volatile long dataPackets = 0;
+    private volatile long parityPackets = 0;
+    private volatile long blocks = 0;
+
+    /**
+     * Create encoder
+     *
+     * @param stride            Distance between consecutive sequences of this stripe
+     * @param congestionControl Loss rate source for K (null = fixed K of 1)
+     */
+    public FecEncoder(int stride, CongestionController congestionControl) {
+        this.stride = Math.max(1, stride);
+        this.congestionControl = congestionControl;
+        for (int j = 0; j < MAX_PARITY; j++) {
+            parity[j] = ByteBuffer.allocateDirect(PAYLOAD_SIZE).order(ByteOrder.BIG_ENDIAN);
+        }
+    }
+
+    /**
+     * Add the next data packet of this stripe
+     *
+     * @param payload Payload bytes (position 0, limit = length)
+     * @return true when the block is full: emit its parity, then endBlock()
+     */
+    public boolean add(int seq, ByteBuffer payload) {
+        if (count == 0) {
+            startBlock(seq);
+        }
+        int j = count % k;
+        int len = payload.remaining();
+        xorInto(parity[j], payload, len);
+        if (len > parityLen[j]) parityLen[j] = len;
+
+        count++;
+        dataPackets++;
+        return count == n;
+    }
+
+    /** True if a partial block waits for its parity (end of stripe) */
+    public boolean hasPending() {
+        return count > 0;
+    }
+
+    /** Parity packets of the current block (a short block may have fewer groups than K) */
+    public int parityCount() {
+        return Math.min(k, count);
+    }
+
+    /**
+     * Encode parity j of the current block into the next ring slot
+     */
+    public PacketRing.Slot encodeParity(int j, PacketRing ring, CRC32C crc, long fileId) {
+        return ring.encodeParity(crc, fileId, first, layout(stride, count, k, j), parity[j], parityLen[j]);
+    }
+
+    /**
+     * Encode parity j of the current block into a claimed slot (pipelined mode)
+     */
+    public void encodeParityInto(int j, PacketRing ring, PacketRing.Slot slot, CRC32C crc, long fileId) {
+        ring.encodeParityInto(slot, crc, fileId, first, layout(stride, count, k, j), parity[j], parityLen[j]);
+    }
+
+    /**
+     * Parity of the current block sent - next add() starts a new block
+     */
+    public void endBlock() {
+        parityPackets += parityCount();
+        blocks++;
+        count = 0;
+        closedFirst = first;
+        closedAtNs = System.nanoTime();
+        openFirst = Integer.MAX_VALUE;
+    }
+
+    /**
+     * True if parity may still repair seq (one of this stripe's sequences):
+     * its block is open, or its parity left less than graceNs ago. The
+     * retransmission thread skips such holes; the next NACK re-offers them.
+     */
+    public boolean mayRepair(int seq, long nowNs, long graceNs) {
+        if (seq >= openFirst) return true;
+        return seq >= closedFirst && nowNs - closedAtNs < graceNs;
+    }
+
+    private void startBlock(int seq) {
+        first = seq;
+        openFirst = seq;
+
+        // A block must close within about one window, or its holes are NACKed before the parity arrives
+        n = BLOCK_SIZE;
+        int target = 1;
+        if (congestionControl != null) {
+            long cwndPackets = congestionControl.getCongestionWindow() / PAYLOAD_SIZE;
+            n = (int) Math.max(MIN_BLOCK_SIZE, Math.min(BLOCK_SIZE, cwndPackets / 2));
+            target = (int) Math.ceil(2.0 * n * congestionControl.getLossRate());
+        }
+        int cap = Math.max(1, Math.min(MAX_PARITY, n / 2));
+        target = Math.max(1, Math.min(cap, target));
+        k = target >= k ? target : Math.min(cap, k - 1);
+
+        for (int j = 0; j < MAX_PARITY; j++) {
+            ByteBuffer acc = parity[j];
+            int len = parityLen[j];
+            int i = 0;
+            for (; i + 8 <= len; i += 8) {
+                acc.putLong(i, 0L);
+            }
+            for (; i < len; i++) {
+                acc.put(i, (byte) 0);
+            }
+            parityLen[j] = 0;
+        }
+    }
+
+    /**
+     * acc[0, len) ^= src[position, position + len) - both big-endian, word at a time
+     */
+    static void xorInto(ByteBuffer acc, ByteBuffer src, int len) {
+        int base = src.position();
+        int i = 0;
+        for (; i + 8 <= len; i += 8) {
+            acc.putLong(i, acc.getLong(i) ^ src.getLong(base + i));
+        }
+        for (; i < len; i++) {
+            acc.put(i, (byte) (acc.get(i) ^ src.get(base + i)));
+        }
+    }
+
+    public long getParityPackets() {
+        return parityPackets;
+    }
+
+    public String getStats() {
+        long data = Math.max(1, dataPackets);
+        return String.format("FEC: N=%d, K=%d, blocks=%d, parity=%d (%.1f%% overhead)",
+            n, k, blocks, parityPackets, parityPackets * 100.0 / data);
+    }
+}
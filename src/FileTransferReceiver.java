@@ -1,5 +1,8 @@
 import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
 import java.nio.channels.DatagramChannel;
 import java.nio.channels.FileChannel;
 import java.nio.ByteBuffer;
@@ -10,6 +13,7 @@ import java.nio.file.StandardOpenOption;
 import java.util.concurrent.locks.LockSupport;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.Locale;
 
 public class FileTransferReceiver {	
 	public  DatagramChannel channel;
@@ -21,7 +25,10 @@ public class FileTransferReceiver {
 	public Path filePath;
 	public MappedByteBuffer mem_buf;  // Legacy support - will be replaced by ChunkManager
 	public ChunkManager chunkManager;  // NEW: Chunk-based I/O for unlimited file size
-	public static final long MAX_FILE_SIZE = 256L << 20;
+	public DurabilityEngine.Policy durabilityPolicy = DurabilityEngine.DEFAULT_POLICY;
+	public DurabilityEngine durability; // When received data is forced to disk
+	public volatile NackSender feedback; // NACK receive state of the current transfer (stats)
+	public DatagramChannel[] stripeChannels = new DatagramChannel[0]; // Striped mode extra sockets
 	public static final int SLICE_SIZE = 1450; // Maximum payload without fragmentation
 	public static final int HEADER_SIZE = 22;
 	public static final int PACKET_SIZE = SLICE_SIZE + HEADER_SIZE;
@@ -29,13 +36,16 @@ public class FileTransferReceiver {
 	// Transfer timing
 	private long transferStartTime = 0;
 	private long transferEndTime = 0;
+	private long handshakeRttNs = 0; // ACK -> SYN_ACK round trip
+	private boolean fountainMode = false; // Sender requested rateless mode
+	private int fountainWindowSeqs = 0; // Sender's packets per mapping window (fountain blocks stay inside one)
 	
 	public  boolean handshake()
 	{
 		if(channel == null){
 			throw new IllegalStateException("Datagram Channel is null you must bind and connect first");
 		}
-		ByteBuffer rcv_syn = ByteBuffer.allocateDirect(HandShake_Packet.HEADER_SIZE)
+		ByteBuffer rcv_syn = ByteBuffer.allocateDirect(HandShake_Packet.MAX_SIZE)
 			.order(ByteOrder.BIG_ENDIAN);
 
 		rcv_syn.clear();
@@ -70,11 +80,11 @@ public class FileTransferReceiver {
 				System.out.println("📬 Received packet from: " + senderAddress + " (size: " + rcv_syn.position() + " bytes)");
 				
 				r = rcv_syn.position();
-				if( r == 0 || r != HandShake_Packet.HEADER_SIZE || HandShake_Packet.get_signal(rcv_syn) != HandShake_Packet.SYN) {
+				if( r == 0 || r < HandShake_Packet.HEADER_SIZE || HandShake_Packet.get_signal(rcv_syn) != HandShake_Packet.SYN) {
 					rcv_syn.clear();
 					LockSupport.parkNanos(1_000_000); // 1ms bekleme
 				}
-			}while( r == 0 || r != HandShake_Packet.HEADER_SIZE || HandShake_Packet.get_signal(rcv_syn) != HandShake_Packet.SYN);
+			}while( r == 0 || r < HandShake_Packet.HEADER_SIZE || HandShake_Packet.get_signal(rcv_syn) != HandShake_Packet.SYN);
 		}catch(IOException e ){
 			System.err.println("IO Error during handshake: " + e);
 			return false;
@@ -83,6 +93,9 @@ public class FileTransferReceiver {
 		fileId = HandShake_Packet.get_file_Id(rcv_syn);
 		file_size = HandShake_Packet.get_file_size(rcv_syn);
 		total_seq = HandShake_Packet.get_total_seq(rcv_syn);
+		int requestedStripes = HandShake_Packet.get_stripes(rcv_syn, r);
+		fountainMode = (HandShake_Packet.get_syn_flags(rcv_syn, r) & HandShake_Packet.FLAG_FOUNTAIN) != 0;
+		fountainWindowSeqs = fountainMode ? HandShake_Packet.get_syn_window(rcv_syn, r) : 0;
 		
 		if(fileId != 0 && file_size != 0 && total_seq != 0)
 		 {
@@ -95,8 +108,21 @@ public class FileTransferReceiver {
 				 return false;
 			 }
 			 
+			 // Striped mode: one extra socket per additional stripe
+			 int[] stripePorts = new int[0];
+			 if(requestedStripes > 1 && !fountainMode) {
+				 try {
+					 stripePorts = openStripeChannels(requestedStripes - 1);
+				 } catch(IOException e) {
+					 System.err.println("⚠️  Stripe socket setup failed, falling back to single stream: " + e);
+					 closeStripeChannels();
+					 stripePorts = new int[0];
+				 }
+			 }
+			 
 			 HandShake_Packet ack_pkt = new HandShake_Packet();
-			ack_pkt.make_ACK(fileId, file_size, total_seq);
+			ack_pkt.make_ACK(fileId, file_size, total_seq, stripePorts, fountainMode ? HandShake_Packet.FLAG_FOUNTAIN : 0);
+			long ackSentNs = System.nanoTime();
 			try{
 			while(channel.write(ack_pkt.get_header().duplicate()) == 0)
 			{
@@ -106,47 +132,86 @@ public class FileTransferReceiver {
 		 	
 			rcv_syn.clear();
 
-			int t;
+			int t = 0;
 			
 			try{
 				do{
+				rcv_syn.clear();
 				t = channel.read(rcv_syn);
-				if(t == 0 || t < 9 || t > 13) 
+				if(t < HandShake_Packet.SYN_ACK_SIZE || HandShake_Packet.get_signal(rcv_syn) != HandShake_Packet.SYN_ACK) {
+					t = 0;
 					LockSupport.parkNanos(200_000);
-				}while(t == 0 || t < 9 || t > 13);
+				}
+				}while(t == 0);
 			}catch(IOException e){
 				System.err.println("SYN + ACK Packet State Error: " + e);
 			}
-			if(HandShake_Packet.get_signal(rcv_syn) == 0x11 && HandShake_Packet.get_file_Id(rcv_syn) == fileId) return true;
+			if(HandShake_Packet.get_signal(rcv_syn) == 0x11 && HandShake_Packet.get_file_Id(rcv_syn) == fileId) {
+				// ACK -> SYN_ACK: first RTT sample for NACK feedback timing
+				handshakeRttNs = System.nanoTime() - ackSentNs;
+				connectStripeChannels(senderAddress, rcv_syn, t);
+				return true;
+			}
 
 		 }
 
 		return false;
 	}
 	
+	private int[] openStripeChannels(int count) throws IOException {
+		InetSocketAddress local = (InetSocketAddress) channel.getLocalAddress();
+		stripeChannels = new DatagramChannel[count];
+		int[] ports = new int[count];
+		for(int i = 0; i < count; i++) {
+			DatagramChannel ch = DatagramChannel.open();
+			stripeChannels[i] = ch;
+			ch.setOption(StandardSocketOptions.SO_RCVBUF, 16 * 1024 * 1024);
+			ch.bind(new InetSocketAddress(local.getAddress(), 0));
+			ports[i] = ((InetSocketAddress) ch.getLocalAddress()).getPort();
+		}
+		System.out.println("🔀 Striped mode: " + (count + 1) + " stripes, extra ports " + java.util.Arrays.toString(ports));
+		return ports;
+	}
+	
+	/**
+	 * Connect each stripe socket to the sender source port listed in the
+	 * SYN_ACK, so the kernel drops datagrams from anyone else. Senders that
+	 * list no ports leave the stripes unconnected; NackSender.Stripe then
+	 * only accepts datagrams from the sender's address.
+	 */
+	private void connectStripeChannels(SocketAddress sender, ByteBuffer synAck, int len) {
+		if(stripeChannels.length == 0) return;
+		if(HandShake_Packet.get_syn_ack_stripes(synAck, len) != stripeChannels.length + 1) {
+			System.out.println("⚠️  SYN_ACK lists no stripe source ports - stripes accept the sender address only");
+			return;
+		}
+		InetAddress address = ((InetSocketAddress) sender).getAddress();
+		try {
+			for(int i = 0; i < stripeChannels.length; i++) {
+				stripeChannels[i].connect(new InetSocketAddress(address, HandShake_Packet.get_syn_ack_port(synAck, i)));
+			}
+		} catch(IOException e) {
+			System.err.println("⚠️  Stripe connect failed, stripes accept the sender address only: " + e);
+		}
+	}
+	
+	private void closeStripeChannels() {
+		for(DatagramChannel ch : stripeChannels) {
+			if(ch == null) continue;
+			try {
+				ch.close();
+			} catch(IOException e) {
+				System.err.println("Stripe channel close error: " + e);
+			}
+		}
+		stripeChannels = new DatagramChannel[0];
+	}
+	
 	public boolean initialize()
 	{
 		try{
 			if(handshake()){
-				fc = FileChannel.open(filePath, StandardOpenOption.CREATE 
-						, StandardOpenOption.READ
-						, StandardOpenOption.WRITE 
-						,StandardOpenOption.SYNC);
-
-				fc.truncate(file_size);
-				
-				// Initialize ChunkManager for unlimited file size support
-				// Use existing FileChannel (READ_WRITE mode)
-				this.chunkManager = new ChunkManager(fc, file_size, SLICE_SIZE);
-				
-				// Legacy: Keep mem_buf for backward compatibility (will map first chunk)
-				if (file_size <= MAX_FILE_SIZE) {
-					mem_buf = fc.map(FileChannel.MapMode.READ_WRITE, 0, file_size);
-				} else {
-					System.out.println("⚠️  Large file detected (" + (file_size >> 20) + " MB) - using chunked I/O");
-					mem_buf = null; // Signal to use ChunkManager
-				}
-
+				openOutput();
 				 return true;
 
 			}
@@ -157,6 +222,99 @@ public class FileTransferReceiver {
 		return false;
 	
 	}
+	
+	/**
+	 * Create filePath with file_size bytes and map it (handshake values set)
+	 */
+	void openOutput() throws IOException {
+		// No SYNC: data goes through mappings, DurabilityEngine decides when it is forced
+		fc = FileChannel.open(filePath, StandardOpenOption.CREATE 
+				, StandardOpenOption.READ
+				, StandardOpenOption.WRITE);
+
+		fc.truncate(file_size);
+		
+		// Initialize ChunkManager for unlimited file size support
+		// Use existing FileChannel (READ_WRITE mode); fountain mode on the sender's window grid
+		this.chunkManager = new ChunkManager(fc, file_size, SLICE_SIZE, fountainWindowSeqs);
+		
+		// Legacy: single whole-file mapping when the file fits in one window
+		// (window 0, pinned until closeOutput())
+		if (chunkManager.getChunkCount() == 1) {
+			mem_buf = chunkManager.pinChunk(0);
+		} else if (chunkManager.getChunkCount() == 0) {
+			mem_buf = fc.map(FileChannel.MapMode.READ_WRITE, 0, 0);
+		} else {
+			System.out.println("📦 " + (file_size >> 20) + " MB file - chunked I/O in " + chunkManager.getChunkCount()
+				+ " windows of " + (chunkManager.getChunkSize() >> 20) + " MB");
+			mem_buf = null; // Signal to use ChunkManager
+		}
+		
+		durability = new DurabilityEngine(durabilityPolicy, fc, chunkManager, file_size, SLICE_SIZE);
+		durability.start();
+		System.out.println("💾 Durability: " + durabilityPolicy.name().toLowerCase(Locale.ROOT));
+	}
+	
+	/**
+	 * Make the received file durable per policy (before the completion frame)
+	 */
+	void completeOutput() {
+		if(durability == null) return;
+		try {
+			durability.complete();
+		} catch(IOException e) {
+			System.err.println("Durability flush failed: " + e);
+		}
+	}
+	
+	/**
+	 * Force and unmap the output mapping(s) and close the file
+	 * 
+	 * @param idle true if no receiver thread can write into mem_buf any more;
+	 *             otherwise the whole-file mapping stays pinned and the GC unmaps it
+	 */
+	void closeOutput(boolean idle) {
+		if(chunkManager == null) return;
+		if(durability != null) {
+			durability.close();
+		}
+		if(idle && mem_buf != null && chunkManager.getChunkCount() == 1) {
+			chunkManager.unpinChunk(0);
+		}
+		try {
+			chunkManager.close(); // Closes the shared FileChannel
+		} catch(IOException e) {
+			System.err.println("Output close failed: " + e);
+		}
+	}
+	
+	/**
+	 * Receiver state over the opened output (whole-file mapping or ChunkManager)
+	 */
+	NackSender newNackSender(DatagramChannel ch) {
+		CongestionController receiverCongestionControl = CongestionController.create(CongestionController.DEFAULT_ALGORITHM);
+		
+		// Use appropriate constructor based on file size
+		if (mem_buf != null) {
+			// Small file: use legacy MappedByteBuffer mode
+			NackSender sender = new NackSender(ch, fileId, file_size, total_seq, mem_buf, receiverCongestionControl);
+			sender.durability = durability;
+			feedback = sender;
+			return sender;
+		}
+		// Large file: use ChunkManager mode
+		NackSender sender = new NackSender(ch, fileId, file_size, total_seq, chunkManager, receiverCongestionControl);
+		sender.durability = durability;
+		feedback = sender;
+		return sender;
+	}
+	
+	/**
+	 * Mapped bytes one transfer of fileSize holds at most (ReceiverServer memory budget)
+	 */
+	static long mappedBytes(long fileSize) {
+		return ChunkManager.maxMappedBytes(fileSize);
+	}
 
 	public void ReceiveData(){
 	
@@ -166,17 +324,23 @@ public class FileTransferReceiver {
 	transferStartTime = System.currentTimeMillis();
 	System.out.println("📊 Data transfer başladı - timing başlatıldı");
 	
+	if(fountainMode) {
+		receiveFountain();
+		return;
+	}
+	
 	// Enhanced NackSender with congestion control - RTT measurement aktif!
-	HybridCongestionController receiverCongestionControl = new HybridCongestionController();
-	NackSender sender;
-	
-	// Use appropriate constructor based on file size
-	if (mem_buf != null) {
-		// Small file: use legacy MappedByteBuffer mode
-		sender = new NackSender(channel, fileId, file_size, total_seq, mem_buf, receiverCongestionControl);
-	} else {
-		// Large file: use ChunkManager mode
-		sender = new NackSender(channel, fileId, file_size, total_seq, chunkManager, receiverCongestionControl);
+	NackSender sender = newNackSender(channel);
+	
+	if(handshakeRttNs > 0) {
+		sender.setInitialRtt(handshakeRttNs);
+	}
+	
+	// Staged receive: drain threads only empty the sockets, verifiers/writers do CRC and copy
+	if(ReceivePipeline.DEFAULT_VERIFIERS > 0) {
+		sender.setReceivePipeline(ReceivePipeline.DEFAULT_VERIFIERS);
+		System.out.println("🧵 Receive pipeline: " + ReceivePipeline.DEFAULT_VERIFIERS + " verifiers, "
+			+ ReceivePipeline.DEFAULT_WRITERS + " writers");
 	}
 	
 	// Transfer completion için CountDownLatch kullan
@@ -188,8 +352,13 @@ public class FileTransferReceiver {
 		transferLatch.countDown();
 	};
 	
-	Thread t = new Thread(sender, "nack-sender");
-	t.start();
+	Thread t = SessionThreads.start("nack-sender", sender);
+	
+	// Striped mode: matching receivers, all writing into the shared NackSender state
+	Thread[] stripeThreads = new Thread[stripeChannels.length];
+	for(int i = 0; i < stripeChannels.length; i++) {
+		stripeThreads[i] = SessionThreads.start("nack-sender-stripe-" + (i + 1), new NackSender.Stripe(stripeChannels[i], sender));
+	}
 
 		// Transfer tamamlanana kadar bekle - timeout yok, gerçek completion
 		try {
@@ -205,19 +374,106 @@ public class FileTransferReceiver {
 			System.err.println("Transfer interrupted");
 		}
 		
-		t.interrupt();
+		// Durable per policy before the sender is told "complete"
+		completeOutput();
 		
 		// Transfer timing'i sonlandır
 		transferEndTime = System.currentTimeMillis();
 		
 		// Transfer tamamlandı - sender'a completion signal gönder
+		sendCompletionSignal();
+		
+		// Receiver thread'lerini completion signal'dan SONRA durdur - interrupt
+		// blocking read'deki channel'ı kapatır (ClosedByInterruptException)
+		t.interrupt();
+		for(Thread stripeThread : stripeThreads) {
+			stripeThread.interrupt();
+		}
+		closeStripeChannels();
+		
+		System.out.println("📨 " + sender.getFeedbackStats());
+		if(sender.pipeline != null) {
+			System.out.println("🧵 " + sender.pipeline.getStats());
+		}
+		if(sender.fec.getParityReceived() > 0) {
+			System.out.println("🧩 " + sender.fec.getStats());
+		}
+		if(mem_buf == null) {
+			System.out.println("📦 " + chunkManager.getCacheStats());
+			System.out.println("📦 " + chunkManager.getPrefetchStats());
+		}
+		System.out.println("💾 " + durability.getStats());
+		
+		// Unmap only once nothing can write into the mapping any more
+		boolean idle = sender.cleanup() & joinReceiveThread(t);
+		for(Thread stripeThread : stripeThreads) {
+			idle &= joinReceiveThread(stripeThread);
+		}
+		closeOutput(idle);
+		System.out.println("File transfer completed successfully!");
+		
+
+	}else{
+		System.out.println("Initialization Error ");
+		}
+	}
+	
+	/**
+	 * Rateless mode: decode LT symbols per block, one stop frame per block
+	 */
+	private void receiveFountain() {
+		System.out.println("⛲ Fountain mode - no NACK feedback, one stop frame per decoded block");
+		FountainReceiver receiver = new FountainReceiver(channel, fileId, total_seq, chunkManager);
+		
+		CountDownLatch transferLatch = new CountDownLatch(1);
+		receiver.onTransferComplete = () -> {
+			System.out.println("All packets received successfully!");
+			transferLatch.countDown();
+		};
+		
+		Thread t = new Thread(receiver, "fountain-receiver");
+		t.start();
+		
+		try {
+			if(!transferLatch.await(300, TimeUnit.SECONDS)) {
+				System.err.println("Transfer timeout - very large file or network issue");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			System.err.println("Transfer interrupted");
+		}
+		
+		completeOutput();
+		transferEndTime = System.currentTimeMillis();
+		sendCompletionSignal();
+		t.interrupt();
+		
+		System.out.println("⛲ " + receiver.getStats());
+		System.out.println("💾 " + durability.getStats());
+		closeOutput(joinReceiveThread(t));
+		System.out.println("File transfer completed successfully!");
+	}
+	
+	private static boolean joinReceiveThread(Thread t) {
+		try {
+			t.join(1000);
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return !t.isAlive();
+	}
+	
+	private void sendCompletionSignal() {
 		try {
 			ByteBuffer completionFrame = ByteBuffer.allocate(8);
 			completionFrame.putInt(0xDEADBEEF); // Magic number for completion
 			completionFrame.putInt((int)fileId);
 			completionFrame.flip();
 			
-			channel.write(completionFrame);
+			// Channel is non-blocking after the receive loop started: retry a full send buffer
+			for(int i = 0; i < 100 && channel.write(completionFrame) == 0; i++) {
+				LockSupport.parkNanos(100_000);
+			}
 			System.out.println("✅ Transfer completion signal sent to sender");
 			
 			// Signal'ın gönderilmesi için kısa bir bekleme
@@ -226,13 +482,6 @@ public class FileTransferReceiver {
 		} catch(Exception e) {
 			System.err.println("Failed to send completion signal: " + e);
 		}
-		
-		System.out.println("File transfer completed successfully!");
-		
-
-	}else{
-		System.out.println("Initialization Error ");
-		}
 	}
 	
 	public double getTransferTimeSeconds() {
@@ -0,0 +1,150 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Systematic rateless code shared by FountainSender and FountainDecoder
+ *
+ * A source block is K consecutive data packets of one chunk (never across a
+ * chunk boundary, so a block only needs one chunk mapping). Symbol ESI < K
+ * is source packet ESI itself; every later ESI is a repair symbol, the XOR
+ * of d distinct source packets picked by a PRNG seeded with (block start,
+ * ESI), so the receiver regenerates the neighbours from the header.
+ *
+ * After the systematic pass only about loss * K sources are missing, and an
+ * LT degree distribution over all K would mostly XOR known packets. Repair
+ * degree is therefore about BASE_DEGREE << shift, with shift chosen by the
+ * sender per symbol from its loss estimate so that a repair symbol covers
+ * a few of the missing sources. The decoder peels (LT style) and falls back
+ * to Gaussian elimination over the remaining unknowns (Raptor-style
+ * inactivation), so a block decodes from K plus a handful of symbols.
+ *
+ * Symbol packets reuse the data header:
+ * - seq   : first sequence of the block
+ * - total : K << 16 | ESI
+ * - plen  : payload length | shift << 11 | FOUNTAIN_FLAG
+ */
+public final class FountainCode {
+
+    /** -Dturbo.fountain=true: sender requests fountain mode (receivers always accept) */
+    public static final boolean ENABLED = Boolean.getBoolean("turbo.fountain");
+
+    /** Source packets per block (K) */
+    public static final int BLOCK_SIZE = Math.max(16, Math.min(16384, Integer.getInteger("turbo.fountain.block", 1024)));
+
+    /** Highest ESI the header can carry */
+    public static final int MAX_ESI = 0xFFFF;
+
+    /** Repair degree at shift 0 */
+    public static final int BASE_DEGREE = 4;
+
+    /** Densest repair symbols: 129 sources (low loss) */
+    public static final int MAX_SHIFT = 5;
+
+    private static final int LENGTH_MASK = 0x7FF; // Payload <= 1450
+    private static final int SHIFT_BIT = 11;
+
+    // Stop frame (receiver -> sender): magic, fileId (low 32 bits), block start, symbols received, highest ESI
+    public static final int STOP_MAGIC = 0xF017B10C;
+    public static final int STOP_SIZE = 20;
+
+    private FountainCode() {
+    }
+
+    public static int symbolInfo(int k, int esi) { return k << 16 | (esi & 0xFFFF); }
+    public static int symbolK(int info)          { return info >>> 16; }
+    public static int symbolEsi(int info)        { return info & 0xFFFF; }
+
+    public static int symbolPlen(int len, int shift) { return len | shift << SHIFT_BIT | CRC32C_Packet.FOUNTAIN_FLAG; }
+    public static int plenLength(int plen)           { return plen & LENGTH_MASK; }
+    public static int plenShift(int plen)            { return (plen >>> SHIFT_BIT) & 0x7; }
+
+    /**
+     * Repair density for a loss rate: about loss * k sources are missing after
+     * the systematic pass, and elimination needs every one of them covered,
+     * so a repair symbol should hit ln(missing) + 1 of them (coupon collector)
+     */
+    public static int shiftForLoss(double loss, int k) {
+        double hits = Math.log(Math.max(2.0, loss * k)) + 1.0;
+        int shift = 0;
+        while (shift < MAX_SHIFT && (BASE_DEGREE << shift) * loss < hits) shift++;
+        return shift;
+    }
+
+    /**
+     * Odd on purpose: with even degrees every repair symbol is orthogonal to
+     * the all-ones vector, so a block that lost its whole systematic pass
+     * could never reach full rank
+     */
+    public static int repairDegree(int shift) {
+        return (BASE_DEGREE << shift) + 1;
+    }
+
+    public static boolean isStop(ByteBuffer b, int len) {
+        return len == STOP_SIZE && b.getInt(0) == STOP_MAGIC;
+    }
+
+    public static void fillStop(ByteBuffer b, long fileId, int blockStart, int received, int maxEsi) {
+        b.clear();
+        b.putInt(0, STOP_MAGIC);
+        b.putInt(4, (int) fileId);
+        b.putInt(8, blockStart);
+        b.putInt(12, received);
+        b.putInt(16, maxEsi);
+        b.limit(STOP_SIZE);
+    }
+
+    public static int stopFileId(ByteBuffer b)   { return b.getInt(4); }
+    public static int stopStart(ByteBuffer b)    { return b.getInt(8); }
+    public static int stopReceived(ByteBuffer b) { return b.getInt(12); }
+    public static int stopMaxEsi(ByteBuffer b)   { return b.getInt(16); }
+
+    /**
+     * Source indexes XORed into a symbol
+     *
+     * @param out Receives the distinct neighbours (length >= k)
+     * @return Degree
+     */
+    public static int neighbors(int k, int blockStart, int esi, int shift, int[] out) {
+        if (esi < k) {
+            out[0] = esi; // Systematic part
+            return 1;
+        }
+
+        int d = Math.min(k, repairDegree(shift));
+        long state = mix((blockStart * 0x9E3779B97F4A7C15L) ^ ((long) esi << 32 | esi));
+
+        if (d * 4 <= k) {
+            // Rejection sampling - sparse symbols
+            int n = 0;
+            while (n < d) {
+                state = mix(state);
+                int candidate = (int) ((state >>> 33) % k);
+                boolean dup = false;
+                for (int i = 0; i < n; i++) {
+                    if (out[i] == candidate) { dup = true; break; }
+                }
+                if (!dup) out[n++] = candidate;
+            }
+            return d;
+        }
+
+        // Selection sampling (Knuth S) - one pass over K for dense symbols / small blocks
+        int n = 0;
+        for (int i = 0; i < k && n < d; i++) {
+            state = mix(state);
+            if ((k - i) * toUnit(state) < d - n) out[n++] = i;
+        }
+        return n;
+    }
+
+    // SplitMix64 step
+    private static long mix(long z) {
+        z += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static double toUnit(long z) {
+        return (z >>> 11) * 0x1.0p-53;
+    }
+}
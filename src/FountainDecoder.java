@@ -0,0 +1,364 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Decoder for one source block of the rateless code (see FountainCode)
+ *
+ * Source packets are written straight into the chunk mapping as soon as
+ * they are known - a systematic symbol directly, a repair symbol once every
+ * neighbour but one is known (peeling). Repair symbols that still cover two
+ * or more unknown sources are buffered together with the XOR of their
+ * unknown indexes: when the count drops to one, that XOR is the index of
+ * the source the symbol now holds.
+ *
+ * When peeling stalls with at least as many buffered symbols as unknown
+ * sources, the buffered symbols are solved by Gaussian elimination over
+ * GF(2), restricted to the unknown sources (inactivation decoding).
+ * Redundant symbols are released after a rank-deficient attempt, so memory
+ * per block stays at about one buffered repair symbol per unknown source
+ * (hard cap K + STORED_SLACK).
+ *
+ * Thread-safety: NOT thread-safe, owned by the receive thread.
+ */
+public final class FountainDecoder {
+
+    private static final int SLICE_SIZE = FileTransferReceiver.SLICE_SIZE;
+    private static final int STORED_SLACK = 64;
+
+    public final int start;
+    public final int k;
+
+    private final int localStart;
+    private final ChunkMetadata meta;
+    private final ByteBuffer view;
+
+    private final BitSet known;
+    private int knownCount = 0;
+
+    // Buffered repair symbols: payload, header info (ESI, shift), unknown neighbour count, XOR of unknown indexes
+    private ByteBuffer[] symbols = new ByteBuffer[16];
+    private int[] esis = new int[16];
+    private int[] shifts = new int[16];
+    private int[] degree = new int[16];
+    private int[] pending = new int[16];
+    private int symbolCount = 0;
+    private int liveCount = 0;
+    private final int maxStored;
+
+    // Source index -> buffered symbols that contain it
+    private final int[][] adjacency;
+    private final int[] adjacencyLen;
+
+    private final int[] neighbors;
+    private final int[] ripple;
+    private int rippleLen = 0;
+
+    // Elimination is retried only after enough new symbols arrived (received count)
+    private int solveAt = 0;
+
+    // Statistics
+    private int received = 0;
+    private int maxEsi = -1;
+    private int dropped = 0;
+    private int eliminations = 0;
+
+    /**
+     * @param start Global sequence of source packet 0
+     * @param meta  Chunk holding the whole block
+     * @param view  Private duplicate of the chunk mapping (READ_WRITE)
+     */
+    public FountainDecoder(int start, int k, ChunkMetadata meta, ByteBuffer view) {
+        this.start = start;
+        this.k = k;
+        this.meta = meta;
+        this.localStart = meta.toLocalSequence(start);
+        this.view = view;
+        this.known = new BitSet(k);
+        this.maxStored = k + STORED_SLACK;
+        this.adjacency = new int[k][];
+        this.adjacencyLen = new int[k];
+        this.neighbors = new int[k];
+        this.ripple = new int[k];
+    }
+
+    /**
+     * Add one symbol (CRC already checked)
+     *
+     * @param shift  Repair density from the header
+     * @param packet Buffer holding the payload at [off, off + len)
+     * @return true once every source packet of the block is known
+     */
+    public boolean add(int esi, int shift, ByteBuffer packet, int off, int len) {
+        received++;
+        if (esi > maxEsi) maxEsi = esi;
+        if (isComplete()) return true;
+
+        int d = FountainCode.neighbors(k, start, esi, shift, neighbors);
+        if (d == 1) {
+            int s = neighbors[0];
+            if (!known.get(s) && len >= sourceSize(s)) {
+                write(s, packet, off);
+                learn(s);
+            }
+            return isComplete() || trySolve();
+        }
+
+        // Strip known neighbours; remember the XOR of the unknown ones
+        ByteBuffer sym = ByteBuffer.allocate(len);
+        ByteBuffer src = packet.duplicate();
+        src.limit(off + len).position(off);
+        sym.put(src);
+        int unknown = 0;
+        int xor = 0;
+        for (int i = 0; i < d; i++) {
+            int n = neighbors[i];
+            if (known.get(n)) {
+                xorSource(sym, n);
+            } else {
+                neighbors[unknown++] = n;
+                xor ^= n;
+            }
+        }
+
+        if (unknown == 0) return isComplete();
+        if (unknown == 1) {
+            if (len >= sourceSize(xor)) {
+                write(xor, sym, 0);
+                learn(xor);
+            }
+            return isComplete() || trySolve();
+        }
+        if (liveCount >= maxStored) {
+            dropped++;
+            return false;
+        }
+
+        int idx = store(sym, esi, shift, unknown, xor);
+        for (int i = 0; i < unknown; i++) {
+            link(neighbors[i], idx);
+        }
+        return trySolve();
+    }
+
+    public boolean isComplete() {
+        return knownCount == k;
+    }
+
+    public int getReceived()     { return received; }
+    public int getMaxEsi()       { return maxEsi; }
+    public int getDropped()      { return dropped; }
+    public int getEliminations() { return eliminations; }
+
+    /**
+     * Source s is now in the file: peel it off every buffered symbol, which
+     * may release further sources (ripple)
+     */
+    private void learn(int s) {
+        known.set(s);
+        knownCount++;
+        ripple[rippleLen++] = s;
+
+        while (rippleLen > 0) {
+            int n = ripple[--rippleLen];
+            int[] list = adjacency[n];
+            int count = adjacencyLen[n];
+            adjacency[n] = null;
+            for (int i = 0; i < count; i++) {
+                int idx = list[i];
+                ByteBuffer sym = symbols[idx];
+                if (sym == null) continue;
+
+                xorSource(sym, n);
+                pending[idx] ^= n;
+                if (--degree[idx] > 1) continue;
+
+                release(idx);
+                int t = pending[idx];
+                if (degree[idx] == 1 && !known.get(t) && sym.capacity() >= sourceSize(t)) {
+                    write(t, sym, 0);
+                    known.set(t);
+                    knownCount++;
+                    ripple[rippleLen++] = t;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gaussian elimination over the unknown sources once there are enough
+     * buffered symbols. The bit matrix is reduced first; payloads are only
+     * combined at full rank. When rank-deficient, symbols that did not become
+     * pivots are linear combinations of the pivots and are released, and the
+     * next attempt waits for as many new symbols as the rank is short.
+     *
+     * @return true if the block is now complete
+     */
+    private boolean trySolve() {
+        int unknown = k - knownCount;
+        if (unknown == 0) return true;
+        if (liveCount < unknown || received < solveAt) return false;
+        eliminations++;
+
+        // Column per unknown source
+        int[] column = new int[k];
+        int[] source = new int[unknown];
+        Arrays.fill(column, -1);
+        int m = 0;
+        for (int s = known.nextClearBit(0); s < k; s = known.nextClearBit(s + 1)) {
+            column[s] = m;
+            source[m++] = s;
+        }
+
+        // Rows: buffered symbols as bit vectors over the unknowns (the peeling state stays valid)
+        int words = (m + 63) >>> 6;
+        long[][] rows = new long[liveCount][];
+        int[] origin = new int[liveCount];
+        int r = 0;
+        for (int idx = 0; idx < symbolCount; idx++) {
+            if (symbols[idx] == null) continue;
+            long[] row = new long[words];
+            int d = FountainCode.neighbors(k, start, esis[idx], shifts[idx], neighbors);
+            for (int i = 0; i < d; i++) {
+                int c = column[neighbors[i]];
+                if (c >= 0) row[c >>> 6] |= 1L << (c & 63);
+            }
+            rows[r] = row;
+            origin[r++] = idx;
+        }
+
+        // Forward elimination on a copy of the bit rows: the original rows that end up as pivots are a basis
+        long[][] work = new long[r][];
+        for (int i = 0; i < r; i++) work[i] = rows[i].clone();
+        int rank = 0;
+        for (int c = 0; c < m; c++) {
+            int w = c >>> 6;
+            long bit = 1L << (c & 63);
+            int pivot = -1;
+            for (int i = rank; i < r; i++) {
+                if ((work[i][w] & bit) != 0) { pivot = i; break; }
+            }
+            if (pivot < 0) continue;
+            swap(work, origin, rows, pivot, rank);
+            long[] pr = work[rank];
+            for (int i = rank + 1; i < r; i++) {
+                if ((work[i][w] & bit) == 0) continue;
+                long[] row = work[i];
+                for (int j = w; j < words; j++) row[j] ^= pr[j];
+            }
+            rank++;
+        }
+
+        if (rank < m) {
+            // Rows below the rank add nothing - keep memory at the pivots
+            for (int i = rank; i < r; i++) release(origin[i]);
+            solveAt = received + (m - rank);
+            return false;
+        }
+
+        // Full rank: the first m rows solve the block (Gauss-Jordan with payloads)
+        ByteBuffer[] data = new ByteBuffer[m];
+        for (int i = 0; i < m; i++) {
+            ByteBuffer sym = symbols[origin[i]];
+            data[i] = ByteBuffer.allocate(sym.capacity());
+            data[i].put(sym.duplicate().clear());
+        }
+        for (int c = 0; c < m; c++) {
+            int w = c >>> 6;
+            long bit = 1L << (c & 63);
+            int pivot = -1;
+            for (int i = c; i < m; i++) {
+                if ((rows[i][w] & bit) != 0) { pivot = i; break; }
+            }
+            long[] tr = rows[pivot]; rows[pivot] = rows[c]; rows[c] = tr;
+            ByteBuffer td = data[pivot]; data[pivot] = data[c]; data[c] = td;
+
+            for (int i = 0; i < m; i++) {
+                if (i == c || (rows[i][w] & bit) == 0) continue;
+                long[] row = rows[i];
+                for (int j = w; j < words; j++) row[j] ^= tr[j];
+                FecEncoder.xorInto(data[i], data[c].duplicate().clear(), Math.min(data[i].capacity(), data[c].capacity()));
+            }
+        }
+
+        // Row c now holds source[c]
+        for (int c = 0; c < m; c++) {
+            if (data[c].capacity() < sourceSize(source[c])) return false;
+        }
+        for (int c = 0; c < m; c++) {
+            int s = source[c];
+            write(s, data[c], 0);
+            known.set(s);
+            knownCount++;
+        }
+        for (int idx = 0; idx < symbolCount; idx++) {
+            if (symbols[idx] != null) release(idx);
+        }
+        return true;
+    }
+
+    private static void swap(long[][] work, int[] origin, long[][] rows, int a, int b) {
+        if (a == b) return;
+        long[] t = work[a]; work[a] = work[b]; work[b] = t;
+        t = rows[a]; rows[a] = rows[b]; rows[b] = t;
+        int o = origin[a]; origin[a] = origin[b]; origin[b] = o;
+    }
+
+    private int store(ByteBuffer sym, int esi, int shift, int unknown, int xor) {
+        if (symbolCount == symbols.length) {
+            int size = symbols.length * 2;
+            symbols = Arrays.copyOf(symbols, size);
+            esis = Arrays.copyOf(esis, size);
+            shifts = Arrays.copyOf(shifts, size);
+            degree = Arrays.copyOf(degree, size);
+            pending = Arrays.copyOf(pending, size);
+        }
+        int idx = symbolCount++;
+        symbols[idx] = sym;
+        esis[idx] = esi;
+        shifts[idx] = shift;
+        degree[idx] = unknown;
+        pending[idx] = xor;
+        liveCount++;
+        return idx;
+    }
+
+    private void release(int idx) {
+        symbols[idx] = null;
+        liveCount--;
+    }
+
+    private void link(int source, int idx) {
+        int[] list = adjacency[source];
+        int len = adjacencyLen[source];
+        if (list == null) {
+            list = adjacency[source] = new int[4];
+        } else if (len == list.length) {
+            list = adjacency[source] = Arrays.copyOf(list, len * 2);
+        }
+        list[len] = idx;
+        adjacencyLen[source] = len + 1;
+    }
+
+    private int sourceSize(int s) {
+        return meta.getPayloadSize(localStart + s, SLICE_SIZE);
+    }
+
+    private void write(int s, ByteBuffer data, int off) {
+        int local = localStart + s;
+        int fileOff = meta.getLocalOffset(local, SLICE_SIZE);
+        int take = sourceSize(s);
+        ByteBuffer src = data.duplicate();
+        src.limit(off + take).position(off);
+        view.limit(fileOff + take).position(fileOff);
+        view.put(src);
+    }
+
+    private void xorSource(ByteBuffer sym, int s) {
+        int local = localStart + s;
+        int fileOff = meta.getLocalOffset(local, SLICE_SIZE);
+        int take = sourceSize(s);
+        view.limit(fileOff + take).position(fileOff);
+        FecEncoder.xorInto(sym, view, take);
+    }
+}
@@ -0,0 +1,189 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.DatagramChannel;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.zip.CRC32C;
+
+/**
+ * Receiver side of the rateless transfer mode (see FountainSender)
+ *
+ * Keeps one FountainDecoder per open source block and no per-packet
+ * state: a block is either open (decoder), done (one bit at its start
+ * sequence) or not seen yet. When a block decodes, one stop frame goes
+ * back; symbols that still arrive for a done block mean the stop was lost,
+ * so it is repeated (rate limited).
+ *
+ * Thread-safety: NOT thread-safe, runs on the receive thread.
+ */
+public final class FountainReceiver implements Runnable {
+
+    /** Open decoders allowed at once - must cover the sender window (turbo.fountain.window) */
+    public static final int MAX_OPEN = Math.max(2, Integer.getInteger("turbo.fountain.decoders", 64));
+
+    private static final int SLICE_SIZE = FileTransferReceiver.SLICE_SIZE;
+    private static final int HEADER_SIZE = CRC32C_Packet.HEADER_SIZE;
+    private static final long REPEAT_STOP_NS = 1_000_000; // 1ms
+
+    public final DatagramChannel channel;
+    public final long fileId;
+    public final int totalSeq;
+    private final ChunkManager chunkManager;
+
+    public volatile Runnable onTransferComplete = null;
+
+    private final HashMap<Integer, FountainDecoder> open = new HashMap<>();
+    private final BitSet done;
+    private long sourcesDone = 0;
+    private long lastRepeatNs = 0;
+
+    private final ByteBuffer buf = ByteBuffer.allocateDirect(HEADER_SIZE + SLICE_SIZE).order(ByteOrder.BIG_ENDIAN);
+    private final ByteBuffer stop = ByteBuffer.allocateDirect(FountainCode.STOP_SIZE).order(ByteOrder.BIG_ENDIAN);
+    private final CRC32C crc = new CRC32C();
+
+    // Statistics
+    private long symbols = 0;
+    private long late = 0;
+    private long rejected = 0;
+    private long overflow = 0;
+    private long dropped = 0;
+    private long stopsSent = 0;
+    private long blocksDone = 0;
+
+    public FountainReceiver(DatagramChannel channel, long fileId, int totalSeq, ChunkManager chunkManager) {
+        this.channel = channel;
+        this.fileId = fileId;
+        this.totalSeq = totalSeq;
+        this.chunkManager = chunkManager;
+        this.done = new BitSet(totalSeq);
+    }
+
+    @Override
+    public void run() {
+        while (!Thread.currentThread().isInterrupted() && sourcesDone < totalSeq) {
+            buf.clear();
+            int r;
+            try {
+                r = channel.read(buf);
+            } catch (IOException e) {
+                // Interrupted (ClosedByInterruptException) or closed: open decoders still unpin below
+                if (!(e instanceof ClosedByInterruptException)) {
+                    System.err.println("read failed: " + e);
+                }
+                break;
+            }
+            if (r > 0) {
+                onSymbol(r);
+            }
+        }
+
+        // Decoders left open (interrupted) give their windows back
+        for (int start : open.keySet()) {
+            chunkManager.unpinChunk(chunkManager.findChunkForSequence(start));
+        }
+        open.clear();
+
+        if (sourcesDone >= totalSeq) {
+            System.out.println("FountainReceiver: all blocks decoded, transfer complete!");
+            Runnable callback = onTransferComplete;
+            if (callback != null) callback.run();
+        }
+    }
+
+    private void onSymbol(int r) {
+        if (r < HEADER_SIZE || CRC32C_Packet.fileId(buf) != fileId || !CRC32C_Packet.isFountain(buf)) {
+            rejected++;
+            return;
+        }
+        int plen = CRC32C_Packet.plen(buf);
+        int len = FountainCode.plenLength(plen);
+        int shift = FountainCode.plenShift(plen);
+        int start = CRC32C_Packet.seqNo(buf);
+        int info = CRC32C_Packet.total(buf);
+        int k = FountainCode.symbolK(info);
+        int esi = FountainCode.symbolEsi(info);
+        if (len <= 0 || len > SLICE_SIZE || r < HEADER_SIZE + len || k <= 0 || start < 0 || start > totalSeq - k) {
+            rejected++;
+            return;
+        }
+
+        buf.limit(HEADER_SIZE + len).position(HEADER_SIZE);
+        crc.reset();
+        crc.update(buf);
+        if ((int) crc.getValue() != CRC32C_Packet.crc32(buf)) {
+            rejected++;
+            return;
+        }
+        symbols++;
+
+        if (done.get(start)) {
+            // Stop frame lost - tell the sender again (it only counts the first one)
+            late++;
+            long now = System.nanoTime();
+            if (now - lastRepeatNs > REPEAT_STOP_NS) {
+                lastRepeatNs = now;
+                sendStop(start, esi + 1, esi);
+            }
+            return;
+        }
+
+        FountainDecoder decoder = open.get(start);
+        if (decoder == null) {
+            if (open.size() >= MAX_OPEN) {
+                overflow++; // Sender window larger than ours - block is topped up later
+                return;
+            }
+            decoder = newDecoder(start, k);
+            if (decoder == null) {
+                rejected++;
+                return;
+            }
+            open.put(start, decoder);
+        }
+
+        if (decoder.add(esi, shift, buf, HEADER_SIZE, len)) {
+            open.remove(start);
+            chunkManager.unpinChunk(chunkManager.findChunkForSequence(start));
+            done.set(start);
+            sourcesDone += k;
+            blocksDone++;
+            dropped += decoder.getDropped();
+            sendStop(start, decoder.getReceived(), decoder.getMaxEsi());
+        }
+    }
+
+    private FountainDecoder newDecoder(int start, int k) {
+        try {
+            int chunkIdx = chunkManager.findChunkForSequence(start);
+            ChunkMetadata meta = chunkManager.getChunkMetadata(chunkIdx);
+            if (start + k - 1 > meta.globalSeqEnd) return null; // Blocks never span chunks
+            // Pinned until the block decodes
+            return new FountainDecoder(start, k, meta, chunkManager.pinChunk(chunkIdx).duplicate());
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Fountain block " + start + " setup error: " + e);
+            return null;
+        }
+    }
+
+    private void sendStop(int start, int received, int maxEsi) {
+        FountainCode.fillStop(stop, fileId, start, received, maxEsi);
+        try {
+            channel.write(stop);
+            stopsSent++;
+        } catch (IOException e) {
+            System.err.println("Stop frame error: " + e);
+        }
+    }
+
+    public boolean isTransferCompleted() {
+        return sourcesDone >= totalSeq;
+    }
+
+    public String getStats() {
+        return String.format("Fountain: blocks=%d, symbols=%d (%.1f%% over source), late=%d, stops=%d, open=%d, overflow=%d, dropped=%d, rejected=%d",
+            blocksDone, symbols, totalSeq > 0 ? (symbols - totalSeq) * 100.0 / totalSeq : 0.0,
+            late, stopsSent, open.size(), overflow, dropped, rejected);
+    }
+}
@@ -0,0 +1,340 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32C;
+
+/**
+ * Rateless transfer mode (-Dturbo.fountain=true, negotiated in the handshake)
+ *
+ * Instead of NACK / retransmission the sender streams rateless symbols
+ * (FountainCode) for a window of source blocks, interleaving the oldest
+ * INTERLEAVE blocks so a loss burst is spread over several of them. Each block gets a budget of
+ * K * (1 + OVERHEAD) / (1 - loss) symbols; the receiver decodes once it has
+ * slightly more than K and answers with a single stop frame for the block.
+ * A block whose budget is spent and whose stop has not arrived within an
+ * RTO gets a small top-up of fresh symbols - there is no per-packet state
+ * on either side, only per-block counters.
+ *
+ * Blocks never span chunks and only WINDOW blocks are open at once, so
+ * both sides stay bounded for multi-GB files. Stop frames feed the
+ * congestion controller (received / lost symbols, RTT) which paces the
+ * stream.
+ *
+ * Thread-safety: send loop on the caller thread, stop frames on a listener
+ * thread; blocks are handed over through a concurrent map.
+ */
+public final class FountainSender {
+
+    /**
+     * Blocks in flight at once (receiver keeps a decoder per open block).
+     * Symbols are paced, not windowed, so this also bounds the queue a
+     * slow path can build: it should cover the BDP (8 x 1024 x 1450 B ~ 12 MB).
+     */
+    public static final int WINDOW = Math.max(1, Math.min(256, Integer.getInteger("turbo.fountain.window", 8)));
+
+    /** Blocks whose symbols are interleaved - spreads a loss burst, keeps the first stop frames early */
+    public static final int INTERLEAVE = Math.max(1, Integer.getInteger("turbo.fountain.interleave", 4));
+
+    /** Extra symbols per block on top of K before waiting for the stop frame */
+    public static final double OVERHEAD = Math.max(0.0, Double.parseDouble(System.getProperty("turbo.fountain.overhead", "0.05")));
+
+    private static final int SLICE_SIZE = EnhancedFileTransferSender.SLICE_SIZE;
+    private static final int HEADER_SIZE = CRC32C_Packet.HEADER_SIZE;
+    private static final int MIN_TOP_UP = 8;
+    private static final long MIN_TIMEOUT_NS = 20_000_000;        // 20ms
+    private static final long STALL_TIMEOUT_NS = 30_000_000_000L; // 30s without a stop frame
+
+    private static final class Block {
+        final int start;
+        final int k;
+        final int localStart;
+        final ChunkMetadata meta;
+        final ByteBuffer view;
+        final int len;
+        volatile int esi = 0;
+        volatile long lastSentNs = 0;
+        int target;
+
+        Block(int start, int k, int localStart, ChunkMetadata meta, ByteBuffer view) {
+            this.start = start;
+            this.k = k;
+            this.localStart = localStart;
+            this.meta = meta;
+            this.view = view;
+            this.len = meta.getPayloadSize(localStart, SLICE_SIZE); // Only a chunk's last packet is shorter
+        }
+    }
+
+    private final DatagramChannel channel;
+    private final ChunkManager chunkManager;
+    private final CongestionController congestionControl;
+    private final long fileId;
+    private final RttStats rtt;
+
+    // Open blocks by start sequence - removed by the listener on the stop frame
+    private final ConcurrentHashMap<Integer, Block> open = new ConcurrentHashMap<>();
+    private volatile boolean complete = false;
+    private volatile double lossEstimate = 0.0;
+    private volatile long lastProgressNs;
+
+    // Block iterator state (send thread)
+    private int chunkIdx = 0;
+    private int nextLocal = 0;
+
+    // Symbol framing (send thread)
+    private final ByteBuffer frame = ByteBuffer.allocateDirect(HEADER_SIZE + SLICE_SIZE).order(ByteOrder.BIG_ENDIAN);
+    private final ByteBuffer work;
+    private final CRC32C crc = new CRC32C();
+    private final int[] neighbors = new int[FountainCode.BLOCK_SIZE];
+
+    // Statistics
+    private volatile long symbolsSent = 0;
+    private volatile long repairSent = 0;
+    private volatile long topUps = 0;
+    private final AtomicInteger blocksDone = new AtomicInteger(0);
+    private int blocksOpened = 0;
+
+    /**
+     * @param initialRttNs Handshake RTT (0 = unknown)
+     */
+    public FountainSender(DatagramChannel channel, ChunkManager chunkManager,
+                          CongestionController congestionControl, long fileId, long initialRttNs) {
+        this.channel = channel;
+        this.chunkManager = chunkManager;
+        this.congestionControl = congestionControl;
+        this.fileId = fileId;
+        this.rtt = new RttStats(100_000_000); // 100ms until the first sample
+        this.rtt.setInitialRtt(initialRttNs);
+        frame.clear().position(HEADER_SIZE);
+        this.work = frame.slice().order(ByteOrder.BIG_ENDIAN);
+        frame.clear();
+    }
+
+    /**
+     * Stream every block until the receiver has stopped all of them
+     */
+    public void run() throws IOException {
+        Thread listener = new Thread(this::listen, "fountain-listener");
+        listener.setDaemon(true);
+        listener.start();
+        lastProgressNs = System.nanoTime();
+
+        ArrayList<Block> active = new ArrayList<>(WINDOW);
+        try {
+            boolean exhausted = false;
+            int cursor = 0;
+
+            while (!complete) {
+                // Retire stopped blocks, refill the window
+                for (int i = active.size() - 1; i >= 0; i--) {
+                    if (!open.containsKey(active.get(i).start)) {
+                        chunkManager.unpinChunk(active.remove(i).meta.chunkIndex);
+                    }
+                }
+                while (!exhausted && active.size() < WINDOW) {
+                    Block b = nextBlock();
+                    if (b == null) { exhausted = true; break; }
+                    open.put(b.start, b);
+                    active.add(b);
+                    blocksOpened++;
+                }
+                if (active.isEmpty()) break;
+
+                // Round-robin over the oldest INTERLEAVE blocks with budget left
+                Block next = null;
+                int eligible = 0;
+                for (int i = 0; i < active.size() && eligible < INTERLEAVE; i++) {
+                    Block b = active.get(i);
+                    if (b.esi == 0) b.target = budget(b.k); // Latest loss estimate
+                    if (b.esi >= b.target) continue;
+                    if (next == null || eligible == cursor % INTERLEAVE) next = b;
+                    eligible++;
+                }
+                cursor++;
+
+                if (next == null) {
+                    long now = System.nanoTime();
+                    if (!topUp(active, now)) {
+                        if (now - lastProgressNs > STALL_TIMEOUT_NS) {
+                            throw new IOException("Fountain transfer stalled - no stop frame for " +
+                                (STALL_TIMEOUT_NS / 1_000_000_000L) + "s");
+                        }
+                        LockSupport.parkNanos(100_000); // 100μs
+                    }
+                    continue;
+                }
+                sendSymbol(next);
+            }
+        } finally {
+            listener.interrupt();
+            for (Block b : active) {
+                chunkManager.unpinChunk(b.meta.chunkIndex);
+            }
+        }
+    }
+
+    private Block nextBlock() throws IOException {
+        while (chunkIdx < chunkManager.getChunkCount()) {
+            ChunkMetadata meta = chunkManager.getChunkMetadata(chunkIdx);
+            if (nextLocal < meta.packetCount) {
+                int k = Math.min(FountainCode.BLOCK_SIZE, meta.packetCount - nextLocal);
+                MappedByteBuffer chunk = chunkManager.pinChunk(chunkIdx); // Until the block leaves the window
+                Block b = new Block(meta.globalSeqStart + nextLocal, k, nextLocal, meta, chunk.duplicate());
+                nextLocal += k;
+                return b;
+            }
+            chunkIdx++;
+            nextLocal = 0;
+        }
+        return null;
+    }
+
+    private int budget(int k) {
+        double loss = Math.min(0.5, lossEstimate);
+        return (int) Math.min(FountainCode.MAX_ESI, Math.ceil(k * (1.0 + OVERHEAD) / (1.0 - loss)));
+    }
+
+    /**
+     * Extend blocks whose budget is spent and whose stop frame is overdue
+     *
+     * @return true if any block got more symbols
+     */
+    private boolean topUp(ArrayList<Block> active, long now) {
+        // The stop frame trails the last symbol by one RTT; other blocks keep the link busy meanwhile
+        long timeout = Math.max(MIN_TIMEOUT_NS, rtt.getSmoothedRtt() * 3 / 2 + 4 * rtt.getRttVar());
+        boolean any = false;
+        for (Block b : active) {
+            if (b.esi < b.target || now - b.lastSentNs < timeout) continue;
+            int extra = (int) Math.max(MIN_TOP_UP, Math.ceil(b.k * OVERHEAD)); // Budget already covers the mean loss
+            b.target = Math.min(FountainCode.MAX_ESI + 1, b.target + extra);
+            if (b.esi >= b.target) continue; // ESI space exhausted - stall timeout reports it
+            topUps++;
+            any = true;
+        }
+        return any;
+    }
+
+    private void sendSymbol(Block b) {
+        int esi = b.esi;
+        int shift = esi < b.k ? 0 : FountainCode.shiftForLoss(lossEstimate, b.k);
+        int d = FountainCode.neighbors(b.k, b.start, esi, shift, neighbors);
+
+        // Payload: XOR of the neighbour source packets (shorter ones zero-padded)
+        int len = d == 1 ? sourceSize(b, neighbors[0]) : b.len;
+        work.clear();
+        copySource(b, neighbors[0]);
+        for (int i = work.position(); i < len; i++) {
+            work.put(i, (byte) 0);
+        }
+        for (int i = 1; i < d; i++) {
+            int local = b.localStart + neighbors[i];
+            int off = b.meta.getLocalOffset(local, SLICE_SIZE);
+            int take = b.meta.getPayloadSize(local, SLICE_SIZE);
+            b.view.limit(off + take).position(off);
+            FecEncoder.xorInto(work, b.view, take);
+        }
+
+        work.position(0).limit(len);
+        crc.reset();
+        crc.update(work);
+
+        frame.clear();
+        frame.putLong(CRC32C_Packet.OFF_FILE_ID, fileId);
+        frame.putInt(CRC32C_Packet.OFF_SEQ, b.start);
+        frame.putInt(CRC32C_Packet.OFF_TOTAL, FountainCode.symbolInfo(b.k, esi));
+        frame.putShort(CRC32C_Packet.OFF_PLEN, (short) FountainCode.symbolPlen(len, shift));
+        frame.putInt(CRC32C_Packet.OFF_CRC, (int) crc.getValue());
+        frame.limit(HEADER_SIZE + len);
+
+        congestionControl.rateLimitSend(len);
+        try {
+            channel.write(frame);
+            congestionControl.onPacketSent(len);
+        } catch (IOException e) {
+            System.err.println("Symbol sending error: " + e);
+        }
+
+        b.lastSentNs = System.nanoTime();
+        b.esi = esi + 1;
+        symbolsSent++;
+        if (esi >= b.k) repairSent++;
+    }
+
+    private int sourceSize(Block b, int index) {
+        return b.meta.getPayloadSize(b.localStart + index, SLICE_SIZE);
+    }
+
+    private void copySource(Block b, int index) {
+        int local = b.localStart + index;
+        int off = b.meta.getLocalOffset(local, SLICE_SIZE);
+        b.view.limit(off + sourceSize(b, index)).position(off);
+        work.put(b.view);
+    }
+
+    /**
+     * Stop frames and the completion signal (listener thread)
+     */
+    private void listen() {
+        ByteBuffer ctrl = ByteBuffer.allocateDirect(64).order(ByteOrder.BIG_ENDIAN);
+        while (!Thread.currentThread().isInterrupted() && !complete) {
+            ctrl.clear();
+            int r;
+            try {
+                r = channel.read(ctrl);
+            } catch (IOException e) {
+                break; // Interrupted on completion or channel closed
+            }
+            if (r <= 0) {
+                LockSupport.parkNanos(200_000);
+                continue;
+            }
+
+            if (r == 8 && ctrl.getInt(0) == 0xDEADBEEF && ctrl.getInt(4) == (int) fileId) {
+                System.out.println("🎉 Transfer completion signal received from receiver!");
+                complete = true;
+                break;
+            }
+            if (FountainCode.isStop(ctrl, r) && FountainCode.stopFileId(ctrl) == (int) fileId) {
+                onStop(FountainCode.stopStart(ctrl), FountainCode.stopReceived(ctrl), FountainCode.stopMaxEsi(ctrl));
+            }
+        }
+    }
+
+    private void onStop(int start, int received, int maxEsi) {
+        Block b = open.remove(start);
+        if (b == null) return; // Repeated stop
+        long now = System.nanoTime();
+        lastProgressNs = now;
+        blocksDone.incrementAndGet();
+
+        // The symbol that completed the decode was the last one sent: clean RTT sample
+        if (maxEsi == b.esi - 1) {
+            long sample = now - b.lastSentNs;
+            rtt.update(sample);
+            congestionControl.updateRtt(sample);
+        }
+
+        // ESIs are sent in order: everything up to maxEsi that did not arrive was lost
+        int sent = Math.max(received, maxEsi + 1);
+        int lost = sent - received;
+        lossEstimate = 0.875 * lossEstimate + 0.125 * (sent > 0 ? (double) lost / sent : 0.0);
+        congestionControl.onNackFrameReceived(received, lost);
+    }
+
+    public long getSymbolsSent() {
+        return symbolsSent;
+    }
+
+    public String getStats() {
+        return String.format("Fountain: blocks=%d/%d, symbols=%d (repair %d, %.1f%%), top-ups=%d, loss=%.1f%%, RTT=%.1fms",
+            blocksDone.get(), blocksOpened, symbolsSent, repairSent,
+            symbolsSent > 0 ? repairSent * 100.0 / symbolsSent : 0.0, topUps,
+            lossEstimate * 100, rtt.getSmoothedRtt() / 1_000_000.0);
+    }
+}
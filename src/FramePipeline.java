@@ -0,0 +1,170 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded single-producer/single-consumer framing pipeline
+ *
+ * A framer thread copies, checksums and frames upcoming packets into the
+ * slots of a PacketRing; the pacing/send thread only takes framed slots and
+ * writes them. CRC32C CPU time and socket syscalls overlap instead of adding
+ * up serially on one thread.
+ *
+ * Protocol:
+ * - Producer: claim() -> encode into slot -> publish()
+ * - Consumer: take() -> write slot -> release()
+ * - Producer calls finish() (or fail()) after the last packet
+ *
+ * Thread-safety: exactly one producer thread and one consumer thread.
+ */
+public final class FramePipeline {
+
+    /** Spins before falling back to a short park when the ring is full/empty */
+    private static final int SPIN_LIMIT = 256;
+    private static final long PARK_NS = 1_000;
+
+    private final PacketRing ring;
+    private final int capacity;
+
+    /** Slots published by the producer */
+    private final AtomicLong head = new AtomicLong(0);
+
+    /** Slots released by the consumer */
+    private final AtomicLong tail = new AtomicLong(0);
+
+    private volatile boolean finished = false;
+    private volatile Throwable failure = null;
+
+    // ========== METRICS ==========
+
+    /** Producer waits because the ring was full (sender is the bottleneck) */
+    private volatile long framerStalls = 0;
+
+    /** Consumer waits because the ring was empty (framer is the bottleneck) */
+    private volatile long senderStalls = 0;
+
+    /** Occupancy sampled at every take() */
+    private volatile long occupancySum = 0;
+    private volatile long occupancySamples = 0;
+    private volatile int occupancyMax = 0;
+
+    /**
+     * Create pipeline
+     *
+     * @param depth Number of framed packets that may be queued ahead of the sender
+     */
+    public FramePipeline(int depth) {
+        this.ring = new PacketRing(depth);
+        this.capacity = ring.capacity();
+    }
+
+    public PacketRing ring() {
+        return ring;
+    }
+
+    public int depth() {
+        return capacity;
+    }
+
+    // ========== PRODUCER ==========
+
+    /**
+     * Wait for a free slot
+     *
+     * @return Slot to encode into, or null if the consumer is gone
+     */
+    public PacketRing.Slot claim() {
+        long h = head.get();
+        int spins = 0;
+        boolean stalled = false;
+        while (h - tail.get() >= capacity) {
+            if (Thread.currentThread().isInterrupted()) return null;
+            if (!stalled) {
+                stalled = true;
+                framerStalls++;
+            }
+            if (++spins < SPIN_LIMIT) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(PARK_NS);
+            }
+        }
+        return ring.slot(h);
+    }
+
+    /** Make the claimed slot visible to the consumer */
+    public void publish() {
+        head.lazySet(head.get() + 1);
+    }
+
+    /** No more packets will be published */
+    public void finish() {
+        finished = true;
+    }
+
+    /** Producer failed - consumer will rethrow on its next take() */
+    public void fail(Throwable t) {
+        failure = t;
+        finished = true;
+    }
+
+    // ========== CONSUMER ==========
+
+    /**
+     * Wait for the next framed slot
+     *
+     * @return Framed slot, or null once the producer finished and the ring is drained
+     * @throws IllegalStateException if the producer failed
+     */
+    public PacketRing.Slot take() {
+        long t = tail.get();
+        int spins = 0;
+        boolean stalled = false;
+        long h;
+        while ((h = head.get()) == t) {
+            if (finished && head.get() == t) {
+                if (failure != null) {
+                    throw new IllegalStateException("Framer failed: " + failure, failure);
+                }
+                return null;
+            }
+            if (Thread.currentThread().isInterrupted()) return null;
+            if (!stalled) {
+                stalled = true;
+                senderStalls++;
+            }
+            if (++spins < SPIN_LIMIT) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(PARK_NS);
+            }
+        }
+
+        int occupancy = (int) (h - t);
+        occupancySum += occupancy;
+        occupancySamples++;
+        if (occupancy > occupancyMax) occupancyMax = occupancy;
+
+        return ring.slot(t);
+    }
+
+    /** Return the taken slot to the producer */
+    public void release() {
+        tail.lazySet(tail.get() + 1);
+    }
+
+    // ========== STATS ==========
+
+    public int getOccupancy() {
+        return (int) (head.get() - tail.get());
+    }
+
+    public double getAverageOccupancy() {
+        long samples = occupancySamples;
+        return samples == 0 ? 0.0 : (double) occupancySum / samples;
+    }
+
+    public String getStats() {
+        return String.format("Pipeline: depth=%d, occupancy=%d (avg %.1f, max %d), framer stalls=%d, sender stalls=%d",
+            capacity, getOccupancy(), getAverageOccupancy(), occupancyMax, framerStalls, senderStalls);
+    }
+}
@@ -14,9 +14,34 @@ public static final byte SYN_ACK = 0x11;
 	public static final int OFF_TOTAL_SEQ = 17;  // Changed: now after long file_size
 
 	public static final int HEADER_SIZE = 21;  // Changed: 1 + 8 + 8 + 4 = 21 bytes
+
+	// Striped mode extension (only present when more than one stripe is negotiated)
+	// SYN: + 1 byte requested stripe count
+	// ACK: + 1 byte granted stripe count + 2 bytes port per extra stripe
+	public static final int OFF_STRIPES = 21;
+	public static final int OFF_STRIPE_PORTS = 22;
+	public static final int MAX_STRIPES = 16;
+
+	// Transfer mode flags (only present when a mode is requested)
+	// SYN: + 1 byte after the stripe count; ACK: + 1 byte granted flags after the stripe ports
+	public static final int OFF_SYN_FLAGS = 22;
+	public static final byte FLAG_FOUNTAIN = 0x01;
+
+	// Fountain SYN: + 4 bytes packets per sender mapping window after the flags.
+	// Fountain blocks never span windows, so the receiver maps the same grid.
+	public static final int OFF_SYN_WINDOW = 23;
+
+	public static final int MAX_SIZE = OFF_STRIPE_PORTS + 2 * (MAX_STRIPES - 1) + 1;
+
+	// SYN_ACK: 1 byte signal + 8 bytes file id
+	// Striped mode: + 1 byte stripe count + 2 bytes sender source port per extra stripe
+	public static final int SYN_ACK_SIZE = 9;
+	public static final int OFF_SYN_ACK_STRIPES = 9;
+	public static final int OFF_SYN_ACK_PORTS = 10;
+
 	private ByteBuffer hnd_shk_pkt;
 	public HandShake_Packet(){
-		this.hnd_shk_pkt = ByteBuffer.allocateDirect(HEADER_SIZE)
+		this.hnd_shk_pkt = ByteBuffer.allocateDirect(MAX_SIZE)
 					.order(ByteOrder.BIG_ENDIAN);	
 	}
 	
@@ -37,6 +62,31 @@ public static final byte SYN_ACK = 0x11;
 		hnd_shk_pkt.position(0);
 	}
 	
+	public void make_SYN(long file_Id, long file_size, int total_seq, int stripes){
+		make_SYN(file_Id, file_size, total_seq);
+		if(stripes <= 1) return; // Legacy SYN - old receivers only accept 21 bytes
+
+		hnd_shk_pkt.limit(OFF_STRIPES + 1);
+		hnd_shk_pkt.put(OFF_STRIPES, (byte) Math.min(stripes, MAX_STRIPES));
+	}
+
+	public void make_SYN(long file_Id, long file_size, int total_seq, int stripes, byte flags){
+		make_SYN(file_Id, file_size, total_seq, stripes);
+		if(flags == 0) return;
+
+		hnd_shk_pkt.limit(OFF_SYN_FLAGS + 1);
+		hnd_shk_pkt.put(OFF_STRIPES, (byte) Math.max(1, Math.min(stripes, MAX_STRIPES)));
+		hnd_shk_pkt.put(OFF_SYN_FLAGS, flags);
+	}
+	
+	public void make_SYN(long file_Id, long file_size, int total_seq, int stripes, byte flags, int windowSeqs){
+		make_SYN(file_Id, file_size, total_seq, stripes, flags);
+		if(flags == 0 || windowSeqs <= 0) return;
+
+		hnd_shk_pkt.limit(OFF_SYN_WINDOW + 4);
+		hnd_shk_pkt.putInt(OFF_SYN_WINDOW, windowSeqs);
+	}
+	
 	public void make_ACK(long file_Id, long file_size, int total_seq)
 	{
 		hnd_shk_pkt.clear();
@@ -50,6 +100,30 @@ public static final byte SYN_ACK = 0x11;
 		hnd_shk_pkt.position(0);
 	}
 
+	public void make_ACK(long file_Id, long file_size, int total_seq, int[] stripePorts)
+	{
+		make_ACK(file_Id, file_size, total_seq);
+		if(stripePorts == null || stripePorts.length == 0) return;
+
+		hnd_shk_pkt.limit(OFF_STRIPE_PORTS + 2 * stripePorts.length);
+		hnd_shk_pkt.put(OFF_STRIPES, (byte) (stripePorts.length + 1));
+		for(int i = 0; i < stripePorts.length; i++) {
+			hnd_shk_pkt.putShort(OFF_STRIPE_PORTS + 2 * i, (short) stripePorts[i]);
+		}
+	}
+
+	public void make_ACK(long file_Id, long file_size, int total_seq, int[] stripePorts, byte flags)
+	{
+		make_ACK(file_Id, file_size, total_seq, stripePorts);
+		if(flags == 0) return;
+
+		int ports = stripePorts == null ? 0 : stripePorts.length;
+		int off = OFF_STRIPE_PORTS + 2 * ports;
+		hnd_shk_pkt.limit(off + 1);
+		hnd_shk_pkt.put(OFF_STRIPES, (byte) (ports + 1));
+		hnd_shk_pkt.put(off, flags);
+	}
+
 	public void make_SYN_ACK(long file_Id)
 	{
 		hnd_shk_pkt.clear();
@@ -57,11 +131,23 @@ public static final byte SYN_ACK = 0x11;
 		hnd_shk_pkt.put(OFF_SIG, SYN_ACK);
 		hnd_shk_pkt.putLong(OFF_FILE_ID, file_Id);
 
-		hnd_shk_pkt.limit(9);
+		hnd_shk_pkt.limit(SYN_ACK_SIZE);
 		hnd_shk_pkt.position(0);
 
 	}
 
+	public void make_SYN_ACK(long file_Id, int[] stripeSourcePorts)
+	{
+		make_SYN_ACK(file_Id);
+		if(stripeSourcePorts == null || stripeSourcePorts.length == 0) return;
+
+		hnd_shk_pkt.limit(OFF_SYN_ACK_PORTS + 2 * stripeSourcePorts.length);
+		hnd_shk_pkt.put(OFF_SYN_ACK_STRIPES, (byte) (stripeSourcePorts.length + 1));
+		for(int i = 0; i < stripeSourcePorts.length; i++) {
+			hnd_shk_pkt.putShort(OFF_SYN_ACK_PORTS + 2 * i, (short) stripeSourcePorts[i]);
+		}
+	}
+
 	public void resetForRetransmitter()
 	{
 		hnd_shk_pkt.position(0).limit(HEADER_SIZE);
@@ -70,4 +156,18 @@ public static final byte SYN_ACK = 0x11;
 	public static long get_file_Id(ByteBuffer b){ return b.getLong(OFF_FILE_ID); }
 	public static long get_file_size(ByteBuffer b) { return b.getLong(OFF_FILE_SIZE); }  // Changed to long
 	public static int get_total_seq(ByteBuffer b) { return b.getInt(OFF_TOTAL_SEQ); }
+	public static int get_stripes(ByteBuffer b, int len) { return len > OFF_STRIPES ? Math.max(1, b.get(OFF_STRIPES) & 0xFF) : 1; }
+	public static int get_stripe_port(ByteBuffer b, int i) { return Short.toUnsignedInt(b.getShort(OFF_STRIPE_PORTS + 2 * i)); }
+	public static int get_syn_ack_stripes(ByteBuffer b, int len) {
+		if(len <= OFF_SYN_ACK_STRIPES) return 1;
+		int stripes = Math.max(1, b.get(OFF_SYN_ACK_STRIPES) & 0xFF);
+		return len >= OFF_SYN_ACK_PORTS + 2 * (stripes - 1) ? stripes : 1;
+	}
+	public static int get_syn_ack_port(ByteBuffer b, int i) { return Short.toUnsignedInt(b.getShort(OFF_SYN_ACK_PORTS + 2 * i)); }
+	public static byte get_syn_flags(ByteBuffer b, int len) { return len > OFF_SYN_FLAGS ? b.get(OFF_SYN_FLAGS) : 0; }
+	public static int get_syn_window(ByteBuffer b, int len) { return len >= OFF_SYN_WINDOW + 4 ? Math.max(0, b.getInt(OFF_SYN_WINDOW)) : 0; }
+	public static byte get_ack_flags(ByteBuffer b, int len) {
+		int off = OFF_STRIPE_PORTS + 2 * (get_stripes(b, len) - 1);
+		return len > off ? b.get(off) : 0;
+	}
 }
@@ -1,11 +1,10 @@
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.LockSupport;
 
 /**
  * QUIC-inspired hybrid congestion control for NAK-based protocol
  * Combines QUIC's cubic congestion control with rate-based pacing
  */
-public class HybridCongestionController {
+public class HybridCongestionController implements CongestionController {
     
     // QUIC-inspired congestion window (bytes)
     private volatile long congestionWindow = 32 * 1450; // 32 packets başlangıç
@@ -24,6 +23,9 @@ public class HybridCongestionController {
     private volatile long pacingRate = estimatedBandwidthBps;
     private volatile long packetIntervalNs = 0;
     
+    // Token-bucket pacer - releases small bursts per timer tick
+    private final PacingEngine pacer = new PacingEngine(PACKET_SIZE);
+    
     // RTT tracking (QUIC RttStats benzeri)
     private volatile long smoothedRtt = 100_000_000; // 100ms başlangıç
     private volatile long rttVar = 50_000_000; // 50ms variance
@@ -37,9 +39,8 @@ public class HybridCongestionController {
     }
     private volatile CongestionState state = CongestionState.SLOW_START;
     
-    // In-flight tracking
-    private final AtomicLong bytesInFlight = new AtomicLong(0);
-    private final AtomicLong packetsInFlight = new AtomicLong(0);
+    // In-flight tracking - per-seq, released by NACK implicit ACKs
+    private volatile InFlightTracker inFlight = null;
     
     // Statistics
     private final AtomicLong totalPacketsSent = new AtomicLong(0);
@@ -61,33 +62,32 @@ public class HybridCongestionController {
         updatePacingRate();
     }
     
+    public String getName() {
+        return "hybrid";
+    }
+    
     /**
      * NACK-based pacing with bandwidth awareness
-     * LAN'da da mikro-pacing aktif - burst önleme
+     * Token-bucket pacing - burst per timer tick instead of per-packet park
      */
     public void rateLimitSend() {
-        // Congestion window kontrolü
-        if (bytesInFlight.get() >= congestionWindow) {
-            // Window dolu - biraz bekle ve tekrar kontrol et
-            long waitTime = packetIntervalNs > 0 ? packetIntervalNs * 2 : 10_000; // Min 10μs
-            if (waitTime > 100_000) { // Max 100μs bekle
-                waitTime = 100_000;
-            }
-            LockSupport.parkNanos(waitTime);
-            return;
+        rateLimitSend(PACKET_SIZE);
+    }
+    
+    public void rateLimitSend(int packetSize) {
+        // Congestion window kontrolü - ACK'ler in-flight'ı azaltana kadar bekle
+        InFlightTracker tracker = inFlight;
+        if (tracker != null) {
+            tracker.awaitRoom(this, packetSize);
         }
         
         // Pacing kontrolü - LAN dahil tüm networkler için
-        if (packetIntervalNs > 0) {
-            long now = System.nanoTime();
-            long timeSinceLastSend = now - lastSendTime;
-            
-            if (timeSinceLastSend < packetIntervalNs) {
-                long sleepTime = packetIntervalNs - timeSinceLastSend;
-                LockSupport.parkNanos(sleepTime);
-            }
-            lastSendTime = System.nanoTime();
-        }
+        pacer.acquire(packetSize);
+    }
+    
+    public long tryRateLimitSend(int packetSize) {
+        if (!canSendPacket(packetSize)) return WINDOW_FULL;
+        return pacer.tryAcquire(packetSize);
     }
     
     /**
@@ -98,10 +98,9 @@ public class HybridCongestionController {
     }
     
     public void onPacketSent(int packetSize) {
-        bytesInFlight.addAndGet(packetSize);
-        packetsInFlight.incrementAndGet();
         totalPacketsSent.incrementAndGet();
         totalBytesSent.addAndGet(packetSize);
+        pacer.onSent(packetSize);
     }
     
 	/**
@@ -109,6 +108,11 @@ public class HybridCongestionController {
 	 * In-flight tracking yapma, sadece bandwidth estimate
 	 */
 	public void onNackFrameReceived(int receivedPacketCount, int lostPacketCount) {
+		// Observed loss (stats + FEC sizing) - the window itself only pauses growth
+		if (lostPacketCount > 0) {
+			totalLossCount.addAndGet(lostPacketCount);
+		}
+		
 		if (receivedPacketCount > 0) {
 			// Delivery rate tracking - sadece bandwidth için
 			int deliveredBytes = receivedPacketCount * PACKET_SIZE;
@@ -245,16 +249,13 @@ public class HybridCongestionController {
         pacingRate = (long)((targetWindow * 1_000_000_000L * pacingGain) / smoothedRtt);
         pacingRate = Math.min(pacingRate, estimatedBandwidthBps * 2);
         
-        // Mikro-pacing interval hesapla
+        // Mean packet interval - token bucket paces the rate, no per-packet floor
         if (pacingRate > 0) {
             packetIntervalNs = (PACKET_SIZE * 1_000_000_000L) / pacingRate;
-            
-            // LAN vs WAN için farklı minimumlar
-            long minInterval = isLocalNetwork ? 20_000 : 1_000; // 20μs LAN, 1μs WAN
-            packetIntervalNs = Math.max(packetIntervalNs, minInterval);
         } else {
             packetIntervalNs = isLocalNetwork ? 20_000 : 10_000;
         }
+        pacer.setRate(pacingRate);
     }
     
     /**
@@ -268,9 +269,8 @@ public class HybridCongestionController {
         slowStartThreshold = 256 * PACKET_SIZE;   // 256 packets threshold
         estimatedBandwidthBps = 500_000_000;      // 500 Mbps başlangıç
         smoothedRtt = 2_000_000;                  // 2ms realistic LAN RTT
-        packetIntervalNs = 20_000;                // 20μs mikro-pacing
         updatePacingRate();
-        System.out.println("⚡ LAN MODE: mikro-pacing (20μs), large cwnd (512 pkts)");
+        System.out.println("⚡ LAN MODE: token-bucket pacing, large cwnd (512 pkts)");
     }
     
     public void enableWanMode() {
@@ -297,10 +297,11 @@ public class HybridCongestionController {
         double lossRate = Math.min(100.0, (totalLost * 100.0) / (totalSent + totalLost));
         
         return String.format(
-            "State: %s, CWnd: %d pkts, BW: %.1f Mbps, RTT: %.1fms, " +
+            "State: %s, CWnd: %d pkts, InFlight: %d pkts, BW: %.1f Mbps, RTT: %.1fms, " +
             "Loss: %.2f%%, Throughput: %.1f Mbps",
             state,
             congestionWindow / PACKET_SIZE,
+            getBytesInFlight() / PACKET_SIZE,
             estimatedBandwidthBps / 1_000_000.0,
             smoothedRtt / 1_000_000.0,
             lossRate,
@@ -316,9 +317,17 @@ public class HybridCongestionController {
     }
     
     public boolean canSendPacket(int packetSize) {
-        // Basitleştirilmiş: sadece congestion window check
-        // In-flight tracking NACK-based protokolde zor, sadece window limiti
-        return true; // Her zaman gönder, pacing kontrol eder
+        InFlightTracker tracker = inFlight;
+        return tracker == null || tracker.hasRoom(this, packetSize);
+    }
+    
+    public void setInFlightTracker(InFlightTracker tracker) {
+        this.inFlight = tracker;
+    }
+    
+    public long getBytesInFlight() {
+        InFlightTracker tracker = inFlight;
+        return tracker != null ? tracker.getBytesInFlight() : 0;
     }
     
     /**
@@ -328,8 +337,6 @@ public class HybridCongestionController {
         congestionWindow = 32 * PACKET_SIZE;
         slowStartThreshold = Long.MAX_VALUE;
         state = CongestionState.SLOW_START;
-        bytesInFlight.set(0);
-        packetsInFlight.set(0);
         totalPacketsSent.set(0);
         totalBytesSent.set(0);
         totalLossCount.set(0);
@@ -346,6 +353,12 @@ public class HybridCongestionController {
     // Getters
     public long getCongestionWindow() { return congestionWindow; }
     public long getSmoothedRtt() { return smoothedRtt; }
+    public long getRttVar() { return rttVar; }
     public long getPacingInterval() { return packetIntervalNs; }
+    public String getPacingStats() { return pacer.getStats(); }
+    public double getLossRate() {
+        long lost = totalLossCount.get();
+        return lost / (double) Math.max(1, totalPacketsSent.get() + lost);
+    }
     public CongestionState getState() { return state; }
 }
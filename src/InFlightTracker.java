@@ -0,0 +1,298 @@
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Per-sequence bytes-in-flight accounting driven by NACK implicit ACKs
+ *
+ * One bit per sequence marks it as outstanding (sent, not yet acknowledged
+ * and not declared lost). Setting or clearing a bit is a CAS, so a packet
+ * is added to / released from the in-flight total exactly once no matter
+ * how many NACK frames report it:
+ * - sent             : bit set   -> +1 packet
+ * - bit set in mask  : bit clear -> -1 packet (implicit ACK)
+ * - below cum ACK    : bit clear -> -1 packet
+ * - declared lost    : bit clear -> -1 packet (a retransmission re-adds it)
+ * - extended range   : bit clear -> -1 packet (received part of an extended NACK)
+ * - beyond the mask  : bit clear -> -1 packet once it has been outstanding
+ *                      across two NACK frames (not an ACK: never reported
+ *                      to the congestion controller as delivered)
+ *
+ * The 64-bit NACK mask only covers [cumAck, cumAck + 64); extended frames
+ * extend that up to the highest sequence the receiver has seen. Anything
+ * above the described range is released by age instead: a packet still
+ * outstanding at two consecutive frames has had a full NACK tick to reach
+ * the receiver. If it was lost it shows up as a hole later and its
+ * retransmission is counted again. Age is tracked per sequence (second bitmap), so stripes that run
+ * at different speeds are handled correctly.
+ *
+ * Bytes are counted at the nominal packet size.
+ *
+ * Window waits escape after a stall timeout (max(RTO, MIN_STALL_TIMEOUT_NS)):
+ * if no feedback frees the window that long (NACKs lost, tail packets never
+ * reported), everything outstanding is forgotten so the sender cannot
+ * deadlock. Retransmission of real holes is still driven by NACKs.
+ */
+public final class InFlightTracker {
+
+    /** Lower bound for the stall timeout (NACK tick is 10-50ms) */
+    public static final long MIN_STALL_TIMEOUT_NS = 100_000_000; // 100ms
+
+    private static final long WAIT_PARK_NS = 20_000; // 20μs
+
+    private final AtomicBitmap outstanding;
+    private final int packetSize;
+
+    private final AtomicLong packetsInFlight = new AtomicLong(0);
+
+    /** Cum ACK already released - everything below it is delivered (written by listener) */
+    private volatile int releasedBelow = 0;
+
+    /** Highest sequence handed to the socket so far */
+    private final AtomicInteger highestSent = new AtomicInteger(-1);
+
+    /** Outstanding above the mask at the previous NACK frame */
+    private final AtomicBitmap aged;
+
+    /** Released by age, not confirmed yet - a later report still counts as an ACK */
+    private final AtomicBitmap unconfirmed;
+
+    /** Transmitted at least once - zeros in a NACK mask for unsent seqs are not holes */
+    private final AtomicBitmap sent;
+
+    /** Time the window was first seen full, 0 while it has room */
+    private volatile long blockedSinceNs = 0;
+
+    // Statistics
+    private final AtomicLong acked = new AtomicLong(0);
+    private final AtomicLong lost = new AtomicLong(0);
+    private final AtomicLong agedOut = new AtomicLong(0);
+    private final AtomicLong stalls = new AtomicLong(0);
+    private final AtomicLong stallTimeouts = new AtomicLong(0);
+
+    /**
+     * Create tracker
+     *
+     * @param totalSeq   Number of sequences in the transfer
+     * @param packetSize Nominal packet size in bytes
+     */
+    public InFlightTracker(int totalSeq, int packetSize) {
+        this.outstanding = new AtomicBitmap(totalSeq);
+        this.aged = new AtomicBitmap(totalSeq);
+        this.unconfirmed = new AtomicBitmap(totalSeq);
+        this.sent = new AtomicBitmap(totalSeq);
+        this.packetSize = packetSize;
+    }
+
+    /**
+     * Packet written to the socket
+     */
+    public void onSent(int seq) {
+        if (seq < releasedBelow) return; // Late duplicate of a delivered packet
+        if (!sent.get(seq)) {
+            sent.set(seq);
+        }
+        if (outstanding.set(seq)) {
+            packetsInFlight.incrementAndGet();
+        }
+        if (aged.get(seq)) {
+            aged.clear(seq); // Retransmission starts a fresh tick
+        }
+        if (unconfirmed.get(seq)) {
+            unconfirmed.clear(seq); // Outstanding again
+        }
+        if (seq > highestSent.get()) {
+            highestSent.accumulateAndGet(seq, Math::max);
+        }
+    }
+
+    /**
+     * Sequence reported received in a NACK mask
+     *
+     * @return true if this is its first report (a delivery)
+     */
+    public boolean onAcked(int seq) {
+        if (outstanding.clear(seq)) {
+            packetsInFlight.decrementAndGet();
+            acked.incrementAndGet();
+            return true;
+        }
+        if (unconfirmed.get(seq) && unconfirmed.clear(seq)) {
+            acked.incrementAndGet(); // Window was freed by age already
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Sequence declared lost - removed from flight until retransmitted
+     *
+     * @return true if it was outstanding
+     */
+    public boolean onLost(int seq) {
+        if (unconfirmed.get(seq)) {
+            unconfirmed.clear(seq); // Never confirmed - not delivered
+        }
+        if (outstanding.clear(seq)) {
+            packetsInFlight.decrementAndGet();
+            lost.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Range reported received by an extended NACK frame
+     *
+     * @return Number of packets newly acknowledged in [from, to)
+     */
+    public int onAckedRange(int from, int to) {
+        return ackRange(Math.max(0, from), Math.min(to, outstanding.size()));
+    }
+
+    /**
+     * Release everything below the receiver's cumulative ACK (listener thread only)
+     *
+     * @return Number of packets newly acknowledged
+     */
+    public int onCumulativeAck(int cumAck) {
+        int limit = Math.min(cumAck, outstanding.size());
+        int count = ackRange(releasedBelow, limit);
+        if (limit > releasedBelow) {
+            releasedBelow = limit;
+        }
+        return count;
+    }
+
+    /**
+     * Acknowledge outstanding and age-released sequences in [from, limit)
+     *
+     * @return Number of packets newly acknowledged
+     */
+    private int ackRange(int from, int limit) {
+        int count = 0;
+        for (int seq = outstanding.nextSetBit(from); seq >= 0 && seq < limit;
+             seq = outstanding.nextSetBit(seq + 1)) {
+            if (onAcked(seq)) count++;
+        }
+        for (int seq = unconfirmed.nextSetBit(from); seq >= 0 && seq < limit;
+             seq = unconfirmed.nextSetBit(seq + 1)) {
+            if (onAcked(seq)) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Release sequences above the NACK frame's range that were already outstanding
+     * at the previous frame; mark the rest (listener thread only, once per
+     * NACK frame)
+     *
+     * Only frees window space: the receiver never confirmed these packets,
+     * so they must not count as delivered (cwnd growth, bandwidth samples).
+     * They count once a later frame reports them received.
+     *
+     * @param coveredUpTo First sequence not described by the frame (cumAck + 64,
+     *                    or the extended frame's coveredUpTo)
+     * @return Number of packets released (not acknowledged)
+     */
+    public int onUncoveredAged(int coveredUpTo) {
+        int limit = Math.min(highestSent.get() + 1, outstanding.size());
+        int count = 0;
+        for (int seq = outstanding.nextSetBit(Math.max(0, coveredUpTo)); seq >= 0 && seq < limit;
+             seq = outstanding.nextSetBit(seq + 1)) {
+            if (!aged.set(seq)) {
+                aged.clear(seq);
+                if (outstanding.clear(seq)) {
+                    unconfirmed.set(seq);
+                    packetsInFlight.decrementAndGet();
+                    agedOut.incrementAndGet();
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * True if the receiver's cumulative ACK has passed seq
+     */
+    public boolean isDelivered(int seq) {
+        return seq < releasedBelow;
+    }
+
+    /**
+     * True once seq has been handed to the socket
+     */
+    public boolean wasSent(int seq) {
+        return sent.get(seq);
+    }
+
+    public boolean isOutstanding(int seq) {
+        return outstanding.get(seq);
+    }
+
+    public long getPacketsInFlight() {
+        return Math.max(0, packetsInFlight.get());
+    }
+
+    public long getBytesInFlight() {
+        return getPacketsInFlight() * packetSize;
+    }
+
+    /**
+     * Non-blocking window check; after a stall longer than the timeout the
+     * outstanding set is forgotten and the check passes
+     */
+    public boolean hasRoom(CongestionController cc, int bytes) {
+        if (getBytesInFlight() + bytes <= cc.getCongestionWindow()) {
+            blockedSinceNs = 0;
+            return true;
+        }
+
+        long now = System.nanoTime();
+        long since = blockedSinceNs;
+        if (since == 0) {
+            blockedSinceNs = now;
+            stalls.incrementAndGet();
+            return false;
+        }
+        if (now - since > stallTimeout(cc)) {
+            forgetAll();
+            stallTimeouts.incrementAndGet();
+            blockedSinceNs = 0;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Block until the congestion window has room for bytes
+     */
+    public void awaitRoom(CongestionController cc, int bytes) {
+        while (!hasRoom(cc, bytes)) {
+            if (Thread.currentThread().isInterrupted()) return;
+            LockSupport.parkNanos(WAIT_PARK_NS);
+        }
+    }
+
+    private static long stallTimeout(CongestionController cc) {
+        return Math.max(MIN_STALL_TIMEOUT_NS, cc.getSmoothedRtt() + 4 * cc.getRttVar());
+    }
+
+    /**
+     * Drop all outstanding marks (stall timeout)
+     */
+    private void forgetAll() {
+        for (int seq = outstanding.nextSetBit(0); seq >= 0; seq = outstanding.nextSetBit(seq + 1)) {
+            if (outstanding.clear(seq)) {
+                packetsInFlight.decrementAndGet();
+            }
+        }
+    }
+
+    public String getStats() {
+        return String.format("InFlight: %d pkts (%d KB), acked=%d, lost=%d, aged out=%d, window stalls=%d, stall timeouts=%d",
+            getPacketsInFlight(), getBytesInFlight() / 1024,
+            acked.get(), lost.get(), agedOut.get(), stalls.get(), stallTimeouts.get());
+    }
+}
@@ -0,0 +1,209 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Local UDP relay that drops and delays datagrams (test links for benchmarks)
+ *
+ * The sender connects to the relay's front port; the relay forwards to the
+ * target from its own back socket and sends replies (ACK, NACK, completion)
+ * back to the last sender address seen. Sender -> target data datagrams
+ * are dropped with the given probability (Bernoulli, seeded); handshake
+ * datagrams always pass - a lost SYN costs the sender its whole handshake
+ * deadline, which is not what the benchmarks measure. Both directions get
+ * the same one-way delay. A constant delay keeps FIFO order, so each
+ * direction is one queue plus one forwarding thread.
+ *
+ *   java LossyRelay 9000 127.0.0.1 9999 5 10    (port, target, loss %, delay ms)
+ *
+ * Single socket pair only: striped senders connect their extra stripes to
+ * the receiver directly and bypass the relay.
+ *
+ * Thread-safety: one reader and one forwarder thread per direction.
+ */
+public final class LossyRelay implements AutoCloseable {
+
+    private static final int SOCKET_BUFFER = 16 * 1024 * 1024;
+    private static final int MAX_DATAGRAM = 65_535;
+    private static final long IDLE_PARK_NS = 50_000; // 50μs
+
+    private final DatagramChannel front;
+    private final DatagramChannel back;
+    private final double loss;
+    private final long delayNs;
+    private final SplittableRandom random;
+
+    /** Last address that sent to the front port - replies go there */
+    private volatile SocketAddress sender;
+    private volatile boolean running = true;
+
+    // Statistics (reader threads write)
+    private volatile long forwarded = 0;
+    private volatile long dropped = 0;
+    private volatile long returned = 0;
+
+    /** Datagram waiting for its delay to pass */
+    private static final class Delayed {
+        final byte[] data;
+        final long dueNs;
+
+        Delayed(byte[] data, long dueNs) {
+            this.data = data;
+            this.dueNs = dueNs;
+        }
+    }
+
+    /**
+     * @param listen  Front address the sender connects to (port 0: any)
+     * @param target  Receiver address
+     * @param loss    Drop probability for sender -> target datagrams larger than a handshake (0..1)
+     * @param delayNs One-way delay per direction
+     * @param seed    Loss pattern seed
+     */
+    public LossyRelay(InetSocketAddress listen, InetSocketAddress target, double loss, long delayNs, long seed) throws IOException {
+        this.loss = Math.max(0.0, Math.min(1.0, loss));
+        this.delayNs = Math.max(0, delayNs);
+        this.random = new SplittableRandom(seed);
+        this.front = open();
+        this.back = open();
+        front.bind(listen);
+        back.bind(new InetSocketAddress(target.getAddress(), 0));
+        back.connect(target);
+    }
+
+    private static DatagramChannel open() throws IOException {
+        DatagramChannel ch = DatagramChannel.open();
+        ch.setOption(StandardSocketOptions.SO_SNDBUF, SOCKET_BUFFER);
+        ch.setOption(StandardSocketOptions.SO_RCVBUF, SOCKET_BUFFER);
+        return ch;
+    }
+
+    /** Address the sender should connect to */
+    public InetSocketAddress getAddress() throws IOException {
+        return (InetSocketAddress) front.getLocalAddress();
+    }
+
+    /** Start the relay threads (daemon) */
+    public LossyRelay start() {
+        ConcurrentLinkedQueue<Delayed> toTarget = new ConcurrentLinkedQueue<>();
+        ConcurrentLinkedQueue<Delayed> toSender = new ConcurrentLinkedQueue<>();
+        SessionThreads.start("relay-forward-read", () -> readForward(toTarget));
+        SessionThreads.start("relay-forward-send", () -> drain(toTarget, true));
+        SessionThreads.start("relay-return-read", () -> readReturn(toSender));
+        SessionThreads.start("relay-return-send", () -> drain(toSender, false));
+        return this;
+    }
+
+    private void readForward(ConcurrentLinkedQueue<Delayed> queue) {
+        ByteBuffer buf = ByteBuffer.allocateDirect(MAX_DATAGRAM);
+        try {
+            while (running) {
+                buf.clear();
+                SocketAddress from = front.receive(buf);
+                if (from == null) continue;
+                if (!from.equals(sender)) sender = from;
+                if (loss > 0 && buf.position() > HandShake_Packet.MAX_SIZE && random.nextDouble() < loss) {
+                    dropped++;
+                    continue;
+                }
+                queue.add(new Delayed(copy(buf), System.nanoTime() + delayNs));
+                forwarded++;
+            }
+        } catch (IOException e) {
+            if (running) System.err.println("Relay read failed: " + e);
+        }
+    }
+
+    private void readReturn(ConcurrentLinkedQueue<Delayed> queue) {
+        ByteBuffer buf = ByteBuffer.allocateDirect(MAX_DATAGRAM);
+        try {
+            while (running) {
+                buf.clear();
+                if (back.receive(buf) == null) continue;
+                queue.add(new Delayed(copy(buf), System.nanoTime() + delayNs));
+                returned++;
+            }
+        } catch (IOException e) {
+            if (running) System.err.println("Relay read failed: " + e);
+        }
+    }
+
+    private static byte[] copy(ByteBuffer buf) {
+        buf.flip();
+        byte[] data = new byte[buf.remaining()];
+        buf.get(data);
+        return data;
+    }
+
+    /**
+     * Send queued datagrams once their delay has passed (FIFO: due times are ordered)
+     */
+    private void drain(ConcurrentLinkedQueue<Delayed> queue, boolean toTarget) {
+        try {
+            while (running) {
+                Delayed d = queue.peek();
+                if (d == null) {
+                    LockSupport.parkNanos(IDLE_PARK_NS);
+                    continue;
+                }
+                long wait = d.dueNs - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(Math.min(wait, 1_000_000));
+                    continue;
+                }
+                queue.poll();
+                if (toTarget) {
+                    back.write(ByteBuffer.wrap(d.data));
+                } else {
+                    SocketAddress to = sender;
+                    if (to != null) front.send(ByteBuffer.wrap(d.data), to);
+                }
+            }
+        } catch (IOException e) {
+            if (running) System.err.println("Relay send failed: " + e);
+        }
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+
+    public String getStats() {
+        long f = forwarded;
+        long d = dropped;
+        return String.format("Relay: forwarded=%d, dropped=%d (%.1f%%), returned=%d, delay=%.1f ms",
+            f, d, (f + d) == 0 ? 0.0 : d * 100.0 / (f + d), returned, delayNs / 1_000_000.0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        front.close();
+        back.close();
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Usage: java LossyRelay <listenPort> <targetHost> <targetPort> [loss %] [delay ms]");
+            return;
+        }
+        int port = Integer.parseInt(args[0]);
+        InetSocketAddress target = new InetSocketAddress(args[1], Integer.parseInt(args[2]));
+        double lossPct = args.length > 3 ? Double.parseDouble(args[3]) : 0.0;
+        long delayMs = args.length > 4 ? Long.parseLong(args[4]) : 0;
+        LossyRelay relay = new LossyRelay(new InetSocketAddress(target.getAddress(), port), target,
+            lossPct / 100.0, delayMs * 1_000_000L, System.nanoTime());
+        relay.start();
+        System.out.println("🔀 Relay " + relay.getAddress() + " -> " + target + ": loss " + lossPct + "%, delay " + delayMs + " ms");
+        while (true) {
+            Thread.sleep(2000);
+            System.out.println("🔀 " + relay.getStats());
+        }
+    }
+}
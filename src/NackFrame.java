@@ -1,13 +1,41 @@
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
+/**
+ * NACK frame (receiver -> sender)
+ *
+ * Legacy frame (28 bytes): fileId, base = cum ACK, 64-bit received mask
+ * for [base, base + 64), send timestamp.
+ *
+ * Extended frame (34 + 8 * blocks bytes): the legacy 28 bytes followed by
+ * - 28-31: coveredUpTo - the frame describes every sequence below it
+ * - 32-33: block count
+ * - 34-  : missing ranges (start, length) in [base + 64, coveredUpTo)
+ * Everything in [base + 64, coveredUpTo) outside a block was received, so
+ * holes far past the cum ACK are reported (and implicitly ACKed) without
+ * waiting for the head hole to be repaired. When the blocks do not fit,
+ * coveredUpTo stops at the first omitted range; the next frame goes on.
+ *
+ * The legacy frame is still sent whenever nothing beyond the mask is known,
+ * and always with -Dturbo.nack.extended=false (older senders).
+ */
 public final class NackFrame {
     public static final int SIZE = 28; // 20 + 8 bytes for timestamp
 
+    public static final int EXT_HEADER_SIZE = 34; // SIZE + coveredUpTo + block count
+    public static final int BLOCK_SIZE = 8;       // start + length
+
+    /** Missing ranges per extended frame - 128 blocks keep the frame at 1058 bytes (< MTU) */
+    public static final int MAX_BLOCKS = Math.max(1, Math.min(170, Integer.getInteger("turbo.nack.blocks", 128)));
+
+    public static final int MAX_SIZE = EXT_HEADER_SIZE + MAX_BLOCKS * BLOCK_SIZE;
+
     private final ByteBuffer buf;
+    private int length = SIZE;
+    private int blocks = 0;
 
     public NackFrame() {
-        this.buf = ByteBuffer.allocateDirect(SIZE).order(ByteOrder.BIG_ENDIAN);
+        this.buf = ByteBuffer.allocateDirect(MAX_SIZE).order(ByteOrder.BIG_ENDIAN);
     }
 
     public ByteBuffer buffer() { return buf; }
@@ -18,14 +46,61 @@ public final class NackFrame {
         buf.putInt (8, baseSeq);        // 8-11: base sequence
         buf.putLong(12, mask64);        // 12-19: bitmask
         buf.putLong(20, System.nanoTime()); // 20-27: NACK send timestamp
+        length = SIZE;
+        blocks = 0;
         buf.limit(SIZE);
         buf.position(0);
     }
 
-    public void resetForRetry() { buf.position(0).limit(SIZE); }
+    /**
+     * Start an extended frame; follow with addBlock() calls and finishExtended()
+     */
+    public void beginExtended(long fileId, int baseSeq, long mask64) {
+        fill(fileId, baseSeq, mask64);
+        buf.limit(buf.capacity());
+    }
+
+    /**
+     * Append one missing range
+     *
+     * @return false if the frame is full (range not added)
+     */
+    public boolean addBlock(int start, int len) {
+        if (blocks >= MAX_BLOCKS) return false;
+        int off = EXT_HEADER_SIZE + blocks * BLOCK_SIZE;
+        buf.putInt(off, start);
+        buf.putInt(off + 4, len);
+        blocks++;
+        return true;
+    }
+
+    public void finishExtended(int coveredUpTo) {
+        buf.putInt(28, coveredUpTo);              // 28-31: described range end
+        buf.putShort(32, (short) blocks);         // 32-33: block count
+        length = EXT_HEADER_SIZE + blocks * BLOCK_SIZE;
+        buf.limit(length);
+        buf.position(0);
+    }
+
+    public int length() { return length; }
+
+    public void resetForRetry() { buf.position(0).limit(length); }
 
     public static long  fileId(ByteBuffer b)     { return b.getLong(0); }
     public static int   baseSeq(ByteBuffer b)    { return b.getInt(8); }
     public static long  mask64(ByteBuffer b)     { return b.getLong(12); }
     public static long  timestamp(ByteBuffer b)  { return b.getLong(20); }
+
+    /**
+     * True if len bytes in b form a well-formed extended frame
+     */
+    public static boolean isExtended(ByteBuffer b, int len) {
+        if (len < EXT_HEADER_SIZE || (len - EXT_HEADER_SIZE) % BLOCK_SIZE != 0) return false;
+        return blockCount(b) == (len - EXT_HEADER_SIZE) / BLOCK_SIZE;
+    }
+
+    public static int   coveredUpTo(ByteBuffer b)       { return b.getInt(28); }
+    public static int   blockCount(ByteBuffer b)        { return b.getShort(32) & 0xFFFF; }
+    public static int   blockStart(ByteBuffer b, int i) { return b.getInt(EXT_HEADER_SIZE + i * BLOCK_SIZE); }
+    public static int   blockLength(ByteBuffer b, int i){ return b.getInt(EXT_HEADER_SIZE + i * BLOCK_SIZE + 4); }
 }
@@ -1,19 +1,23 @@
 import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.DatagramChannel;
-import java.util.BitSet;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.locks.LockSupport;
 import java.util.zip.CRC32C;
 
-public class NackSender implements Runnable{
+public final class NackSender implements Runnable{
 	public final long fileId;
 	public final long file_size;  // Changed to long for large file support
 	public final int total_seq;
 	public final DatagramChannel channel;
-	public final BitSet recv;
+	// Lock-free: receive and stripe threads mark packets concurrently, set() dedups and counts
+	public final AtomicBitmap recv;
 	public final NackFrame frame;
 	public final MappedByteBuffer mem_buf;
 	public final ChunkManager chunkManager; // NEW: For large files
@@ -22,7 +26,13 @@ public class NackSender implements Runnable{
 	public volatile Runnable onTransferComplete = null;
 	
 	// Enhanced congestion control reference  
-	public volatile HybridCongestionController hybridControl = null;
+	public volatile CongestionController congestionControl = null;
+	
+	// Write-behind flushing of the received prefix (set by the receiver, may stay null)
+	public volatile DurabilityEngine durability = null;
+	
+	// Unconnected (shared server) channel: NACK and completion frames go to this sender
+	private volatile SocketAddress peer = null;
 
 	// Legacy constructor (backward compatibility)
 	public NackSender(DatagramChannel channel, long fileId, long file_size,
@@ -33,39 +43,85 @@ public class NackSender implements Runnable{
 		this.total_seq = total_seq;
 		this.mem_buf = mem_buf;
 		this.chunkManager = null;
-		this.recv = new BitSet(total_seq);
+		this.recv = new AtomicBitmap(total_seq);
 		this.frame = new NackFrame();
 	}
 	
 	// Enhanced constructor with congestion control
 	public NackSender(DatagramChannel channel, long fileId, long file_size,
-			int total_seq, MappedByteBuffer mem_buf, HybridCongestionController hybridControl){
+			int total_seq, MappedByteBuffer mem_buf, CongestionController congestionControl){
 		this.channel = channel;
 		this.fileId = fileId;
 		this.file_size = file_size;
 		this.total_seq = total_seq;
 		this.mem_buf = mem_buf;
 		this.chunkManager = null;
-		this.recv = new BitSet(total_seq);
+		this.recv = new AtomicBitmap(total_seq);
 		this.frame = new NackFrame();
-		this.hybridControl = hybridControl;
+		this.congestionControl = congestionControl;
 	}
 	
 	// FULL constructor with ChunkManager (for large files > 256MB)
 	public NackSender(DatagramChannel channel, long fileId, long file_size,
-			int total_seq, ChunkManager chunkManager, HybridCongestionController hybridControl){
+			int total_seq, ChunkManager chunkManager, CongestionController congestionControl){
 		this.channel = channel;
 		this.fileId = fileId;
 		this.file_size = file_size;
 		this.total_seq = total_seq;
 		this.mem_buf = null; // Using ChunkManager instead
 		this.chunkManager = chunkManager;
-		this.recv = new BitSet(total_seq);
+		this.recv = new AtomicBitmap(total_seq);
 		this.frame = new NackFrame();
-		this.hybridControl = hybridControl;
+		this.congestionControl = congestionControl;
 	}
 
 	public volatile int cum_Ack = 0;
+	// Highest sequence received so far - end of the range an extended NACK can describe
+	private volatile int highestSeen = -1;
+	
+	// CAS updates: any receive thread may advance these without a monitor
+	private static final AtomicIntegerFieldUpdater<NackSender> CUM_ACK =
+		AtomicIntegerFieldUpdater.newUpdater(NackSender.class, "cum_Ack");
+	private static final AtomicIntegerFieldUpdater<NackSender> HIGHEST_SEEN =
+		AtomicIntegerFieldUpdater.newUpdater(NackSender.class, "highestSeen");
+	
+	// Feedback scheduling: periodic NACK every RTT/4 (clamped), an immediate one when
+	// an out-of-order arrival opens a new gap (at most one per max(1ms, RTT/8)),
+	// and the period doubles per idle tick (no data since the last NACK)
+	public static final long NACK_MIN_INTERVAL_NS = 5_000_000;   // 5ms
+	public static final long NACK_MAX_INTERVAL_NS = 50_000_000;  // 50ms
+	public static final long NACK_IDLE_MAX_NS     = 100_000_000; // 100ms
+	public static final long GAP_NACK_MIN_SPACING_NS = 1_000_000; // 1ms
+	private static final int MAX_IDLE_SHIFT = 2;
+	
+	private volatile boolean nackLoopRunning = false;
+	private volatile Thread feedbackThread = null;
+	private volatile boolean gapPending = false;
+	private volatile boolean dataSinceNack = false;
+	private volatile long lastNackNs = 0;
+	
+	// Receiver-side RTT: a NACK reporting hole X -> arrival of X's repair
+	private final RttStats feedbackRtt = new RttStats(100_000_000); // 100ms başlangıç
+	private volatile int probeSeq = -1;
+	private volatile long probeSentNs = 0;
+	private static final long PROBE_TIMEOUT_NS = 2_000_000_000L; // Repair lost - re-arm
+	
+	// Feedback statistics (written by the feedback thread)
+	private volatile long periodicNacks = 0;
+	private volatile long gapNacks = 0;
+	private volatile long idleNacks = 0;
+	
+	// XOR parity recovery (active once the sender emits parity packets)
+	public final FecDecoder fec = new FecDecoder(this);
+	
+	// Longest idle park of the receive loops (spin and yield first, see BackoffIdle)
+	public static final long RECV_MAX_PARK_NS = 100_000; // 100µs
+	
+	// Staged receive (drain -> verify -> write); null = inline onData on the receive threads
+	public volatile ReceivePipeline pipeline = null;
+	
+	// Extended NACK frames (missing ranges past the 64-bit mask); false = legacy 28-byte frames only
+	public static final boolean EXTENDED_NACK = Boolean.parseBoolean(System.getProperty("turbo.nack.extended", "true"));
 	private volatile boolean transferCompleted = false;
 	public final int CRC32C_HEADER_SIZE = 22;
 	public final int PAYLOAD_SIZE = 1450; // Updated to match FileTransferSender
@@ -80,7 +136,8 @@ public class NackSender implements Runnable{
 	public  ByteBuffer buf = ByteBuffer.allocateDirect(CRC32C_HEADER_SIZE + PAYLOAD_SIZE).order(ByteOrder.BIG_ENDIAN);
 	public CRC32C crc = new CRC32C();
 
-	public synchronized boolean isTransferComplete(){
+	// O(1): AtomicBitmap keeps the set-bit count
+	public boolean isTransferComplete(){
 		return recv.cardinality() == total_seq;	
 	}
 	
@@ -88,15 +145,41 @@ public class NackSender implements Runnable{
 		return transferCompleted;
 	}
 
+	/**
+	 * Advance cum_Ack over the received prefix, a word at a time. Lock-free:
+	 * a thread that loses the CAS re-reads and continues from the winner's
+	 * value; the thread whose set() filled the hole at cum_Ack always sees it.
+	 */
 	private void updateCumulativeAck() {
-    	synchronized(this) {
-    	    while(cum_Ack < total_seq && recv.get(cum_Ack)) {
-   	         cum_Ack++;
-  	      }
-	    if(isTransferComplete() && !transferCompleted){
-			transferCompleted = true;
+		int ack = cum_Ack;
+		while(ack < total_seq && recv.get(ack)) {
+			int next = recv.nextClearBit(ack);
+			if(CUM_ACK.compareAndSet(this, ack, next)) {
+				ack = next;
+			} else {
+				ack = cum_Ack;
+			}
+		}
+		
+		// Fully received windows are never written again - drop their mappings
+		if(chunkManager != null) {
+			chunkManager.releaseBelow(ack);
+		}
+		DurabilityEngine d = durability;
+		if(d != null) {
+			d.onContiguous(ack);
+		}
+		
+		if(isTransferComplete() && !transferCompleted){
+			synchronized(this) { // Once per transfer - only one thread runs the callback
+				if(transferCompleted) return;
+				transferCompleted = true;
+			}
 			stopNackLoop();
-			System.out.println("File transfer completed successfully! Shutting down receiver...");
+			if(peer == null) {
+				// Shared server channel: the server logs the session and keeps running
+				System.out.println("File transfer completed successfully! Shutting down receiver...");
+			}
 			
 			// Completion callback'ı çağır
 			if(onTransferComplete != null) {
@@ -106,16 +189,40 @@ public class NackSender implements Runnable{
 					System.err.println("Transfer completion callback error: " + e);
 				}
 			}
-			return;
-	    }
- 	   }
+		}
 	}
 
 	public void onData(ByteBuffer fullPacket){
+		onData(fullPacket, crc);
+	}
+
+	/**
+	 * Process one data packet with caller-owned CRC32C (stripe threads each
+	 * bring their own): verify, then store on the calling thread
+	 */
+	public void onData(ByteBuffer fullPacket, CRC32C crc){
+		if(verify(fullPacket, crc)) {
+			store(fullPacket);
+		}
+	}
+
+	/**
+	 * Validate header and CRC32C of one packet without changing its
+	 * position/limit. Parity packets are consumed here (the FEC decoder
+	 * rebuilds a missing member, never a data sequence itself).
+	 *
+	 * @return true if the packet is a valid data packet for store()
+	 */
+	boolean verify(ByteBuffer fullPacket, CRC32C crc){
 		// Packet validation
 		if(fullPacket == null || fullPacket.remaining() < CRC32C_HEADER_SIZE) {
 			System.err.println("Invalid packet: null or too small");
-			return;
+			return false;
+		}
+		
+		if(CRC32C_Packet.isParity(fullPacket)) {
+			fec.onParity(fullPacket, crc);
+			return false;
 		}
 		
 		int seqNo = CRC32C_Packet.seqNo(fullPacket);
@@ -125,132 +232,330 @@ public class NackSender implements Runnable{
 		// Sequence number validation
 		if(seqNo < 0 || seqNo >= total_seq) {
 			System.err.println("Invalid sequence number: " + seqNo + " (total: " + total_seq + ")");
-			return;
+			return false;
 		}
 		
 		// Payload length validation
 		if(payloadLen <= 0 || payloadLen > PAYLOAD_SIZE) {
 			System.err.println("Invalid payload length: " + payloadLen);
-			return;
+			return false;
 		}
 		
 		// Packet size validation
 		if(fullPacket.remaining() < CRC32C_HEADER_SIZE + payloadLen) {
 			System.err.println("Packet too small for declared payload length");
-			return;
+			return false;
 		}
 		
-		// Extract payload - safely slice (Java 8 uyumlu)
-		fullPacket.position(CRC32C_HEADER_SIZE);
-		fullPacket.limit(CRC32C_HEADER_SIZE + payloadLen);
-		ByteBuffer payload = fullPacket.slice();
-		fullPacket.clear(); // Reset position/limit
+		// Duplicate of a stored packet - skip the checksum
+		if(recv.get(seqNo)) return false;
 		
-
-		// CRC validation
+		// CRC validation over a view - the caller's buffer is left untouched
+		ByteBuffer payload = fullPacket.duplicate();
+		payload.position(CRC32C_HEADER_SIZE).limit(CRC32C_HEADER_SIZE + payloadLen);
 		crc.reset();
-		crc.update(payload.duplicate());
-		int calculatedCrc = (int) crc.getValue();
+		crc.update(payload);
 		
-		if(calculatedCrc == receivedCrc){
-			int off = seqNo * PAYLOAD_SIZE;
-			
-			// Chunk-aware write logic
-			if (chunkManager != null) {
-				// Large file mode: use ChunkManager
-				try {
-					int chunkIdx = chunkManager.findChunkForSequence(seqNo);
-					if (chunkIdx < 0) {
-						System.err.println("No chunk found for sequence: " + seqNo);
-						return;
-					}
-					
-					ChunkMetadata chunkMeta = chunkManager.getChunkMetadata(chunkIdx);
-					MappedByteBuffer chunkBuffer = chunkManager.getChunk(chunkIdx);
-					int localSeq = chunkMeta.toLocalSequence(seqNo);
-					int localOff = chunkMeta.getLocalOffset(localSeq, PAYLOAD_SIZE);
-					
-					synchronized(this) {
-						if(recv.get(seqNo)) return; // Already received
-						
-						// Bounds check for chunk write
-						if(localOff + payloadLen > chunkBuffer.capacity()) {
-							System.err.println("⚠️  Chunk bounds exceeded: localOff=" + localOff + 
-								", payloadLen=" + payloadLen + ", capacity=" + chunkBuffer.capacity() + 
-								", seqNo=" + seqNo);
-							// Adjust payload length to fit
-							payloadLen = chunkBuffer.capacity() - localOff;
-							System.out.println("✂️  Adjusted payloadLen to: " + payloadLen);
-						}
-						
-						MappedByteBuffer view = chunkBuffer.duplicate();
-						view.position(localOff);
-						view.limit(localOff + payloadLen);
-						
-						ByteBuffer payloadToPut = payload.duplicate();
-						payloadToPut.limit(payloadLen); // Limit to actual payload size
-						payloadToPut.rewind();
-						view.put(payloadToPut);
-						
-						recv.set(seqNo);
-					}
-				} catch(IOException e) {
-					System.err.println("Chunk write error for seq " + seqNo + ": " + e);
-					return;
-				}
-			} else {
-				// Legacy mode: use single MappedByteBuffer
-				if(off < 0 || off >= mem_buf.capacity()) {
-					System.err.println("Buffer bounds error: seqNo=" + seqNo + ", off=" + off + ", capacity=" + mem_buf.capacity());
-					return;
+		// NACK-based: CRC mismatch sessizce ignore et (network'te bozulmuş paket), sender
+		// NACK alınca tekrar gönderecek. A corrupt duplicate must not clear a packet
+		// already written: cum_Ack may be past it
+		return (int) crc.getValue() == receivedCrc;
+	}
+
+	/**
+	 * Write a verified data packet and update the ACK / gap state for it
+	 */
+	void store(ByteBuffer fullPacket){
+		int r = write(fullPacket);
+		if(r > 0) {
+			requestGapNack();
+		}
+		if(r >= 0) {
+			updateCumulativeAck();
+		}
+	}
+
+	/**
+	 * Process one drained batch: verify and write per packet, then one
+	 * cum_Ack pass and at most one gap NACK wake-up for the whole batch
+	 */
+	void onBatch(DatagramBatch batch, CRC32C crc){
+		onBatch(batch, crc, null);
+	}
+	
+	/**
+	 * @param source Unconnected drains: drop datagrams not sent from this address (null = any)
+	 */
+	void onBatch(DatagramBatch batch, CRC32C crc, InetAddress source){
+		int stored = 0;
+		boolean newGap = false;
+		for(int i = 0; i < batch.size(); i++) {
+			if(source != null && !isFrom(batch.source(i), source)) continue;
+			int r = accept(batch.packet(i), crc);
+			if(r < 0) continue;
+			stored++;
+			newGap |= r > 0;
+		}
+		finishBatch(stored, newGap);
+	}
+	
+	/**
+	 * Verify and write one packet of a batch; the ACK / gap bookkeeping is
+	 * left to finishBatch() (ReceiverServer batches span several sessions)
+	 *
+	 * @return -1 if not stored, 1 if it opened a new gap, else 0
+	 */
+	int accept(ByteBuffer p, CRC32C crc){
+		if(!isDataPacket(p, p.remaining()) || !verify(p, crc)) return -1;
+		return write(p);
+	}
+	
+	/**
+	 * One cum_Ack pass and at most one gap NACK wake-up for a batch
+	 */
+	void finishBatch(int stored, boolean newGap){
+		if(newGap) {
+			requestGapNack();
+		}
+		if(stored > 0) {
+			updateCumulativeAck();
+		}
+	}
+
+	/**
+	 * Write a verified data packet into the file mapping and mark it received.
+	 * No lock: the payload is written first, then the bit is set with CAS - a
+	 * duplicate racing in writes the same bytes and loses the set(), so every
+	 * packet is counted once.
+	 *
+	 * @return -1 if not stored (duplicate / error), 1 if it opened a new gap, else 0
+	 */
+	private int write(ByteBuffer fullPacket){
+		int seqNo = CRC32C_Packet.seqNo(fullPacket);
+		int payloadLen = CRC32C_Packet.plen(fullPacket);
+		
+		// Extract payload - safely slice (Java 8 uyumlu)
+		ByteBuffer payload = fullPacket.duplicate();
+		payload.position(CRC32C_HEADER_SIZE).limit(CRC32C_HEADER_SIZE + payloadLen);
+		payload = payload.slice();
+		
+		int off = seqNo * PAYLOAD_SIZE;
+		boolean newGap = false;
+		
+		// Chunk-aware write logic
+		if (chunkManager != null) {
+			// Large file mode: use ChunkManager
+			try {
+				int chunkIdx = chunkManager.findChunkForSequence(seqNo);
+				if (chunkIdx < 0) {
+					System.err.println("No chunk found for sequence: " + seqNo);
+					return -1;
 				}
 				
-				// Adjust payload if it exceeds buffer
-				if(off + payloadLen > mem_buf.capacity()) {
-					System.out.println("⚠️  Adjusting payload: off=" + off + ", payloadLen=" + payloadLen + " → " + (mem_buf.capacity() - off));
-					payloadLen = mem_buf.capacity() - off;
-				}
+				// Already received - checked before pinning so a late duplicate never re-maps a released window
+				if(recv.get(seqNo)) return -1;
 				
-				synchronized(this) {
-					if(recv.get(seqNo)) return;
+				ChunkMetadata chunkMeta = chunkManager.getChunkMetadata(chunkIdx);
+				int localSeq = chunkMeta.toLocalSequence(seqNo);
+				int localOff = chunkMeta.getLocalOffset(localSeq, PAYLOAD_SIZE);
+				
+				MappedByteBuffer chunkBuffer = chunkManager.pinChunk(chunkIdx);
+				try {
+					// Bounds check for chunk write
+					if(localOff + payloadLen > chunkBuffer.capacity()) {
+						System.err.println("⚠️  Chunk bounds exceeded: localOff=" + localOff + 
+							", payloadLen=" + payloadLen + ", capacity=" + chunkBuffer.capacity() + 
+							", seqNo=" + seqNo);
+						// Adjust payload length to fit
+						payloadLen = chunkBuffer.capacity() - localOff;
+						System.out.println("✂️  Adjusted payloadLen to: " + payloadLen);
+					}
 					
-					MappedByteBuffer view = mem_buf.duplicate();
-					view.position(off);
-					view.limit(off + payloadLen);
+					MappedByteBuffer view = chunkBuffer.duplicate();
+					view.position(localOff);
+					view.limit(localOff + payloadLen);
 					
 					ByteBuffer payloadToPut = payload.duplicate();
 					payloadToPut.limit(payloadLen); // Limit to actual payload size
 					payloadToPut.rewind();
-					
 					view.put(payloadToPut);
-					recv.set(seqNo);
+				} finally {
+					chunkManager.unpinChunk(chunkIdx);
 				}
+				
+				if(!recv.set(seqNo)) return -1; // Duplicate won by another thread
+				newGap = markReceived(seqNo);
+			} catch(IOException e) {
+				System.err.println("Chunk write error for seq " + seqNo + ": " + e);
+				return -1;
 			}
-			
-			updateCumulativeAck();
 		} else {
-			// CRC mismatch - bu paketi alınmamış olarak işaretle
-			synchronized(this) {
-				recv.clear(seqNo);
+			// Legacy mode: use single MappedByteBuffer
+			if(off < 0 || off >= mem_buf.capacity()) {
+				System.err.println("Buffer bounds error: seqNo=" + seqNo + ", off=" + off + ", capacity=" + mem_buf.capacity());
+				return -1;
+			}
+			
+			// Adjust payload if it exceeds buffer
+			if(off + payloadLen > mem_buf.capacity()) {
+				System.out.println("⚠️  Adjusting payload: off=" + off + ", payloadLen=" + payloadLen + " → " + (mem_buf.capacity() - off));
+				payloadLen = mem_buf.capacity() - off;
 			}
 			
-			// NACK-based: CRC mismatch sadece log, sender NACK alınca tekrar gönderecek
-			// CRC mismatch - sessizce ignore et (network'te bozulmuş paket)
+			if(recv.get(seqNo)) return -1;
+			
+			MappedByteBuffer view = mem_buf.duplicate();
+			view.position(off);
+			view.limit(off + payloadLen);
+			
+			ByteBuffer payloadToPut = payload.duplicate();
+			payloadToPut.limit(payloadLen); // Limit to actual payload size
+			payloadToPut.rewind();
+			
+			view.put(payloadToPut);
+			if(!recv.set(seqNo)) return -1;
+			newGap = markReceived(seqNo);
 		}
+		
+		return newGap ? 1 : 0;
 	}
 
-	public long build64(){
-		long mask = 0L;
-		int base = cum_Ack;
-		for(int i = 0; i < 64; i++)
-		{
-			if(base + i >= total_seq) break;
-			if(recv.get(base + i))
-					mask |= (1L << i);
+	/**
+	 * Seq was just set in recv (by this thread): feeds gap detection, idle
+	 * detection and the receiver RTT probe
+	 *
+	 * @return true if the packet opened a new gap (arrived past highestSeen + 1)
+	 */
+	private boolean markReceived(int seqNo){
+		if(!dataSinceNack) dataSinceNack = true;
+		
+		if(seqNo == probeSeq) {
+			feedbackRtt.update(System.nanoTime() - probeSentNs);
+			probeSeq = -1;
+		}
+		
+		int high;
+		do {
+			high = highestSeen;
+			if(seqNo <= high) return false;
+		} while(!HIGHEST_SEEN.compareAndSet(this, high, seqNo));
+		return seqNo > high + 1;
+	}
+
+	/**
+	 * Split receiving into drain, CRC verify and write stages
+	 * (call before run(); 0 verifiers keeps the inline path)
+	 */
+	public void setReceivePipeline(int verifiers){
+		this.pipeline = verifiers > 0 ? new ReceivePipeline(this, verifiers) : null;
+	}
+
+	/**
+	 * Send control frames to this address instead of the connected peer
+	 * (the channel is shared by every session of a ReceiverServer)
+	 */
+	public void setPeer(SocketAddress peer){
+		this.peer = peer;
+	}
+	
+	private int sendControl(ByteBuffer frame) throws IOException {
+		SocketAddress to = peer;
+		return to == null ? channel.write(frame) : channel.send(frame, to);
+	}
+	
+	public boolean isReceived(int seqNo){
+		return recv.get(seqNo);
+	}
+	
+	/**
+	 * Payload length of seq (the last packet is short)
+	 */
+	int payloadSize(int seqNo){
+		return (int) Math.min(PAYLOAD_SIZE, file_size - (long) seqNo * PAYLOAD_SIZE);
+	}
+	
+	/**
+	 * Copy the received payload of seq from the file mapping into dst
+	 * (position 0, limit = payload length) - FEC recovery input
+	 */
+	boolean readPayload(int seqNo, ByteBuffer dst){
+		int size = payloadSize(seqNo);
+		if(size <= 0) return false;
+		ByteBuffer src;
+		int off;
+		int chunkIdx = -1;
+		try {
+			if(chunkManager != null) {
+				chunkIdx = chunkManager.findChunkForSequence(seqNo);
+				if(chunkIdx < 0) return false;
+				ChunkMetadata chunkMeta = chunkManager.getChunkMetadata(chunkIdx);
+				src = chunkManager.pinChunk(chunkIdx).duplicate();
+				off = chunkMeta.getLocalOffset(chunkMeta.toLocalSequence(seqNo), PAYLOAD_SIZE);
+			} else {
+				src = mem_buf.duplicate();
+				off = seqNo * PAYLOAD_SIZE;
+			}
+		} catch(IOException e) {
+			System.err.println("FEC read error for seq " + seqNo + ": " + e);
+			return false;
+		}
+		try {
+			if(off < 0 || off + size > src.capacity()) return false;
+			src.position(off).limit(off + size);
+			dst.clear();
+			dst.put(src);
+			dst.flip();
+		} finally {
+			if(chunkIdx >= 0) chunkManager.unpinChunk(chunkIdx);
 		}
+		return true;
+	}
+
+	public long build64(){
+		return build64(cum_Ack);
+	}
+	
+	// Mask must be built against the same base that goes into the frame:
+	// cum_Ack moves concurrently and a shifted mask reports false holes
+	public long build64(int base){
+		if(base >= total_seq) return 0L;
+		// Two word reads instead of 64 bit probes (bits past total_seq are never set)
+		int w = base >>> 6;
+		int shift = base & 63;
+		long mask = recv.word(w) >>> shift;
+		if(shift != 0 && ((w + 1) << 6) < total_seq)
+			mask |= recv.word(w + 1) << (64 - shift);
 		return mask;
 	}
 
+	/**
+	 * Describe [base + 64, highestSeen] as missing ranges, walking the bitmap
+	 * run by run (no allocation). When the blocks do not fit, the frame
+	 * covers up to the first omitted range.
+	 *
+	 * @return false if nothing beyond the mask is known (send legacy frame)
+	 */
+	boolean fillExtended(int base, long mask){
+		int from = base + 64;
+		int high = highestSeen;
+		if(high < from) return false;
+		
+		frame.beginExtended(fileId, base, mask);
+		int covered = high + 1;
+		int start = recv.nextClearBit(from);
+		while(start <= high) {
+			int end = recv.nextSetBit(start);
+			if(end < 0 || end > covered) end = covered;
+			if(!frame.addBlock(start, end - start)) {
+				covered = start;
+				break;
+			}
+			start = recv.nextClearBit(end);
+		}
+		frame.finishExtended(covered);
+		return true;
+	}
+
 	// controlFrames() method removed - use isTransferComplete() instead
 	// isTransferComplete() has O(1) complexity vs controlFrames() O(N)
 	
@@ -261,20 +566,30 @@ public class NackSender implements Runnable{
 		
 		// RTT ve congestion info
 		String congestionInfo = "";
-		if(hybridControl != null) {
-			long rttMs = hybridControl.getSmoothedRtt() / 1_000_000;
-			long cwndPkts = hybridControl.getCongestionWindow() / PAYLOAD_SIZE;
+		if(congestionControl != null) {
+			long rttMs = congestionControl.getSmoothedRtt() / 1_000_000;
+			long cwndPkts = congestionControl.getCongestionWindow() / PAYLOAD_SIZE;
 			congestionInfo = String.format(", RTT=%dms, CWND=%d pkts", rttMs, cwndPkts);
 		}
 		
 		System.out.printf("Transfer Status: %.2f%% (%d/%d packets, %d missing, cumAck=%d%s)%n", 
 		    progress, received, total_seq, missing, cum_Ack, congestionInfo);
+		if(durability != null) {
+			System.out.println("💾 " + durability.getProgress());
+		}
 	}
 	
 
 	public void send_Nack_Frame(){
-		long mask = build64();
-		frame.fill(fileId, cum_Ack, mask);
+		// Holes parity can rebuild are repaired here instead of NACKed
+		fec.recoverPending();
+		
+		int base = cum_Ack;
+		long mask = build64(base);
+		if(!EXTENDED_NACK || !fillExtended(base, mask)) {
+			frame.fill(fileId, base, mask);
+		}
+		armRttProbe(base);
 
 		int r;
 		int retries = 0;
@@ -282,13 +597,13 @@ public class NackSender implements Runnable{
 		
 		try{
 			do{
-				r = channel.write(frame.buffer().duplicate());
+				r = sendControl(frame.buffer().duplicate());
 				if(r == 0) {
 					// Dynamic backoff based on congestion state
 					long backoffNs = 50_000; // Default 50μs
-					if(hybridControl != null) {
+					if(congestionControl != null) {
 						// Get current pacing interval as backoff guide
-						long pacingInterval = hybridControl.getPacingInterval();
+						long pacingInterval = congestionControl.getPacingInterval();
 						backoffNs = Math.min(pacingInterval / 4, 200_000); // Max 200μs
 					}
 					LockSupport.parkNanos(backoffNs);
@@ -305,11 +620,166 @@ public class NackSender implements Runnable{
 		}
 	}
 	
-	ThreadFactory daemonFactory = r -> {
-		Thread t = new Thread(r, "nack-scheduler");
-		t.setDaemon(true);
-		return t;
-	};
+	/**
+	 * Time the repair of the head hole this frame reports (one probe at a time)
+	 */
+	private void armRttProbe(int base){
+		long now = System.nanoTime();
+		if(probeSeq >= 0 && now - probeSentNs < PROBE_TIMEOUT_NS) return;
+		if(base < highestSeen) {
+			probeSentNs = now;
+			probeSeq = base;
+		} else {
+			probeSeq = -1;
+		}
+	}
+	
+	/**
+	 * Seed the receiver RTT estimate (handshake round trip) until the first probe
+	 */
+	public void setInitialRtt(long rttNs){
+		feedbackRtt.setInitialRtt(rttNs);
+	}
+	
+	public long getFeedbackRtt(){
+		return feedbackRtt.getSmoothedRtt();
+	}
+	
+	/**
+	 * Periodic NACK interval: RTT/4 within [NACK_MIN_INTERVAL_NS, NACK_MAX_INTERVAL_NS]
+	 */
+	long nackIntervalNs(){
+		return Math.max(NACK_MIN_INTERVAL_NS, Math.min(NACK_MAX_INTERVAL_NS, getFeedbackRtt() / 4));
+	}
+	
+	/**
+	 * Out-of-order arrival opened a gap: wake the feedback thread for an
+	 * early NACK (rate limited there)
+	 */
+	private void requestGapNack(){
+		if(gapPending) return;
+		gapPending = true;
+		Thread ft = feedbackThread;
+		if(ft != null) {
+			LockSupport.unpark(ft);
+		}
+	}
+	
+	/**
+	 * Feedback thread: sends a NACK when the (idle-scaled) period expires or,
+	 * after a new gap, once the immediate-NACK spacing allows it
+	 */
+	private void runFeedbackLoop(){
+		feedbackThread = Thread.currentThread();
+		int idleShift = 0;
+		try {
+			while(nackLoopRunning && !transferCompleted && !Thread.currentThread().isInterrupted()) {
+				long now = System.nanoTime();
+				long interval = nackIntervalNs();
+				long period = Math.min(Math.max(NACK_IDLE_MAX_NS, interval), interval << idleShift);
+				boolean gap = gapPending;
+				long wait = gap ? Math.min(period, Math.max(GAP_NACK_MIN_SPACING_NS, getFeedbackRtt() / 8)) : period;
+				long due = lastNackNs + wait;
+				
+				if(now - due < 0) {
+					LockSupport.parkNanos(this, due - now);
+					continue;
+				}
+				
+				boolean data = dataSinceNack;
+				dataSinceNack = false;
+				gapPending = false;
+				if(gap) {
+					gapNacks++;
+				} else if(idleShift > 0) {
+					idleNacks++;
+				} else {
+					periodicNacks++;
+				}
+				idleShift = (data || gap) ? 0 : Math.min(idleShift + 1, MAX_IDLE_SHIFT);
+				
+				lastNackNs = now;
+				nack_service.run();
+			}
+		} finally {
+			feedbackThread = null;
+		}
+	}
+	
+	public String getFeedbackStats(){
+		return String.format("NACK feedback: periodic=%d, gap-triggered=%d, idle=%d, interval %.1fms, receiver RTT %.2fms",
+			periodicNacks, gapNacks, idleNacks, nackIntervalNs() / 1_000_000.0, getFeedbackRtt() / 1_000_000.0);
+	}
+	
+	// Size + fileId check shared by the main loop and stripe receivers
+	boolean isDataPacket(ByteBuffer b, int len) {
+		return len >= CRC32C_HEADER_SIZE && len <= TOTAL_PACKET_SIZE && b.getLong(OFF_FILE_ID) == fileId;
+	}
+	
+	static boolean isFrom(SocketAddress from, InetAddress source) {
+		return from instanceof InetSocketAddress && source.equals(((InetSocketAddress) from).getAddress());
+	}
+
+	/**
+	 * Striped mode receiver: drains one extra stripe socket into the shared
+	 * NackSender state. NACK frames and completion stay on the primary channel.
+	 * The socket is normally connected to the sender's stripe source port
+	 * (listed in the SYN_ACK); if it is not, only datagrams from the primary
+	 * peer's address are accepted.
+	 */
+	public static final class Stripe implements Runnable {
+		private final DatagramChannel channel;
+		private final NackSender primary;
+		private final CRC32C crc = new CRC32C();
+
+		public Stripe(DatagramChannel channel, NackSender primary) {
+			this.channel = channel;
+			this.primary = primary;
+		}
+
+		@Override
+		public void run() {
+			boolean connected = channel.isConnected();
+			InetAddress source = null;
+			try {
+				// Virtual threads block in read; platform threads drain non-blocking
+				channel.configureBlocking(SessionThreads.isVirtual());
+				if(!connected) {
+					SocketAddress peer = primary.channel.getRemoteAddress();
+					if(!(peer instanceof InetSocketAddress)) {
+						System.err.println("Stripe channel has no sender to accept from - stripe disabled");
+						return;
+					}
+					source = ((InetSocketAddress) peer).getAddress();
+				}
+			} catch(IOException e) {
+				System.err.println("Stripe channel setup failed: " + e);
+				return;
+			}
+			ReceivePipeline pipeline = primary.pipeline;
+			if(pipeline != null) {
+				pipeline.drain(channel, connected, source);
+				return;
+			}
+			DatagramBatch batch = new DatagramBatch(DatagramBatch.DEFAULT_SIZE, primary.TOTAL_PACKET_SIZE);
+			BackoffIdle idle = new BackoffIdle(RECV_MAX_PARK_NS);
+			while(!Thread.currentThread().isInterrupted() && !primary.isTransferCompleted()) {
+				int n;
+				try {
+					n = batch.drain(channel, connected);
+				} catch(IOException e) {
+					// Interrupted on completion or channel closed
+					return;
+				}
+				idle.idle(n);
+				if(n > 0) {
+					primary.onBatch(batch, crc, source);
+				}
+			}
+		}
+	}
+	
+	ThreadFactory daemonFactory = SessionThreads.factory("nack-scheduler");
 
 	public final ScheduledExecutorService scheduler = 
 		Executors.newScheduledThreadPool(1, daemonFactory);
@@ -322,25 +792,25 @@ public class NackSender implements Runnable{
 		}
 	};
 
-	public ScheduledFuture<?> nackHandle;
+	public final Runnable feedback_loop = this::runFeedbackLoop;
+
+	public Future<?> nackHandle;
 
 	public void startNackLoop()
 	{
 		if(nackHandle == null || nackHandle.isCancelled() || nackHandle.isDone())
 		{
-			// Dynamic NACK interval based on RTT
-			long nackIntervalMs = 25; // Default 25ms
-			if(hybridControl != null) {
-				long rttMs = hybridControl.getSmoothedRtt() / 1_000_000; // ns to ms
-				if(rttMs > 0) {
-					// NACK interval = RTT/4, min 10ms, max 50ms
-					nackIntervalMs = Math.max(10, Math.min(50, rttMs / 4));
-				}
-			}
-			nackHandle = scheduler.scheduleAtFixedRate(nack_service, 0, nackIntervalMs, TimeUnit.MILLISECONDS);
+			// Self-timed loop: the interval follows the receiver RTT estimate
+			nackLoopRunning = true;
+			nackHandle = scheduler.submit(feedback_loop);
 		}
 	}
 	public void stopNackLoop(){
+		nackLoopRunning = false;
+		Thread ft = feedbackThread;
+		if(ft != null) {
+			LockSupport.unpark(ft);
+		}
 		if(nackHandle != null){
 			nackHandle.cancel(false);
 			nackHandle = null;
@@ -351,16 +821,31 @@ public class NackSender implements Runnable{
 		scheduler.shutdown();
 	}
 	
-	public void cleanup() {
+	/**
+	 * Stop the feedback loop and the pipeline workers
+	 * 
+	 * @return true if nothing of this receiver can touch the file mapping any more
+	 * (the receive and stripe threads are the caller's)
+	 */
+	public boolean cleanup() {
 		stopNackLoop();
+		if(pipeline != null) {
+			pipeline.stop();
+		}
 		shutdownScheduler();
 		try {
-			if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
+			boolean stopped = scheduler.awaitTermination(5, TimeUnit.SECONDS);
+			if (!stopped) {
 				scheduler.shutdownNow();
 			}
+			if(pipeline != null) {
+				stopped &= pipeline.awaitStopped(1000);
+			}
+			return stopped;
 		} catch (InterruptedException e) {
 			scheduler.shutdownNow();
 			Thread.currentThread().interrupt();
+			return false;
 		}
 	}
 
@@ -373,44 +858,40 @@ public class NackSender implements Runnable{
 		
 		try {
 			startNackLoop();
+			try {
+				// Non-blocking: the loops below drain until empty and idle adaptively
+				// (virtual threads: blocking reads, the carrier is released while waiting)
+				channel.configureBlocking(SessionThreads.isVirtual());
+			} catch(IOException e) {
+				System.err.println("Receive channel setup failed: " + e);
+				return;
+			}
+			if(pipeline != null) {
+				// This thread only drains the socket; verifiers and writers do the rest
+				pipeline.drain(channel, true);
+				return;
+			}
+			// Drain the socket in batches; bookkeeping runs once per batch
+			DatagramBatch batch = new DatagramBatch(DatagramBatch.DEFAULT_SIZE, TOTAL_PACKET_SIZE);
+			BackoffIdle idle = new BackoffIdle(RECV_MAX_PARK_NS);
 			while(!Thread.currentThread().isInterrupted() && !transferCompleted){
-				buf.clear();
-
-				int x = 0; // Initialize x
-				do{
-					try{
-					x = channel.read(buf);
-					}catch(java.net.PortUnreachableException e){
-						System.err.println("Sender port unreachable - connection may be closed: " + e.getMessage());
-						LockSupport.parkNanos(10_000_000); // 10ms bekle ve tekrar dene
-						x = 0; // Reset x for retry
-						continue;
-					}catch(IOException e){
-						System.err.println("read failed: " + e);
-						return ;
-					}
-				if( x == 0 ){
-					LockSupport.parkNanos(100_000); // Daha kısa bekleme süresi
-					
-					if(transferCompleted) {
-						System.out.println("Transfer completed, exiting receiver loop.");
-						break;
-					}
+				int n;
+				try{
+					n = batch.drain(channel, true);
+				}catch(java.net.PortUnreachableException e){
+					System.err.println("Sender port unreachable - connection may be closed: " + e.getMessage());
+					LockSupport.parkNanos(10_000_000); // 10ms bekle ve tekrar dene
+					continue;
+				}catch(IOException e){
+					System.err.println("read failed: " + e);
+					return ;
+				}
+				idle.idle(n);
+				if(n > 0) {
+					onBatch(batch, crc);
 				}
-				}while(x == 0 && !transferCompleted);
-				
-				if(transferCompleted) break;
-			
-			buf.flip();		
-
-			if (x < CRC32C_HEADER_SIZE || x > TOTAL_PACKET_SIZE || buf.getLong(OFF_FILE_ID) != fileId) {
-		    		buf.clear();
-		    	continue;
-			}
-
-				onData(buf);
-				buf.clear();
 			}
+			System.out.println("📥 Receive batching: " + batch.getStats() + ", idle parks=" + idle.getParks());
 			
 			if(transferCompleted) {
 				System.out.println("NackSender: All packets received, transfer complete!");
@@ -428,7 +909,7 @@ public class NackSender implements Runnable{
 			completionFrame.putInt((int)fileId);
 			completionFrame.flip();
 			
-			channel.write(completionFrame);
+			sendControl(completionFrame);
 			System.out.println("Transfer completion signal sent to sender");
 		} catch(IOException e) {
 			System.err.println("Failed to send completion signal: " + e);
@@ -0,0 +1,171 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Token-bucket burst pacing engine
+ *
+ * Per-packet parkNanos() with 1-20μs intervals does not work: Linux timer
+ * slack turns every sleep into 50μs+, so the rate we set is not the rate we
+ * get. Instead, the bucket holds up to one timer tick worth of bytes at the
+ * pacing rate. After every (late) wake-up the accumulated credit is released
+ * as a small burst, so the average rate stays on target.
+ *
+ * Implementation: virtual-clock token bucket (GCRA). Every acquire advances
+ * a shared virtual send time by bytes / rate with one CAS; credit is capped
+ * at burstNs behind the wall clock. Safe for several sending threads.
+ *
+ * Waiting: gaps shorter than the measured park overshoot are spin-waited,
+ * longer gaps park for (gap - overshoot) and spin the rest.
+ */
+public final class PacingEngine {
+
+    /** Bucket depth in time: one timer tick worth of bytes */
+    public static final long TICK_NS = 200_000; // 200μs
+
+    /** Bucket depth bounds in packets */
+    public static final int MIN_BURST_PACKETS = 4;
+    public static final int MAX_BURST_PACKETS = 64;
+
+    /** Initial park overshoot estimate (typical Linux timer slack) */
+    private static final long INITIAL_OVERSHOOT_NS = 50_000;
+
+    private final int packetSize;
+
+    /** Pacing rate in bytes per second (<= 0 disables pacing) */
+    private volatile long rateBytesPerSec = 0;
+
+    /** Bucket depth expressed as time at the current rate */
+    private volatile long burstNs = 0;
+
+    /** Virtual time at which the next byte may be sent */
+    private final AtomicLong virtualTime = new AtomicLong(0);
+
+    /** EWMA of how late parkNanos wakes up */
+    private volatile long parkOvershootNs = INITIAL_OVERSHOOT_NS;
+
+    // Achieved-rate measurement (bytes reported via onSent)
+    private final AtomicLong releasedBytes = new AtomicLong(0);
+    private volatile long windowStartNs = System.nanoTime();
+    private volatile long windowStartBytes = 0;
+    private volatile long achievedBytesPerSec = 0;
+
+    public PacingEngine(int packetSize) {
+        this.packetSize = packetSize;
+    }
+
+    /**
+     * Set target rate; bucket is resized to one tick (bounded in packets)
+     */
+    public void setRate(long bytesPerSec) {
+        this.rateBytesPerSec = bytesPerSec;
+        if (bytesPerSec <= 0) {
+            burstNs = 0;
+            return;
+        }
+        long burstBytes = (bytesPerSec * TICK_NS) / 1_000_000_000L;
+        burstBytes = Math.max((long) MIN_BURST_PACKETS * packetSize,
+                     Math.min((long) MAX_BURST_PACKETS * packetSize, burstBytes));
+        this.burstNs = (burstBytes * 1_000_000_000L) / bytesPerSec;
+    }
+
+    public long getRate() {
+        return rateBytesPerSec;
+    }
+
+    /**
+     * Block until bytes may be sent at the pacing rate
+     */
+    public void acquire(int bytes) {
+        long rate = rateBytesPerSec;
+        if (rate <= 0) return;
+
+        long cost = (bytes * 1_000_000_000L) / rate;
+        long now = System.nanoTime();
+        long sendAt;
+        long v;
+        do {
+            v = virtualTime.get();
+            sendAt = Math.max(v, now - burstNs);
+        } while (!virtualTime.compareAndSet(v, sendAt + cost));
+
+        waitUntil(sendAt, now);
+    }
+
+    /**
+     * Non-blocking acquire for event loops
+     *
+     * A slot at most one bucket depth ahead is taken now - the same burst
+     * the bucket releases after a late wake-up. Without that a sending
+     * thread, which always holds the next slot while it waits, would keep
+     * a non-blocking caller from ever getting one.
+     *
+     * @return 0 if the bytes were reserved (send now), else ns until a retry
+     *         can succeed (nothing reserved)
+     */
+    public long tryAcquire(int bytes) {
+        long rate = rateBytesPerSec;
+        if (rate <= 0) return 0;
+
+        long cost = (bytes * 1_000_000_000L) / rate;
+        long now = System.nanoTime();
+        long burst = burstNs;
+        long sendAt;
+        long v;
+        do {
+            v = virtualTime.get();
+            sendAt = Math.max(v, now - burst);
+            if (sendAt - now > burst) {
+                return sendAt - burst - now;
+            }
+        } while (!virtualTime.compareAndSet(v, sendAt + cost));
+        return 0;
+    }
+
+    private void waitUntil(long target, long now) {
+        long gap = target - now;
+        if (gap <= 0) return; // Credit available - part of the current burst
+
+        long overshoot = parkOvershootNs;
+        if (gap > overshoot) {
+            long parkFor = gap - overshoot;
+            long before = System.nanoTime();
+            LockSupport.parkNanos(parkFor);
+            long late = Math.max(0, (System.nanoTime() - before) - parkFor);
+            parkOvershootNs = (7 * overshoot + late) / 8;
+        }
+
+        while (System.nanoTime() < target) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Count bytes actually written to the socket (achieved rate)
+     */
+    public void onSent(int bytes) {
+        releasedBytes.addAndGet(bytes);
+    }
+
+    /**
+     * Achieved send rate over the last measurement window (≥ 1s)
+     */
+    public long getAchievedRate() {
+        long now = System.nanoTime();
+        long elapsed = now - windowStartNs;
+        if (elapsed >= 1_000_000_000L) {
+            long bytes = releasedBytes.get();
+            achievedBytesPerSec = ((bytes - windowStartBytes) * 1_000_000_000L) / elapsed;
+            windowStartBytes = bytes;
+            windowStartNs = now;
+        }
+        return achievedBytesPerSec;
+    }
+
+    public String getStats() {
+        return String.format("Pacing: target %.1f Mbps, achieved %.1f Mbps, burst %d pkts, overshoot %dμs",
+            rateBytesPerSec * 8 / 1_000_000.0,
+            getAchievedRate() * 8 / 1_000_000.0,
+            rateBytesPerSec > 0 ? (burstNs * rateBytesPerSec / 1_000_000_000L) / packetSize : 0,
+            parkOvershootNs / 1_000);
+    }
+}
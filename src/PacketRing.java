@@ -0,0 +1,211 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.util.zip.CRC32C;
+
+/**
+ * Reusable ring of pre-sized direct packet slots for the send path
+ *
+ * Each slot is a fixed view over one shared direct buffer and holds a
+ * complete datagram (CRC32C header + payload). Encoding a packet copies the
+ * payload out of the mapped chunk into the slot, checksums it in place and
+ * fills the header, so the socket write is a single contiguous buffer.
+ *
+ * All views (slot frame, header, payload and the chunk source view) are
+ * created once and recycled - steady-state encoding allocates nothing.
+ *
+ * Thread-safety: NOT thread-safe, each sending thread owns its own ring.
+ */
+public final class PacketRing {
+
+    /** Bytes per slot: header + maximum payload */
+    public static final int SLOT_SIZE = CRC32C_Packet.HEADER_SIZE + EnhancedFileTransferSender.SLICE_SIZE;
+
+    /** Default number of slots per ring */
+    public static final int DEFAULT_SLOTS = 64;
+
+    /** Slot.seqNo of an FEC parity packet (not a data sequence) */
+    public static final int PARITY_SEQ = -1;
+
+    /**
+     * Single pre-encoded packet slot
+     */
+    public static final class Slot {
+
+        /** Whole datagram view (header + payload), ready for channel.write */
+        public final ByteBuffer frame;
+
+        /** Header encoder over the first HEADER_SIZE bytes of the frame */
+        public final CRC32C_Packet header;
+
+        /** Payload view over the bytes after the header */
+        private final ByteBuffer payload;
+
+        /** Global sequence number currently encoded in this slot */
+        public int seqNo;
+
+        /** Payload length currently encoded in this slot */
+        public int take;
+
+        /** CRC32C of the encoded payload */
+        public int crc;
+
+        private Slot(ByteBuffer frame) {
+            this.frame = frame;
+
+            frame.clear().limit(CRC32C_Packet.HEADER_SIZE);
+            this.header = new CRC32C_Packet(frame.slice());
+
+            frame.clear().position(CRC32C_Packet.HEADER_SIZE);
+            this.payload = frame.slice();
+
+            frame.clear();
+        }
+
+        /** Payload bytes of the encoded packet (position 0, limit take) */
+        public ByteBuffer payload() {
+            payload.limit(take).position(0);
+            return payload;
+        }
+
+        /** Rewind the frame for a (re)write after a short or failed send */
+        public void resetForRetry() {
+            frame.limit(CRC32C_Packet.HEADER_SIZE + take).position(0);
+        }
+    }
+
+    private final Slot[] slots;
+    private final int mask;
+    private int cursor = 0;
+
+    /** Cached duplicate of the last mapped chunk, re-created only on chunk change */
+    private MappedByteBuffer source;
+    private ByteBuffer sourceView;
+
+    public PacketRing() {
+        this(DEFAULT_SLOTS);
+    }
+
+    /**
+     * Create ring
+     *
+     * @param slotCount Number of slots (rounded up to a power of two)
+     */
+    public PacketRing(int slotCount) {
+        if (slotCount <= 0) {
+            throw new IllegalArgumentException("slotCount must be > 0: " + slotCount);
+        }
+        int size = Integer.highestOneBit(slotCount);
+        if (size < slotCount) size <<= 1;
+
+        ByteBuffer backing = ByteBuffer.allocateDirect(size * SLOT_SIZE).order(ByteOrder.BIG_ENDIAN);
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            backing.clear().position(i * SLOT_SIZE).limit((i + 1) * SLOT_SIZE);
+            slots[i] = new Slot(backing.slice().order(ByteOrder.BIG_ENDIAN));
+        }
+        this.mask = size - 1;
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * Slot at given ring position (position is masked)
+     */
+    public Slot slot(long position) {
+        return slots[(int) (position & mask)];
+    }
+
+    /**
+     * Encode next packet into the next slot of the ring
+     *
+     * @return Encoded slot, frame positioned for a single write
+     */
+    public Slot encode(CRC32C crc, MappedByteBuffer mem, long fileId,
+                       int seqNo, int totalSeq, int take, int off) {
+        Slot slot = slots[cursor++ & mask];
+        encodeInto(slot, crc, mem, fileId, seqNo, totalSeq, take, off);
+        return slot;
+    }
+
+    /**
+     * Encode packet into a specific slot
+     */
+    public void encodeInto(Slot slot, CRC32C crc, MappedByteBuffer mem, long fileId,
+                           int seqNo, int totalSeq, int take, int off) {
+        ByteBuffer payload = copyPayload(slot, mem, take, off);
+
+        crc.reset();
+        crc.update(payload);
+
+        finish(slot, fileId, seqNo, totalSeq, take, (int) crc.getValue());
+    }
+
+    /**
+     * Encode next packet with an already known CRC (retransmission of a
+     * cached sequence) - payload copy + header only, no re-hashing
+     */
+    public Slot encodeCached(MappedByteBuffer mem, long fileId,
+                             int seqNo, int totalSeq, int take, int off, int crc32c) {
+        Slot slot = slots[cursor++ & mask];
+        copyPayload(slot, mem, take, off);
+        finish(slot, fileId, seqNo, totalSeq, take, crc32c);
+        return slot;
+    }
+
+    /**
+     * Encode next slot as an FEC parity packet
+     */
+    public Slot encodeParity(CRC32C crc, long fileId, int firstSeq, int layout, ByteBuffer parity, int len) {
+        Slot slot = slots[cursor++ & mask];
+        encodeParityInto(slot, crc, fileId, firstSeq, layout, parity, len);
+        return slot;
+    }
+
+    /**
+     * Encode parity packet into a specific slot: header seq = first data seq
+     * of the group, total = group layout, length carries PARITY_FLAG
+     */
+    public void encodeParityInto(Slot slot, CRC32C crc, long fileId, int firstSeq, int layout,
+                                 ByteBuffer parity, int len) {
+        parity.clear().limit(len); // Caller-owned accumulator, position is consumed
+        ByteBuffer payload = slot.payload;
+        payload.clear();
+        payload.put(parity);
+        payload.flip();
+
+        crc.reset();
+        crc.update(payload);
+
+        slot.seqNo = PARITY_SEQ;
+        slot.take = len;
+        slot.crc = (int) crc.getValue();
+        slot.header.fillHeader(fileId, firstSeq, layout, len | CRC32C_Packet.PARITY_FLAG, slot.crc);
+        slot.resetForRetry();
+    }
+
+    private ByteBuffer copyPayload(Slot slot, MappedByteBuffer mem, int take, int off) {
+        if (mem != source) {
+            source = mem;
+            sourceView = mem.duplicate();
+        }
+        sourceView.clear();
+        sourceView.position(off).limit(off + take);
+
+        ByteBuffer payload = slot.payload;
+        payload.clear();
+        payload.put(sourceView);
+        payload.flip();
+        return payload;
+    }
+
+    private static void finish(Slot slot, long fileId, int seqNo, int totalSeq, int take, int crc32c) {
+        slot.seqNo = seqNo;
+        slot.take = take;
+        slot.crc = crc32c;
+        slot.header.fillHeader(fileId, seqNo, totalSeq, take, crc32c);
+        slot.resetForRetry();
+    }
+}
@@ -0,0 +1,129 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32C;
+
+/**
+ * Heap allocated per encoded + written packet on the send path
+ *
+ * Compares the previous sendOne encoding (duplicate + slice + CRC duplicate
+ * + fresh ByteBuffer[] per datagram, gathering write - kept here as
+ * "legacy") with PacketRing (payload copied into a recycled direct slot,
+ * CRC in place, one contiguous write). Allocation is read with
+ * com.sun.management.ThreadMXBean.getCurrentThreadAllocatedBytes on the
+ * encoding thread; packets go to a loopback socket nobody reads (the
+ * kernel drops them), so only the encode + write path is measured:
+ *
+ *   java PacketRingAllocationBenchmark 57840 3
+ *
+ * Arguments: packets per run (default 57840), runs per path (default 3,
+ * after one warm-up run each). The file is a sparse temp file.
+ */
+public class PacketRingAllocationBenchmark {
+
+    private static final int SLICE_SIZE = EnhancedFileTransferSender.SLICE_SIZE;
+
+    /** One packet: (chunk buffer, offset, length) -> encoded and written */
+    interface Encoder {
+        void send(MappedByteBuffer mem, int seqNo, int take, int off) throws IOException;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int packets = args.length > 0 ? Integer.parseInt(args[0]) : 57_840;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)
+                || !((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            System.err.println("Thread allocation counters not supported on this JVM");
+            return;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        Path file = Files.createTempFile("turbo-ring", ".bin");
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength((long) packets * SLICE_SIZE);
+        }
+
+        ChunkManager chunkManager = new ChunkManager(file, SLICE_SIZE);
+        try (DatagramChannel rx = DatagramChannel.open(); DatagramChannel tx = DatagramChannel.open()) {
+            rx.bind(new InetSocketAddress("127.0.0.1", 0));
+            tx.connect(rx.getLocalAddress());
+            final long fileId = 1;
+            final int totalSeq = chunkManager.getTotalSequenceCount();
+
+            CRC32C ringCrc = new CRC32C();
+            PacketRing ring = new PacketRing();
+            Encoder current = (mem, seqNo, take, off) -> {
+                PacketRing.Slot slot = ring.encode(ringCrc, mem, fileId, seqNo, totalSeq, take, off);
+                tx.write(slot.frame);
+            };
+
+            CRC32C legacyCrc = new CRC32C();
+            CRC32C_Packet pkt = new CRC32C_Packet();
+            Encoder legacy = (mem, seqNo, take, off) -> {
+                ByteBuffer payload = mem.duplicate();
+                payload.position(off).limit(off + take);
+                payload = payload.slice();
+                legacyCrc.reset();
+                legacyCrc.update(payload.duplicate());
+                pkt.fillHeader(fileId, seqNo, totalSeq, take, (int) legacyCrc.getValue());
+                ByteBuffer[] frame = new ByteBuffer[]{ pkt.headerBuffer(), payload.position(0).limit(take) };
+                tx.write(frame);
+            };
+
+            System.out.println("=== PacketRing Allocation Benchmark ===");
+            System.out.println("📁 " + totalSeq + " packets per run, " + chunkManager.getChunkCount() + " windows, "
+                + ring.capacity() + " ring slots");
+
+            // Warm up both paths (JIT, lazily allocated state) before measuring
+            run(legacy, chunkManager, threads);
+            run(current, chunkManager, threads);
+
+            System.out.println(String.format("%4s %8s %14s %12s %10s", "run", "path", "allocated(B)", "B/packet", "ns/packet"));
+            for (int r = 1; r <= runs; r++) {
+                print(r, "legacy", run(legacy, chunkManager, threads), totalSeq);
+                print(r, "ring", run(current, chunkManager, threads), totalSeq);
+            }
+        } finally {
+            chunkManager.close();
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * @return { bytes allocated, elapsed ns } for every packet of the file
+     */
+    private static long[] run(Encoder encoder, ChunkManager chunkManager,
+                              com.sun.management.ThreadMXBean threads) throws IOException {
+        long before = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int idx = 0; idx < chunkManager.getChunkCount(); idx++) {
+            ChunkMetadata meta = chunkManager.getChunkMetadata(idx);
+            MappedByteBuffer mem = chunkManager.pinChunk(idx);
+            try {
+                for (int seq = meta.globalSeqStart; seq <= meta.globalSeqEnd; seq++) {
+                    int off = (seq - meta.globalSeqStart) * SLICE_SIZE;
+                    int take = (int) Math.min(SLICE_SIZE, meta.chunkSize - off);
+                    encoder.send(mem, seq, take, off);
+                }
+            } finally {
+                chunkManager.unpinChunk(idx);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        return new long[]{ threads.getCurrentThreadAllocatedBytes() - before, elapsed };
+    }
+
+    private static void print(int run, String path, long[] result, int packets) {
+        System.out.println(String.format("%4d %8s %,14d %12.1f %10.0f", run, path, result[0],
+            result[0] / (double) packets, result[1] / (double) packets));
+    }
+}
@@ -0,0 +1,339 @@
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Selector-driven event loops shared by all transfers in the process
+ *
+ * A fixed set of loop threads multiplexes socket read events, tasks and
+ * timers for any number of sessions. A session binds to one loop (next())
+ * and registers its channels, timers and tasks there, so its handlers
+ * always run on the same thread and need no extra synchronization.
+ *
+ * Per iteration a loop runs queued tasks, waits in select() until the next
+ * timer deadline (or a wakeup), dispatches ready channels and fires due
+ * timers. Idle sessions cost nothing: no thread parks or polls for them.
+ *
+ * Handlers must not block for long - a slow handler delays every session
+ * on the same loop. Long work is split into slices re-queued with execute().
+ *
+ * Thread-safety: execute(), schedule() and register() may be called from
+ * any thread; handlers run on the loop thread.
+ */
+public final class Reactor {
+
+    /** Loop threads of the shared reactor (-Dturbo.reactor.threads) */
+    public static final int DEFAULT_THREADS = Math.max(1, Integer.getInteger("turbo.reactor.threads",
+        Math.min(2, Runtime.getRuntime().availableProcessors())));
+
+    private static Reactor shared = null;
+
+    private final Loop[] loops;
+    private final AtomicInteger next = new AtomicInteger(0);
+
+    /**
+     * Create and start loop threads
+     *
+     * @param name    Thread name prefix
+     * @param threads Number of event loops
+     * @throws IOException if a selector cannot be opened
+     */
+    public Reactor(String name, int threads) throws IOException {
+        this.loops = new Loop[Math.max(1, threads)];
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new Loop(name + "-" + i);
+        }
+    }
+
+    /**
+     * Process-wide reactor (daemon threads, created on first use)
+     */
+    public static synchronized Reactor shared() {
+        if (shared == null) {
+            try {
+                shared = new Reactor("turbo-reactor", DEFAULT_THREADS);
+            } catch (IOException e) {
+                throw new IllegalStateException("Reactor selector open failed: " + e, e);
+            }
+        }
+        return shared;
+    }
+
+    /** Loop for a new session (round-robin) */
+    public Loop next() {
+        return loops[Math.floorMod(next.getAndIncrement(), loops.length)];
+    }
+
+    public int size() {
+        return loops.length;
+    }
+
+    public void close() {
+        for (Loop loop : loops) {
+            loop.close();
+        }
+    }
+
+    public String getStats() {
+        StringBuilder sb = new StringBuilder("Reactor: ").append(loops.length).append(" loops");
+        for (Loop loop : loops) {
+            sb.append("; ").append(loop.getStats());
+        }
+        return sb.toString();
+    }
+
+    // ========== EVENT LOOP ==========
+
+    /**
+     * Single event loop thread with its own selector, task queue and timers
+     */
+    public static final class Loop implements Runnable {
+
+        private final String name;
+        private final Selector selector;
+        private final Thread thread;
+        private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean wakeupPending = new AtomicBoolean(false);
+        private volatile boolean running = true;
+
+        /** Pending timers by deadline (loop thread only) */
+        private final PriorityQueue<Timer> timers = new PriorityQueue<>();
+        private long timerSeq = 0;
+
+        // Statistics (loop thread writes)
+        private volatile long readEvents = 0;
+        private volatile long tasksRun = 0;
+        private volatile long timersFired = 0;
+        private volatile int registrations = 0;
+
+        Loop(String name) throws IOException {
+            this.name = name;
+            this.selector = Selector.open();
+            this.thread = new Thread(this, name);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        /** True when called from this loop's thread */
+        public boolean inLoop() {
+            return Thread.currentThread() == thread;
+        }
+
+        /**
+         * Run task on the loop thread (next iteration)
+         */
+        public void execute(Runnable task) {
+            tasks.add(task);
+            if (!inLoop() && wakeupPending.compareAndSet(false, true)) {
+                selector.wakeup();
+            }
+        }
+
+        /**
+         * Run task once after delayNs (millisecond resolution: select timeout;
+         * a deadline less than 1ms away is polled, e.g. a pacing delay)
+         */
+        public Timer schedule(long delayNs, Runnable task) {
+            return schedule(delayNs, 0, task);
+        }
+
+        /**
+         * Run task every periodNs, first after periodNs
+         */
+        public Timer scheduleRepeating(long periodNs, Runnable task) {
+            return schedule(periodNs, Math.max(1, periodNs), task);
+        }
+
+        private Timer schedule(long delayNs, long periodNs, Runnable task) {
+            Timer t = new Timer(System.nanoTime() + Math.max(0, delayNs), periodNs, task);
+            execute(() -> {
+                if (!t.cancelled) {
+                    t.seq = timerSeq++;
+                    timers.add(t);
+                }
+            });
+            return t;
+        }
+
+        /**
+         * Register a non-blocking channel for read events
+         *
+         * @param onReadable Called on the loop thread while the channel has datagrams
+         */
+        public Registration register(DatagramChannel channel, Runnable onReadable) {
+            Registration r = new Registration(this);
+            execute(() -> {
+                if (r.cancelled) return;
+                try {
+                    r.key = channel.register(selector, SelectionKey.OP_READ, onReadable);
+                    registrations++;
+                } catch (ClosedChannelException e) {
+                    System.err.println("Reactor register on closed channel: " + e);
+                }
+            });
+            return r;
+        }
+
+        void close() {
+            running = false;
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    runTasks();
+                    long timeoutMs = selectTimeoutMs();
+                    if (timeoutMs < 0) {
+                        selector.selectNow();
+                    } else {
+                        selector.select(timeoutMs);
+                    }
+                    wakeupPending.set(false);
+                    dispatchReady();
+                    fireTimers();
+                }
+            } catch (IOException e) {
+                System.err.println("Reactor " + name + " selector failed: " + e);
+            } finally {
+                try {
+                    selector.close();
+                } catch (IOException e) {
+                    System.err.println("Reactor " + name + " close error: " + e);
+                }
+            }
+        }
+
+        private void runTasks() {
+            Runnable task;
+            int n = 0;
+            while ((task = tasks.poll()) != null) {
+                n++;
+                runSafely(task);
+            }
+            if (n > 0) tasksRun += n;
+        }
+
+        /**
+         * @return -1 for a non-blocking select (tasks, due or sub-ms timers), 0 = no timer, else ms
+         */
+        private long selectTimeoutMs() {
+            if (!tasks.isEmpty()) return -1;
+            Timer t = timers.peek();
+            if (t == null) return 0;
+            long waitNs = t.deadline - System.nanoTime();
+            if (waitNs < 1_000_000) return -1; // Due or sub-ms: select() would round up to 1ms
+            return TimeUnit.NANOSECONDS.toMillis(waitNs + 999_999);
+        }
+
+        private void dispatchReady() {
+            Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+            while (it.hasNext()) {
+                SelectionKey key = it.next();
+                it.remove();
+                if (!key.isValid() || !key.isReadable()) continue;
+                readEvents++;
+                runSafely((Runnable) key.attachment());
+            }
+        }
+
+        private void fireTimers() {
+            long now = System.nanoTime();
+            Timer t;
+            while ((t = timers.peek()) != null && t.deadline - now <= 0) {
+                timers.poll();
+                if (t.cancelled) continue;
+                timersFired++;
+                runSafely(t.task);
+                if (t.period > 0 && !t.cancelled) {
+                    t.deadline = Math.max(t.deadline + t.period, now);
+                    t.seq = timerSeq++;
+                    timers.add(t);
+                }
+            }
+        }
+
+        private void runSafely(Runnable r) {
+            try {
+                r.run();
+            } catch (Throwable e) {
+                System.err.println("Reactor " + name + " handler error: " + e);
+            }
+        }
+
+        public String getStats() {
+            return String.format("%s: channels=%d, read events=%d, tasks=%d, timers fired=%d (pending %d)",
+                name, registrations, readEvents, tasksRun, timersFired, timers.size());
+        }
+    }
+
+    /**
+     * One-shot or repeating timer (cancel from any thread)
+     */
+    public static final class Timer implements Comparable<Timer> {
+        private final Runnable task;
+        private final long period;
+        private long deadline;
+        private long seq;
+        private volatile boolean cancelled = false;
+
+        Timer(long deadline, long period, Runnable task) {
+            this.deadline = deadline;
+            this.period = period;
+            this.task = task;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public int compareTo(Timer o) {
+            long d = deadline - o.deadline;
+            if (d != 0) return d < 0 ? -1 : 1;
+            return Long.compare(seq, o.seq);
+        }
+    }
+
+    /**
+     * Channel registration (cancel from any thread; the key is removed on the loop)
+     */
+    public static final class Registration {
+        private final Loop loop;
+        private volatile SelectionKey key;
+        private volatile boolean cancelled = false;
+
+        Registration(Loop loop) {
+            this.loop = loop;
+        }
+
+        public Loop loop() {
+            return loop;
+        }
+
+        public void cancel() {
+            if (cancelled) return;
+            cancelled = true;
+            loop.execute(() -> {
+                SelectionKey k = key;
+                if (k != null) {
+                    k.cancel();
+                    loop.registrations--;
+                }
+            });
+        }
+    }
+}
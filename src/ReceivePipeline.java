@@ -0,0 +1,337 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.PortUnreachableException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32C;
+
+/**
+ * Staged receive path: socket drain -> CRC verify -> chunk write
+ *
+ * Drain threads (the NackSender thread and each stripe thread) only move
+ * datagrams from the socket into pooled direct buffers, so the kernel
+ * receive buffer is emptied at syscall speed instead of at checksum speed.
+ * Verifier threads check CRC32C (parity packets are handed to the FEC
+ * decoder here) and writer threads copy payloads into the file mapping /
+ * ChunkManager chunks and update the receive bitmap.
+ *
+ * Buffer flow:
+ * - pool -> drain (receive) -> verify queue -> verifier -> write queue -> writer -> pool
+ * - Rejected packets go straight back to the pool
+ *
+ * Backpressure: the queues are bounded. A full queue blocks its producer
+ * (counted as a stall), an empty pool blocks the drain threads, and from
+ * there the kernel socket buffer absorbs the burst.
+ *
+ * Thread-safety: any number of drain threads; verifiers and writers are
+ * owned by the pipeline.
+ */
+public final class ReceivePipeline {
+
+    /** Verifier threads (0 = inline verify/write on the receive thread) */
+    public static final int DEFAULT_VERIFIERS = Integer.getInteger("turbo.rx.verifiers", 0);
+
+    /** Writer threads */
+    public static final int DEFAULT_WRITERS = Integer.getInteger("turbo.rx.writers", 1);
+
+    /** Depth of the verify and write queues */
+    public static final int DEFAULT_QUEUE_DEPTH = Integer.getInteger("turbo.rx.queue", 1024);
+
+    /** Pooled receive buffers (datagrams in flight between the socket and the file) */
+    public static final int DEFAULT_POOL_SIZE = Integer.getInteger("turbo.rx.pool", 4096);
+
+    /** Worker poll timeout - bounds how long a stopped pipeline keeps its threads */
+    private static final long POLL_NS = 1_000_000;
+
+    private final NackSender owner;
+    private final int verifiers;
+    private final int writers;
+    private final int poolSize;
+
+    private final Stage pool;
+    private final Stage verifyQueue;
+    private final Stage writeQueue;
+
+    private final Thread[] workers;
+    private volatile boolean running = false;
+    private boolean stopped = false;
+
+    // ========== METRICS ==========
+
+    private final LongAdder drained = new LongAdder();
+    /** CRC failures and duplicates (parity packets excluded) */
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder written = new LongAdder();
+
+    /**
+     * Create pipeline (threads start with start())
+     *
+     * @param owner      Receiver state the writers update
+     * @param verifiers  CRC verifier threads (>= 1)
+     * @param writers    Chunk writer threads (>= 1)
+     * @param queueDepth Capacity of the verify and write queues
+     * @param poolSize   Number of pooled receive buffers
+     */
+    public ReceivePipeline(NackSender owner, int verifiers, int writers, int queueDepth, int poolSize) {
+        this.owner = owner;
+        this.verifiers = Math.max(1, verifiers);
+        this.writers = Math.max(1, writers);
+        int depth = Math.max(16, queueDepth);
+        // Every queued buffer plus one in hand per worker, so the queues (not the pool) fill first
+        this.poolSize = Math.max(poolSize, 2 * depth + this.verifiers + this.writers);
+
+        this.pool = new Stage("pool", this.poolSize);
+        this.verifyQueue = new Stage("verify", depth);
+        this.writeQueue = new Stage("write", depth);
+
+        // One direct block, sliced into fixed packet views (no per-packet allocation)
+        int slotSize = owner.TOTAL_PACKET_SIZE;
+        ByteBuffer block = ByteBuffer.allocateDirect(slotSize * this.poolSize);
+        for (int i = 0; i < this.poolSize; i++) {
+            block.clear().position(i * slotSize).limit((i + 1) * slotSize);
+            pool.queue.add(block.slice().order(ByteOrder.BIG_ENDIAN));
+        }
+
+        this.workers = new Thread[this.verifiers + this.writers];
+    }
+
+    public ReceivePipeline(NackSender owner, int verifiers) {
+        this(owner, verifiers, DEFAULT_WRITERS, DEFAULT_QUEUE_DEPTH, DEFAULT_POOL_SIZE);
+    }
+
+    // ========== LIFECYCLE ==========
+
+    /** Start the workers (idempotent; a stopped pipeline stays stopped) */
+    public synchronized void start() {
+        if (running || stopped) return;
+        running = true;
+        int w = 0;
+        for (int i = 0; i < verifiers; i++) {
+            workers[w++] = startWorker(this::runVerifier, "rx-verify-" + i);
+        }
+        for (int i = 0; i < writers; i++) {
+            workers[w++] = startWorker(this::runWriter, "rx-write-" + i);
+        }
+    }
+
+    private static Thread startWorker(Runnable r, String name) {
+        return SessionThreads.start(name, r);
+    }
+
+    /** Stop the workers; packets still queued are dropped (NACK repairs them) */
+    public synchronized void stop() {
+        stopped = true;
+        running = false;
+        for (Thread t : workers) {
+            if (t != null) t.interrupt();
+        }
+    }
+
+    /**
+     * Wait for the workers to exit after stop()
+     *
+     * @return true if all of them did within timeoutMs
+     */
+    public boolean awaitStopped(long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        for (Thread t : workers) {
+            if (t == null) continue;
+            t.join(Math.max(1, deadline - System.currentTimeMillis()));
+            if (t.isAlive()) return false;
+        }
+        return true;
+    }
+
+    private boolean active() {
+        return running && !owner.isTransferCompleted();
+    }
+
+    // ========== DRAIN STAGE ==========
+
+    /**
+     * Receive loop for one socket (caller's thread) until the transfer
+     * completes, the thread is interrupted or the channel fails. The first
+     * drain thread starts the workers.
+     *
+     * @param channel   Non-blocking channel (empty reads back off with BackoffIdle),
+     *                  or blocking when the session runs on virtual threads
+     * @param connected true: channel.read, false: channel.receive
+     */
+    public void drain(DatagramChannel channel, boolean connected) {
+        drain(channel, connected, null);
+    }
+
+    /**
+     * @param source Unconnected drains: drop datagrams not sent from this address (null = any)
+     */
+    public void drain(DatagramChannel channel, boolean connected, InetAddress source) {
+        start();
+        BackoffIdle idle = new BackoffIdle(NackSender.RECV_MAX_PARK_NS);
+        while (!Thread.currentThread().isInterrupted() && active()) {
+            ByteBuffer b = pool.take(this::active);
+            if (b == null) return;
+
+            b.clear();
+            int x;
+            try {
+                if (connected) {
+                    x = channel.read(b);
+                } else {
+                    SocketAddress from = channel.receive(b);
+                    x = from == null ? 0 : b.position();
+                    if (x > 0 && source != null && !NackSender.isFrom(from, source)) {
+                        pool.put(b, this::active);
+                        continue;
+                    }
+                }
+            } catch (PortUnreachableException e) {
+                pool.put(b, this::active);
+                System.err.println("Sender port unreachable - connection may be closed: " + e.getMessage());
+                LockSupport.parkNanos(10_000_000);
+                continue;
+            } catch (IOException e) {
+                // Interrupted on completion or channel closed
+                pool.put(b, this::active);
+                return;
+            }
+
+            if (x <= 0) {
+                pool.put(b, this::active);
+                idle.idle();
+                continue;
+            }
+            idle.reset();
+            b.flip();
+            if (!owner.isDataPacket(b, x)) {
+                pool.put(b, this::active);
+                continue;
+            }
+            drained.increment();
+            if (!verifyQueue.put(b, this::active)) return;
+        }
+    }
+
+    // ========== VERIFY / WRITE STAGES ==========
+
+    private void runVerifier() {
+        CRC32C crc = new CRC32C();
+        while (running) {
+            ByteBuffer b = verifyQueue.take(this::active);
+            if (b == null) return;
+            if (owner.verify(b, crc)) {
+                if (!writeQueue.put(b, this::active)) return;
+            } else {
+                if (!CRC32C_Packet.isParity(b)) rejected.increment();
+                pool.put(b, this::active);
+            }
+        }
+    }
+
+    private void runWriter() {
+        while (running) {
+            ByteBuffer b = writeQueue.take(this::active);
+            if (b == null) return;
+            owner.store(b);
+            written.increment();
+            pool.put(b, this::active);
+        }
+    }
+
+    // ========== STATS ==========
+
+    public String getStats() {
+        return String.format("Receive pipeline: %d verifiers, %d writers, drained=%d, written=%d, rejected=%d%n   %s%n   %s%n   %s",
+            verifiers, writers, drained.sum(), written.sum(), rejected.sum(),
+            verifyQueue.getStats(), writeQueue.getStats(), pool.getStats());
+    }
+
+    /**
+     * Bounded MPMC queue between two stages with backpressure metrics
+     */
+    static final class Stage {
+
+        /** Producer/consumer condition checked while blocked */
+        interface Live {
+            boolean ok();
+        }
+
+        final String name;
+        final int capacity;
+        final ArrayBlockingQueue<ByteBuffer> queue;
+
+        /** put() found the queue full (consumer side is the bottleneck) */
+        private final LongAdder fullStalls = new LongAdder();
+
+        /** take() found the queue empty (producer side is the bottleneck) */
+        private final LongAdder emptyStalls = new LongAdder();
+
+        /** Nanoseconds producers spent blocked on a full queue */
+        private final LongAdder blockedNs = new LongAdder();
+
+        private final AtomicInteger occupancyMax = new AtomicInteger();
+
+        Stage(String name, int capacity) {
+            this.name = name;
+            this.capacity = capacity;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        /**
+         * Enqueue, blocking while full
+         *
+         * @return false if the pipeline stopped while waiting (buffer dropped)
+         */
+        boolean put(ByteBuffer b, Live live) {
+            if (!queue.offer(b)) {
+                fullStalls.increment();
+                long start = System.nanoTime();
+                try {
+                    while (!queue.offer(b, POLL_NS, TimeUnit.NANOSECONDS)) {
+                        if (!live.ok()) return false;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                } finally {
+                    blockedNs.add(System.nanoTime() - start);
+                }
+            }
+            int size = queue.size();
+            if (size > occupancyMax.get()) occupancyMax.accumulateAndGet(size, Math::max);
+            return true;
+        }
+
+        /**
+         * Dequeue, blocking while empty
+         *
+         * @return Next buffer, or null once the pipeline stopped
+         */
+        ByteBuffer take(Live live) {
+            ByteBuffer b = queue.poll();
+            if (b != null) return b;
+            emptyStalls.increment();
+            try {
+                while ((b = queue.poll(POLL_NS, TimeUnit.NANOSECONDS)) == null) {
+                    if (!live.ok()) return null;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            return b;
+        }
+
+        String getStats() {
+            return String.format("%s queue: %d/%d (max %d), full stalls=%d (%.1fms blocked), empty stalls=%d",
+                name, queue.size(), capacity, occupancyMax.get(), fullStalls.sum(),
+                blockedNs.sum() / 1_000_000.0, emptyStalls.sum());
+        }
+    }
+}
@@ -0,0 +1,451 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * Long-running receiver: many concurrent senders on one bound UDP port
+ *
+ * FileTransferReceiver connects its channel to the first sender and serves
+ * one file. Here the channel stays unconnected and a single dispatcher
+ * thread drains it in batches, routing every datagram by sender address +
+ * fileId (both already in the SYN / SYN_ACK / data headers) through a
+ * primitive-keyed SessionTable:
+ *
+ * - SYN: admit a session (session and mapped-memory caps), open its output
+ *   file and answer ACK from this port; a repeated SYN repeats the ACK
+ * - SYN_ACK (or the first data packet if it was lost): start NACK feedback
+ * - data: verify + write into that session's NackSender, bookkeeping once
+ *   per session per batch
+ *
+ * Each session has its own NackSender state and feedback thread; NACK and
+ * completion frames go back through the shared channel with send(). A
+ * completed session lingers briefly so a sender that missed the completion
+ * frame gets it again; stalled handshakes and idle sessions expire.
+ *
+ * Single stripe per session; fountain requests get a plain ACK and the
+ * sender falls back to NACK mode.
+ *
+ * Output files: <output_dir>/<fileId>_<sender ip>_<sender port>.bin
+ *
+ * Thread-safety: the table and session states belong to the dispatcher;
+ * completions from feedback threads are handed over through a queue.
+ */
+public final class ReceiverServer implements Runnable {
+
+    /** Concurrent sessions (-Dturbo.server.sessions) */
+    public static final int DEFAULT_MAX_SESSIONS = Integer.getInteger("turbo.server.sessions", 64);
+
+    /** Mapped-memory budget over all sessions in MB (-Dturbo.server.memory) */
+    public static final long DEFAULT_MEMORY_MB = Long.getLong("turbo.server.memory", 4096);
+
+    /** An active session without datagrams for this long is dropped (-Dturbo.server.idle, seconds) */
+    public static final long IDLE_TIMEOUT_NS = TimeUnit.SECONDS.toNanos(Long.getLong("turbo.server.idle", 30));
+
+    public static final long HANDSHAKE_TIMEOUT_NS = TimeUnit.SECONDS.toNanos(10); // Sender gives up re-sending SYN after 5s
+    public static final long LINGER_NS = TimeUnit.SECONDS.toNanos(2); // Completed: re-send completion on late data
+    public static final long COMPLETION_RESEND_NS = 50_000_000; // At most one re-send per 50ms
+    private static final long HOUSEKEEPING_NS = 100_000_000;
+
+    private enum State { HANDSHAKE, ACTIVE, DONE }
+
+    private final DatagramChannel channel;
+    private final Path outputDir;
+    private final int maxSessions;
+    private final long memoryBudget;
+
+    private final SessionTable<Session> table;
+    private final ArrayList<Session> sessions = new ArrayList<>();
+    private final ArrayList<Session> touched = new ArrayList<>();
+    private final ConcurrentLinkedQueue<Session> completed = new ConcurrentLinkedQueue<>();
+    private final CRC32C crc = new CRC32C();
+    private final HandShake_Packet ack = new HandShake_Packet();
+    private long memoryInUse = 0;
+
+    /** Sessions not yet DONE - the admission cap (completed ones linger for LINGER_NS) */
+    private volatile int active = 0;
+    private volatile boolean running = true;
+
+    // Statistics (dispatcher writes)
+    private volatile long admitted = 0;
+    private volatile long rejected = 0;
+    private volatile long finished = 0;
+    private volatile long expired = 0;
+    private volatile long unrouted = 0;
+
+    /**
+     * @param channel      Bound, unconnected channel
+     * @param outputDir    Directory for received files
+     * @param maxSessions  Concurrent session cap
+     * @param memoryBudget Mapped bytes over all sessions
+     */
+    public ReceiverServer(DatagramChannel channel, Path outputDir, int maxSessions, long memoryBudget) {
+        this.channel = channel;
+        this.outputDir = outputDir;
+        this.maxSessions = Math.max(1, maxSessions);
+        this.memoryBudget = memoryBudget;
+        this.table = new SessionTable<>(this.maxSessions);
+    }
+
+    public ReceiverServer(DatagramChannel channel, Path outputDir) {
+        this(channel, outputDir, DEFAULT_MAX_SESSIONS, DEFAULT_MEMORY_MB << 20);
+    }
+
+    /**
+     * Per-sender transfer state
+     */
+    private static final class Session {
+        final InetSocketAddress peer;
+        final long endpoint;
+        final long fileId;
+        final long memory;
+        final long createdNs;
+        final FileTransferReceiver output;
+        NackSender nack; // Sends completion re-sends after close (shared channel)
+        State state = State.HANDSHAKE;
+        long ackSentNs;
+        long lastSeenNs;
+        long doneNs;
+        long lastCompletionNs;
+        boolean closed;
+
+        // Current batch (dispatcher only)
+        int batchStored;
+        boolean batchGap;
+        boolean touched;
+
+        Session(InetSocketAddress peer, long endpoint, long fileId, long memory, FileTransferReceiver output, long now) {
+            this.peer = peer;
+            this.endpoint = endpoint;
+            this.fileId = fileId;
+            this.memory = memory;
+            this.output = output;
+            this.createdNs = now;
+            this.lastSeenNs = now;
+        }
+
+        String name() {
+            return fileId + " from " + peer;
+        }
+    }
+
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public void run() {
+        try {
+            // One dispatcher for every session: non-blocking so housekeeping runs without traffic
+            channel.configureBlocking(false);
+        } catch (IOException e) {
+            System.err.println("Server channel setup failed: " + e);
+            return;
+        }
+        DatagramBatch batch = new DatagramBatch(DatagramBatch.DEFAULT_SIZE, FileTransferReceiver.PACKET_SIZE);
+        BackoffIdle idle = new BackoffIdle(NackSender.RECV_MAX_PARK_NS);
+        long nextHousekeeping = System.nanoTime() + HOUSEKEEPING_NS;
+        try {
+            while (running && !Thread.currentThread().isInterrupted()) {
+                int n;
+                try {
+                    n = batch.drain(channel, false);
+                } catch (IOException e) {
+                    if (!channel.isOpen()) return;
+                    System.err.println("Server receive failed: " + e);
+                    n = 0;
+                }
+                idle.idle(n);
+                long now = System.nanoTime();
+                for (int i = 0; i < n; i++) {
+                    dispatch(batch.packet(i), (InetSocketAddress) batch.source(i), now);
+                }
+                finishBatch();
+                finishCompleted(now);
+                if (now - nextHousekeeping >= 0) {
+                    housekeeping(now);
+                    nextHousekeeping = now + HOUSEKEEPING_NS;
+                }
+            }
+        } finally {
+            for (Session s : sessions) {
+                close(s);
+            }
+            sessions.clear();
+            System.out.println("📡 " + getStats());
+        }
+    }
+
+    // ========== DISPATCH ==========
+
+    private void dispatch(ByteBuffer p, InetSocketAddress from, long now) {
+        int len = p.remaining();
+        long endpoint = SessionTable.endpointKey(from);
+
+        // Data packet: fileId at offset 0
+        if (len >= FileTransferReceiver.HEADER_SIZE) {
+            Session s = table.get(endpoint, p.getLong(NackSender.OFF_FILE_ID));
+            if (s != null && s.peer.equals(from)) {
+                onData(s, p, now);
+                return;
+            }
+        }
+
+        // Handshake: signal byte, fileId at offset 1
+        if (len >= 9 && len <= HandShake_Packet.MAX_SIZE) {
+            byte sig = HandShake_Packet.get_signal(p);
+            if (sig == HandShake_Packet.SYN && len >= HandShake_Packet.HEADER_SIZE) {
+                onSyn(p, len, from, endpoint, now);
+                return;
+            }
+            if (sig == HandShake_Packet.SYN_ACK) {
+                Session s = table.get(endpoint, HandShake_Packet.get_file_Id(p));
+                if (s != null && s.peer.equals(from)) {
+                    activate(s, now);
+                    return;
+                }
+            }
+        }
+        unrouted++;
+    }
+
+    private void onSyn(ByteBuffer p, int len, InetSocketAddress from, long endpoint, long now) {
+        long fileId = HandShake_Packet.get_file_Id(p);
+        long fileSize = HandShake_Packet.get_file_size(p);
+        int totalSeq = HandShake_Packet.get_total_seq(p);
+
+        Session s = table.get(endpoint, fileId);
+        if (s != null) {
+            if (!s.peer.equals(from)) {
+                // Folded IPv6 key collision: never replace a live session
+                reject(fileId, from, "endpoint key held by " + s.peer);
+                return;
+            }
+            if (s.state == State.HANDSHAKE) sendAck(s, now); // Our ACK was lost
+            return;
+        }
+
+        // Same validity rule as the one-shot receiver, plus size/sequence consistency
+        if (fileId == 0 || fileSize <= 0 || totalSeq <= 0
+                || totalSeq != (fileSize + FileTransferReceiver.SLICE_SIZE - 1) / FileTransferReceiver.SLICE_SIZE) {
+            unrouted++;
+            return;
+        }
+        if (active >= maxSessions) {
+            reject(fileId, from, "session limit " + maxSessions);
+            return;
+        }
+        long memory = FileTransferReceiver.mappedBytes(fileSize) + totalSeq / 8;
+        if (memoryInUse + memory > memoryBudget) {
+            reject(fileId, from, String.format("memory budget (%d + %d MB > %d MB)",
+                memoryInUse >> 20, memory >> 20, memoryBudget >> 20));
+            return;
+        }
+
+        FileTransferReceiver output = new FileTransferReceiver();
+        output.fileId = fileId;
+        output.file_size = fileSize;
+        output.total_seq = totalSeq;
+        output.filePath = outputDir.resolve(fileId + "_" + from.getAddress().getHostAddress().replace(':', '-')
+            + "_" + from.getPort() + ".bin");
+        try {
+            output.openOutput();
+        } catch (IOException e) {
+            System.err.println("❌ Session " + fileId + " from " + from + ": output open failed: " + e);
+            rejected++;
+            return;
+        }
+
+        s = new Session(from, endpoint, fileId, memory, output, now);
+        NackSender nack = output.newNackSender(channel);
+        nack.setPeer(from);
+        final Session done = s;
+        // Durability work (completion force) stays off the dispatcher; the
+        // completion frame goes out once it is done
+        nack.onTransferComplete = () -> SessionThreads.start("durability-" + done.name(), () -> {
+            output.completeOutput();
+            completed.add(done);
+        });
+        s.nack = nack;
+
+        table.putIfAbsent(endpoint, fileId, s); // Free: checked above, dispatcher only
+        sessions.add(s);
+        active++;
+        memoryInUse += memory;
+        admitted++;
+        if ((HandShake_Packet.get_syn_flags(p, len) & HandShake_Packet.FLAG_FOUNTAIN) != 0
+                || HandShake_Packet.get_stripes(p, len) > 1) {
+            System.out.println("ℹ️  Session " + s.name() + ": single-stripe NACK mode on the shared port");
+        }
+        System.out.println(String.format("🔗 Session %s: %,d bytes -> %s (%d active, %d MB mapped)",
+            s.name(), fileSize, output.filePath.getFileName(), active, memoryInUse >> 20));
+        sendAck(s, now);
+    }
+
+    private void reject(long fileId, InetSocketAddress from, String reason) {
+        // No reject signal in the handshake: the sender's ACK wait times out
+        rejected++;
+        System.err.println("⛔ Session " + fileId + " from " + from + " rejected: " + reason);
+    }
+
+    private void sendAck(Session s, long now) {
+        ack.make_ACK(s.fileId, s.output.file_size, s.output.total_seq);
+        try {
+            channel.send(ack.get_header(), s.peer);
+            s.ackSentNs = now;
+        } catch (IOException e) {
+            System.err.println("ACK send failed for " + s.name() + ": " + e);
+        }
+    }
+
+    /**
+     * SYN_ACK (or data after a lost SYN_ACK): start NACK feedback
+     */
+    private void activate(Session s, long now) {
+        s.lastSeenNs = now;
+        if (s.state != State.HANDSHAKE) return;
+        s.state = State.ACTIVE;
+        if (s.ackSentNs > 0) {
+            s.nack.setInitialRtt(Math.max(1, now - s.ackSentNs));
+        }
+        s.nack.startNackLoop();
+    }
+
+    private void onData(Session s, ByteBuffer p, long now) {
+        if (s.state == State.DONE) {
+            // Late data: the sender may have missed the completion frame
+            if (now - s.lastCompletionNs >= COMPLETION_RESEND_NS) {
+                s.lastCompletionNs = now;
+                s.nack.sendCompletionSignal();
+            }
+            return;
+        }
+        activate(s, now);
+        int r = s.nack.accept(p, crc);
+        if (r < 0) return;
+        if (!s.touched) {
+            s.touched = true;
+            touched.add(s);
+        }
+        s.batchStored++;
+        s.batchGap |= r > 0;
+    }
+
+    /**
+     * Per-session cum_Ack / gap bookkeeping once per drained batch
+     */
+    private void finishBatch() {
+        for (int i = 0; i < touched.size(); i++) {
+            Session s = touched.get(i);
+            int stored = s.batchStored;
+            boolean gap = s.batchGap;
+            s.batchStored = 0;
+            s.batchGap = false;
+            s.touched = false;
+            s.nack.finishBatch(stored, gap);
+        }
+        touched.clear();
+    }
+
+    // ========== SESSION END ==========
+
+    private void finishCompleted(long now) {
+        Session s;
+        while ((s = completed.poll()) != null) {
+            if (s.state == State.DONE) continue;
+            s.state = State.DONE;
+            active--;
+            s.doneNs = now;
+            s.lastCompletionNs = now;
+            s.nack.sendCompletionSignal();
+            close(s);
+            finished++;
+            double secs = (now - s.createdNs) / 1e9;
+            System.out.println(String.format("✅ Session %s completed: %.2f MB in %.2f s (%.2f MB/s), %d active",
+                s.name(), s.output.file_size / (1024.0 * 1024.0), secs,
+                s.output.file_size / (1024.0 * 1024.0) / Math.max(secs, 1e-9), active));
+        }
+    }
+
+    private void housekeeping(long now) {
+        for (int i = sessions.size() - 1; i >= 0; i--) {
+            Session s = sessions.get(i);
+            boolean remove;
+            switch (s.state) {
+                case HANDSHAKE:
+                    remove = now - s.createdNs > HANDSHAKE_TIMEOUT_NS;
+                    break;
+                case ACTIVE:
+                    remove = now - s.lastSeenNs > IDLE_TIMEOUT_NS;
+                    break;
+                default:
+                    remove = now - s.doneNs > LINGER_NS;
+            }
+            if (!remove) continue;
+            if (s.state != State.DONE) {
+                active--;
+                expired++;
+                System.err.println("⌛ Session " + s.name() + " expired in state " + s.state
+                    + " (" + s.nack.recv.cardinality() + "/" + s.output.total_seq + " packets)");
+                close(s);
+            }
+            table.remove(s.endpoint, s.fileId, s);
+            sessions.remove(i);
+        }
+    }
+
+    /**
+     * Stop feedback and release the output file (idempotent); the session
+     * stays in the table until housekeeping removes it
+     */
+    private void close(Session s) {
+        if (s.closed) return;
+        s.closed = true;
+        // Feedback loop stopped before unmapping (it may write FEC-recovered packets)
+        s.output.closeOutput(s.nack.cleanup());
+        memoryInUse -= s.memory;
+    }
+
+    public String getStats() {
+        return String.format("Receiver server: admitted=%d, completed=%d, rejected=%d, expired=%d, unrouted datagrams=%d, active=%d",
+            admitted, finished, rejected, expired, unrouted, active);
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.out.println("=== Turbo Receiver Server ===");
+            System.out.println("Kullanım: java ReceiverServer <bind_ip> <bind_port> <output_dir> [max_sessions]");
+            System.out.println("");
+            System.out.println("  max_sessions : eşzamanlı oturum sınırı (varsayılan " + DEFAULT_MAX_SESSIONS + ", -Dturbo.server.sessions)");
+            System.out.println("  -Dturbo.server.memory=MB : tüm oturumlar için map edilen bellek sınırı (varsayılan " + DEFAULT_MEMORY_MB + ")");
+            System.out.println("  -Dturbo.server.idle=s    : veri gelmeyen oturumun zaman aşımı (varsayılan 30)");
+            System.out.println("");
+            System.out.println("Örnek:");
+            System.out.println("  java ReceiverServer 0.0.0.0 9999 ./incoming 128");
+            return;
+        }
+        int maxSessions = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_MAX_SESSIONS;
+        Path dir = Paths.get(args[2]);
+        try (DatagramChannel ch = DatagramChannel.open()) {
+            Files.createDirectories(dir);
+            ch.setOption(StandardSocketOptions.SO_SNDBUF, 16 * 1024 * 1024);
+            ch.setOption(StandardSocketOptions.SO_RCVBUF, 16 * 1024 * 1024);
+            ch.bind(new InetSocketAddress(args[0], Integer.parseInt(args[1])));
+
+            ReceiverServer server = new ReceiverServer(ch, dir, maxSessions, DEFAULT_MEMORY_MB << 20);
+            System.out.println("📡 Receiver server on " + ch.getLocalAddress() + " -> " + dir.toAbsolutePath()
+                + " (max " + maxSessions + " sessions, " + DEFAULT_MEMORY_MB + " MB mapped)");
+            server.run();
+        } catch (IOException e) {
+            System.err.println("❌ IO Hatası: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,140 @@
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deduplicating lock-free retransmission queue of primitive sequence numbers
+ *
+ * Replaces ConcurrentLinkedQueue<Integer>: no boxing and no node allocation
+ * per NACKed sequence. A pending bitmap guarantees each sequence is queued at
+ * most once, so the same hole reported by every 10-50ms NACK tick does not
+ * pile up duplicate retransmissions. The bit is cleared when the sequence is
+ * taken, after which a later NACK may queue it again.
+ *
+ * Layout: bounded MPSC ring (AtomicIntegerArray, -1 = empty slot).
+ * - Producers: NACK listener, retransmission thread (re-queue when window full)
+ * - Consumer: retransmission thread only
+ *
+ * If the ring is full, offer() drops the sequence and clears its pending bit;
+ * the receiver keeps reporting the hole, so it is re-offered on a later NACK.
+ */
+public final class RetransmissionQueue {
+
+    /** Upper bound on ring size - pending bitmap dedups, so this is rarely reached */
+    public static final int MAX_CAPACITY = 1 << 16;
+
+    private static final int EMPTY = -1;
+
+    private final AtomicIntegerArray slots;
+    private final int mask;
+    private final int totalSeq;
+
+    /** One bit per sequence: currently in the ring */
+    private final AtomicBitmap pending;
+
+    /** Producer claim counter */
+    private final AtomicLong tail = new AtomicLong(0);
+
+    /** Consumer position (single consumer) */
+    private final AtomicLong head = new AtomicLong(0);
+
+    // Statistics
+    private final AtomicLong queued = new AtomicLong(0);
+    private final AtomicLong duplicates = new AtomicLong(0);
+    private final AtomicLong overflows = new AtomicLong(0);
+
+    /**
+     * Create queue
+     *
+     * @param totalSeq Number of sequences in the transfer
+     */
+    public RetransmissionQueue(int totalSeq) {
+        this.totalSeq = totalSeq;
+        this.pending = new AtomicBitmap(totalSeq);
+
+        int capacity = Integer.highestOneBit(Math.max(1, Math.min(totalSeq, MAX_CAPACITY)));
+        if (capacity < Math.min(totalSeq, MAX_CAPACITY)) capacity <<= 1;
+        this.slots = new AtomicIntegerArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            slots.set(i, EMPTY);
+        }
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Queue sequence for retransmission
+     *
+     * @return true if queued, false if already pending or the ring is full
+     */
+    public boolean offer(int seq) {
+        if (seq < 0 || seq >= totalSeq) {
+            throw new IllegalArgumentException("Invalid sequence number: " + seq);
+        }
+        if (!pending.set(seq)) {
+            duplicates.incrementAndGet();
+            return false;
+        }
+
+        long t;
+        do {
+            t = tail.get();
+            if (t - head.get() > mask) {
+                pending.clear(seq);
+                overflows.incrementAndGet();
+                return false;
+            }
+        } while (!tail.compareAndSet(t, t + 1));
+
+        slots.lazySet((int) (t & mask), seq);
+        queued.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Take next sequence (consumer thread only)
+     *
+     * @return Sequence number, or -1 if nothing is ready
+     */
+    public int poll() {
+        long h = head.get();
+        int idx = (int) (h & mask);
+        int seq = slots.get(idx);
+        if (seq == EMPTY) return -1;
+
+        slots.lazySet(idx, EMPTY);
+        head.lazySet(h + 1);
+        pending.clear(seq);
+        return seq;
+    }
+
+    /**
+     * Drain up to batch.length sequences (consumer thread only)
+     *
+     * @return Number of sequences written to batch
+     */
+    public int drain(int[] batch) {
+        int n = 0;
+        while (n < batch.length) {
+            int seq = poll();
+            if (seq < 0) break;
+            batch[n++] = seq;
+        }
+        return n;
+    }
+
+    public boolean isPending(int seq) {
+        return pending.get(seq);
+    }
+
+    public int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public String getStats() {
+        return String.format("RetxQueue: size=%d/%d, queued=%d, deduped=%d, overflow=%d",
+            size(), mask + 1, queued.get(), duplicates.get(), overflows.get());
+    }
+}
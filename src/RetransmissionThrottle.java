@@ -0,0 +1,79 @@
+/**
+ * RTT-aware retransmission suppression
+ *
+ * The receiver reports a hole on every NACK tick until the packet arrives,
+ * including ticks that fire before our previous retransmission could have
+ * reached it. This throttle remembers when each sequence was last
+ * retransmitted and suppresses a repeat until roughly one RTO
+ * (smoothed RTT + 4 * RTT variance) has passed.
+ *
+ * Thread-safety: single caller (retransmission thread); counters may be
+ * read from any thread.
+ */
+public final class RetransmissionThrottle {
+
+    /** Floor for the suppression window (timer and NACK tick jitter) */
+    public static final long MIN_WINDOW_NS = 1_000_000; // 1ms
+
+    /** Used before the controller has an RTT estimate */
+    public static final long DEFAULT_WINDOW_NS = 50_000_000; // 50ms
+
+    private final SeqTimeRing lastRetransmit;
+
+    private volatile long sent = 0;
+    private volatile long suppressed = 0;
+
+    public RetransmissionThrottle() {
+        this.lastRetransmit = new SeqTimeRing();
+    }
+
+    /**
+     * Suppression window from current RTT statistics
+     */
+    public static long windowNs(CongestionController control) {
+        if (control == null) return DEFAULT_WINDOW_NS;
+        long window = control.getSmoothedRtt() + 4 * control.getRttVar();
+        return Math.max(MIN_WINDOW_NS, window);
+    }
+
+    /**
+     * Decide whether seq may be retransmitted now; records the send if so
+     *
+     * @return true to retransmit, false if an earlier retransmission may still be in flight
+     */
+    public boolean tryRetransmit(int seq, long nowNs, long windowNs) {
+        long last = lastRetransmit.get(seq);
+        if (last != SeqTimeRing.NONE && nowNs - last < windowNs) {
+            suppressed++;
+            return false;
+        }
+        lastRetransmit.put(seq, nowNs);
+        sent++;
+        return true;
+    }
+
+    /**
+     * Undo tryRetransmit for a seq that was not sent after all (event loop:
+     * paced or window full), so its retry is not suppressed
+     */
+    public void cancel(int seq) {
+        if (lastRetransmit.remove(seq) != SeqTimeRing.NONE) {
+            sent--;
+        }
+    }
+
+    public long getSent() {
+        return sent;
+    }
+
+    public long getSuppressed() {
+        return suppressed;
+    }
+
+    public String getStats() {
+        long s = sent;
+        long q = suppressed;
+        double ratio = (s + q) == 0 ? 0.0 : (q * 100.0) / (s + q);
+        return String.format("Retransmissions: sent=%d, suppressed=%d (%.1f%%)", s, q, ratio);
+    }
+}
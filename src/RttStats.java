@@ -0,0 +1,83 @@
+/**
+ * RTT estimator (QUIC RttStats style)
+ *
+ * - smoothed RTT / variance: RFC 6298 EWMA (1/8, 1/4)
+ * - min RTT: windowed minimum, a sample older than MIN_RTT_WINDOW_NS is
+ *   replaced by the next sample so route changes are picked up
+ *
+ * Thread-safety: single writer (NACK listener), volatile reads anywhere.
+ */
+public final class RttStats {
+
+    /** Min RTT filter window (BBR uses 10s) */
+    public static final long MIN_RTT_WINDOW_NS = 10_000_000_000L;
+
+    private final long initialRttNs;
+
+    private volatile long smoothedRtt;
+    private volatile long rttVar;
+    private volatile long latestRtt = 0;
+    private volatile long minRtt = Long.MAX_VALUE;
+    private volatile long minRttStamp = 0;
+    private volatile boolean hasSample = false;
+
+    public RttStats(long initialRttNs) {
+        this.initialRttNs = initialRttNs;
+        reset();
+    }
+
+    public void reset() {
+        smoothedRtt = initialRttNs;
+        rttVar = initialRttNs / 2;
+        latestRtt = 0;
+        minRtt = Long.MAX_VALUE;
+        minRttStamp = 0;
+        hasSample = false;
+    }
+
+    /**
+     * Initial estimate before the first sample (network profile)
+     */
+    public void setInitialRtt(long rttNs) {
+        if (!hasSample && rttNs > 0) {
+            smoothedRtt = rttNs;
+            rttVar = rttNs / 2;
+        }
+    }
+
+    public void update(long rttNs) {
+        if (rttNs <= 0) return;
+        long now = System.nanoTime();
+
+        latestRtt = rttNs;
+        if (rttNs <= minRtt || now - minRttStamp > MIN_RTT_WINDOW_NS) {
+            minRtt = rttNs;
+            minRttStamp = now;
+        }
+
+        if (!hasSample) {
+            smoothedRtt = rttNs;
+            rttVar = rttNs / 2;
+            hasSample = true;
+        } else {
+            long rttDelta = Math.abs(smoothedRtt - rttNs);
+            rttVar = (3 * rttVar + rttDelta) / 4;
+            smoothedRtt = (7 * smoothedRtt + rttNs) / 8;
+        }
+    }
+
+    /**
+     * True when the min RTT sample is older than the filter window
+     */
+    public boolean isMinRttExpired(long now) {
+        return hasSample && now - minRttStamp > MIN_RTT_WINDOW_NS;
+    }
+
+    public boolean hasSample() { return hasSample; }
+    public long getSmoothedRtt() { return smoothedRtt; }
+    public long getRttVar() { return rttVar; }
+    public long getLatestRtt() { return latestRtt; }
+
+    /** Min RTT, or the smoothed RTT before the first sample */
+    public long getMinRtt() { return hasSample ? minRtt : smoothedRtt; }
+}
@@ -0,0 +1,79 @@
+/**
+ * Fixed-size primitive ring of per-sequence timestamps
+ *
+ * Slot = seq & mask. Each slot keeps the sequence it belongs to (tag) and a
+ * System.nanoTime() value, so a lookup for a sequence whose slot has since
+ * been reused by seq + k*capacity simply misses. Old entries are overwritten
+ * naturally - no cleanup sweep, no boxing, no allocation on read or write.
+ *
+ * Thread-safety: best-effort. The time is written before the tag and read
+ * after it, so a reader that sees the matching tag normally sees its time;
+ * a racing overwrite can at worst yield a stale or missing sample, which all
+ * callers tolerate (RTT samples are sanity-checked, suppression is advisory).
+ */
+public final class SeqTimeRing {
+
+    /** Default slot count (64K entries = 768 KB) */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    /** Returned by get() when the sequence is not in the ring */
+    public static final long NONE = Long.MIN_VALUE;
+
+    private final int[] tags;
+    private final long[] times;
+    private final int mask;
+
+    public SeqTimeRing() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create ring
+     *
+     * @param capacity Slot count (rounded up to a power of two)
+     */
+    public SeqTimeRing(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be > 0: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) size <<= 1;
+
+        this.tags = new int[size];
+        this.times = new long[size];
+        this.mask = size - 1;
+        java.util.Arrays.fill(tags, -1);
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    public void put(int seq, long timeNs) {
+        int idx = seq & mask;
+        times[idx] = timeNs;
+        tags[idx] = seq;
+    }
+
+    /**
+     * @return Time recorded for seq, or NONE if absent/overwritten
+     */
+    public long get(int seq) {
+        int idx = seq & mask;
+        if (tags[idx] != seq) return NONE;
+        return times[idx];
+    }
+
+    /**
+     * Read and invalidate the entry for seq
+     *
+     * @return Time recorded for seq, or NONE if absent/overwritten
+     */
+    public long remove(int seq) {
+        int idx = seq & mask;
+        if (tags[idx] != seq) return NONE;
+        long t = times[idx];
+        tags[idx] = -1;
+        return t;
+    }
+}
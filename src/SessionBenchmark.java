@@ -0,0 +1,141 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.DatagramChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrent loopback sessions: N receivers + N senders in one process
+ *
+ * Each session is a full handshake + NACK transfer of the same file on its
+ * own socket pair. Run once per thread model and compare:
+ *
+ *   java -Dturbo.threads=platform SessionBenchmark 1,100,1000 64
+ *   java -Dturbo.threads=virtual  SessionBenchmark 1,100,1000 64   (Java 21+)
+ *
+ * Reports wall time, aggregate goodput, completed sessions (byte-exact) and
+ * the peak number of platform (kernel) threads. Session logs are silenced.
+ */
+public class SessionBenchmark {
+
+    /** Socket buffers per session (smaller than the CLI's 16MB - thousands of sockets) */
+    private static final int SOCKET_BUFFER = 1 << 20;
+
+    private static final long SESSION_TIMEOUT_S = 300;
+
+    public static void main(String[] args) throws Exception {
+        String counts = args.length > 0 ? args[0] : "1,100,1000";
+        int sizeKb = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+
+        Path dir = Files.createTempDirectory("turbo-bench");
+        Path source = dir.resolve("source.bin");
+        byte[] data = new byte[sizeKb * 1024];
+        new Random(42).nextBytes(data);
+        Files.write(source, data);
+
+        System.out.println("=== Session Benchmark ===");
+        System.out.println("🧵 Thread model: " + SessionThreads.describe() + " (java " + System.getProperty("java.version") + ")");
+        System.out.println("📁 File: " + sizeKb + " KB per session");
+        System.out.println(String.format("%8s %10s %12s %10s %14s", "sessions", "wall(s)", "MB/s", "ok", "peak threads"));
+
+        for (String c : counts.split(",")) {
+            int n = Integer.parseInt(c.trim());
+            run(n, source, dir, data.length);
+        }
+    }
+
+    private static void run(int sessions, Path source, Path dir, long fileSize) throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+
+        List<Path> outputs = new ArrayList<>(sessions);
+        List<DatagramChannel> channels = new ArrayList<>(2 * sessions);
+        CountDownLatch done = new CountDownLatch(2 * sessions);
+        AtomicInteger errors = new AtomicInteger();
+
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+        PrintStream silent = new PrintStream(OutputStream.nullOutputStream());
+        System.setOut(silent);
+        System.setErr(silent);
+
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < sessions; i++) {
+                DatagramChannel rx = open();
+                rx.bind(new InetSocketAddress("127.0.0.1", 0));
+                channels.add(rx);
+
+                Path output = dir.resolve("recv-" + sessions + "-" + i + ".bin");
+                Files.deleteIfExists(output);
+                outputs.add(output);
+
+                FileTransferReceiver receiver = new FileTransferReceiver();
+                receiver.channel = rx;
+                receiver.filePath = output;
+                SessionThreads.start("bench-rx-" + i, () -> {
+                    try {
+                        receiver.ReceiveData();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+
+                DatagramChannel tx = open();
+                tx.bind(new InetSocketAddress("127.0.0.1", 0));
+                tx.connect(rx.getLocalAddress());
+                channels.add(tx);
+
+                long fileId = i + 1;
+                SessionThreads.start("bench-tx-" + i, () -> {
+                    try {
+                        new EnhancedFileTransferSender(tx).sendFile(source, fileId);
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            if (!done.await(SESSION_TIMEOUT_S, TimeUnit.SECONDS)) {
+                errors.incrementAndGet();
+            }
+        } finally {
+            System.setOut(out);
+            System.setErr(err);
+        }
+        double wallS = (System.nanoTime() - start) / 1e9;
+
+        int ok = 0;
+        for (Path output : outputs) {
+            if (Files.exists(output) && Files.mismatch(source, output) == -1) ok++;
+        }
+        for (DatagramChannel ch : channels) {
+            ch.close();
+        }
+        for (Path output : outputs) {
+            Files.deleteIfExists(output);
+        }
+
+        double mbps = ok * (double) fileSize / (1024.0 * 1024.0) / wallS;
+        System.out.println(String.format("%8d %10.2f %12.2f %6d/%-4d %14d%s", sessions, wallS, mbps, ok, sessions,
+            threads.getPeakThreadCount(), errors.get() > 0 ? "  (" + errors.get() + " errors/timeouts)" : ""));
+    }
+
+    private static DatagramChannel open() throws java.io.IOException {
+        DatagramChannel ch = DatagramChannel.open();
+        ch.setOption(StandardSocketOptions.SO_SNDBUF, SOCKET_BUFFER);
+        ch.setOption(StandardSocketOptions.SO_RCVBUF, SOCKET_BUFFER);
+        return ch;
+    }
+}
@@ -0,0 +1,154 @@
+import java.net.Inet4Address;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from (sender endpoint, fileId) to a session
+ *
+ * Both key halves are primitive longs kept in parallel arrays, so a lookup
+ * on the receive path is a hash, one or two probes and two long compares -
+ * no key object, no boxing. Linear probing with backward-shift deletion
+ * (no tombstones); the table doubles at 50% load.
+ *
+ * The endpoint key packs an IPv4 address and port exactly; IPv6 addresses
+ * are folded, so callers must confirm the sender address on the value. An
+ * entry is never replaced (putIfAbsent) and only removed by its own value,
+ * so a folded collision cannot orphan a live session.
+ *
+ * Thread-safety: NOT thread-safe, owned by the ReceiverServer dispatcher.
+ */
+public final class SessionTable<V> {
+
+    private long[] endpoints;
+    private long[] fileIds;
+    private Object[] values;
+    private int mask;
+    private int size = 0;
+
+    public SessionTable(int expected) {
+        int cap = Integer.highestOneBit(Math.max(8, expected * 2 - 1)) << 1;
+        allocate(cap);
+    }
+
+    private void allocate(int cap) {
+        endpoints = new long[cap];
+        fileIds = new long[cap];
+        values = new Object[cap];
+        mask = cap - 1;
+    }
+
+    /**
+     * Endpoint half of the key: IPv4 address and port packed exactly,
+     * IPv6 folded (bit 62 marks it)
+     */
+    public static long endpointKey(InetSocketAddress address) {
+        byte[] ip = address.getAddress().getAddress();
+        long port = address.getPort() & 0xFFFFL;
+        if (address.getAddress() instanceof Inet4Address) {
+            long v4 = ((ip[0] & 0xFFL) << 24) | ((ip[1] & 0xFFL) << 16) | ((ip[2] & 0xFFL) << 8) | (ip[3] & 0xFFL);
+            return (v4 << 16) | port;
+        }
+        return (1L << 62) | ((Arrays.hashCode(ip) & 0xFFFFFFFFL) << 16) | port;
+    }
+
+    private int slot(long endpoint, long fileId) {
+        long h = endpoint * 0x9E3779B97F4A7C15L ^ fileId * 0xC2B2AE3D27D4EB4FL;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long endpoint, long fileId) {
+        for (int i = slot(endpoint, fileId); ; i = (i + 1) & mask) {
+            Object v = values[i];
+            if (v == null) return null;
+            if (endpoints[i] == endpoint && fileIds[i] == fileId) return (V) v;
+        }
+    }
+
+    /**
+     * Insert unless the key is present
+     *
+     * @return The value already stored under the key (left in place), or
+     *         null if value was inserted
+     */
+    @SuppressWarnings("unchecked")
+    public V putIfAbsent(long endpoint, long fileId, V value) {
+        if (value == null) throw new IllegalArgumentException("null session");
+        if ((size + 1) * 2 > values.length) {
+            grow();
+        }
+        int i = slot(endpoint, fileId);
+        while (values[i] != null) {
+            if (endpoints[i] == endpoint && fileIds[i] == fileId) {
+                return (V) values[i];
+            }
+            i = (i + 1) & mask;
+        }
+        endpoints[i] = endpoint;
+        fileIds[i] = fileId;
+        values[i] = value;
+        size++;
+        return null;
+    }
+
+    /**
+     * Remove the key only if it maps to value
+     *
+     * @return true if removed
+     */
+    public boolean remove(long endpoint, long fileId, V value) {
+        int i = slot(endpoint, fileId);
+        while (values[i] != null) {
+            if (endpoints[i] == endpoint && fileIds[i] == fileId) {
+                if (values[i] != value) return false;
+                shiftBack(i);
+                size--;
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Close the hole at i: move later entries of the probe run back if
+     * their home slot is not between the hole and their current slot
+     */
+    private void shiftBack(int hole) {
+        int i = hole;
+        while (true) {
+            i = (i + 1) & mask;
+            if (values[i] == null) break;
+            int home = slot(endpoints[i], fileIds[i]);
+            boolean stays = hole <= i ? (hole < home && home <= i) : (hole < home || home <= i);
+            if (stays) continue;
+            endpoints[hole] = endpoints[i];
+            fileIds[hole] = fileIds[i];
+            values[hole] = values[i];
+            hole = i;
+        }
+        values[hole] = null;
+    }
+
+    private void grow() {
+        long[] oldEndpoints = endpoints;
+        long[] oldFileIds = fileIds;
+        Object[] oldValues = values;
+        allocate(oldValues.length << 1);
+        size = 0;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] == null) continue;
+            @SuppressWarnings("unchecked")
+            V v = (V) oldValues[i];
+            putIfAbsent(oldEndpoints[i], oldFileIds[i], v);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return values.length;
+    }
+}
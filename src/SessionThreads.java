@@ -0,0 +1,77 @@
+import java.lang.reflect.Method;
+import java.util.Locale;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Thread model for per-session loops (receive, stripe, feedback,
+ * retransmission, pipeline workers)
+ *
+ * -Dturbo.threads=platform (default): daemon platform threads; socket loops
+ * are non-blocking and the sender's NACK handling runs on the shared Reactor.
+ *
+ * -Dturbo.threads=virtual (Java 21+): every session loop is a virtual thread
+ * doing blocking channel reads - a parked reader costs a few hundred bytes
+ * instead of a kernel thread, so thousands of sessions fit in one process.
+ * The builder is looked up reflectively so the sources still compile on
+ * older JDKs; there the mode falls back to platform threads with a warning.
+ *
+ * Thread-safety: stateless after class initialization.
+ */
+public final class SessionThreads {
+
+    /** Requested mode (-Dturbo.threads=platform|virtual) */
+    public static final String MODE = System.getProperty("turbo.threads", "platform").trim().toLowerCase(Locale.ROOT);
+
+    /** Virtual thread factory, or null when platform threads are used */
+    private static final ThreadFactory VIRTUAL_FACTORY = "virtual".equals(MODE) ? lookupVirtualFactory() : null;
+
+    private SessionThreads() {
+    }
+
+    private static ThreadFactory lookupVirtualFactory() {
+        try {
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            return (ThreadFactory) builder.getMethod("factory").invoke(ofVirtual.invoke(null));
+        } catch (ReflectiveOperationException e) {
+            System.err.println("⚠️  Virtual threads need Java 21+ (running " +
+                System.getProperty("java.version") + ") - using platform threads");
+            return null;
+        }
+    }
+
+    /** True if session loops run as virtual threads with blocking reads */
+    public static boolean isVirtual() {
+        return VIRTUAL_FACTORY != null;
+    }
+
+    /**
+     * Unstarted session thread (platform threads are daemons; virtual threads always are)
+     */
+    public static Thread newThread(String name, Runnable r) {
+        Thread t;
+        if (VIRTUAL_FACTORY != null) {
+            t = VIRTUAL_FACTORY.newThread(r);
+            t.setName(name);
+        } else {
+            t = new Thread(r, name);
+            t.setDaemon(true);
+        }
+        return t;
+    }
+
+    public static Thread start(String name, Runnable r) {
+        Thread t = newThread(name, r);
+        t.start();
+        return t;
+    }
+
+    /** Factory for executors owned by a session */
+    public static ThreadFactory factory(String name) {
+        return r -> newThread(name, r);
+    }
+
+    public static String describe() {
+        return isVirtual() ? "virtual threads (blocking reads)" : "platform threads";
+    }
+}
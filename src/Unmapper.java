@@ -0,0 +1,103 @@
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+/**
+ * Explicit unmapping of MappedByteBuffers
+ *
+ * A dropped mapping stays in the address space (and its pages resident)
+ * until the GC happens to run its cleaner. unmap() releases it now:
+ * - Java 9+: sun.misc.Unsafe.invokeCleaner (jdk.unsupported, no flags needed)
+ * - Java 8: DirectByteBuffer.cleaner().clean()
+ * - Otherwise (or -Dturbo.chunk.unmap=false): no-op, the GC unmaps later
+ * Both are looked up reflectively so the sources compile on any JDK.
+ *
+ * The caller must guarantee that no thread touches the buffer (or any
+ * duplicate/slice of it) afterwards - access to an unmapped buffer crashes
+ * the JVM. ChunkManager only unmaps chunks with no pins left.
+ *
+ * Thread-safety: stateless after class initialization.
+ */
+public final class Unmapper {
+
+    /** -Dturbo.chunk.unmap=false leaves unmapping to the GC */
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("turbo.chunk.unmap", "true"));
+
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+    private static final Method CLEANER;
+    private static final Method CLEAN;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        Method cleaner = null;
+        Method clean = null;
+        if (ENABLED) {
+            try {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                unsafe = theUnsafe.get(null);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                invokeCleaner = null;
+                try {
+                    // Java 8 (Java 8 uyumlu): the buffer's own cleaner
+                    cleaner = Class.forName("java.nio.DirectByteBuffer").getMethod("cleaner");
+                    cleaner.setAccessible(true);
+                    clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+                    clean.setAccessible(true);
+                } catch (ReflectiveOperationException | RuntimeException e8) {
+                    cleaner = null;
+                    clean = null;
+                    System.err.println("⚠️  Explicit unmapping not available (java " +
+                        System.getProperty("java.version") + ") - mappings are released by the GC");
+                }
+            }
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+        CLEANER = cleaner;
+        CLEAN = clean;
+    }
+
+    private Unmapper() {
+    }
+
+    /** True if unmap() releases mappings immediately */
+    public static boolean isSupported() {
+        return INVOKE_CLEANER != null || CLEAN != null;
+    }
+
+    /**
+     * Unmap a direct (mapped) buffer now
+     *
+     * @param buffer Original mapping - not a duplicate or slice
+     * @return false if left to the GC (unsupported or failed)
+     */
+    public static boolean unmap(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect()) return false;
+        try {
+            if (INVOKE_CLEANER != null) {
+                INVOKE_CLEANER.invoke(UNSAFE, buffer);
+                return true;
+            }
+            if (CLEAN != null) {
+                Object cleaner = CLEANER.invoke(buffer);
+                if (cleaner == null) return false;
+                CLEAN.invoke(cleaner);
+                return true;
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            System.err.println("Unmap failed (left to GC): " + e);
+        }
+        return false;
+    }
+
+    public static String describe() {
+        if (INVOKE_CLEANER != null) return "explicit (Unsafe.invokeCleaner)";
+        if (CLEAN != null) return "explicit (Cleaner)";
+        return "GC";
+    }
+}